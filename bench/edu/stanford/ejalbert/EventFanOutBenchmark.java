@@ -0,0 +1,126 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import edu.stanford.ejalbert.browserevents.BrowserEvent;
+import edu.stanford.ejalbert.browserevents.BrowserEventListener;
+import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
+import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
+import edu.stanford.ejalbert.launching.IBrowserEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures firing a browser event with different numbers of
+ * listeners and launch threads. Listeners run on the event bus
+ * dispatch thread, so this is the cost paid by the launch thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EventFanOutBenchmark {
+    @Param({"0", "1", "8", "64"})
+    public int listenerCount;
+
+    private BrowserLauncher launcher;
+    private Process process;
+
+    @Setup
+    public void setUp(final Blackhole blackhole)
+            throws BrowserLaunchingInitializingException,
+            UnsupportedOperatingSystemException {
+        // lazy so the benchmark does not pay for browser discovery
+        launcher = new BrowserLauncher(null, null, BrowserLauncher.INIT_LAZY);
+        for (int i = 0; i < listenerCount; i++) {
+            launcher.addBrowserEventListener(new BrowserEventListener() {
+                public void handleBrowserEvent(BrowserEvent event) {
+                    blackhole.consume(event);
+                }
+            });
+        }
+        process = new IdleProcess();
+    }
+
+    @Benchmark
+    public void fireBrowserEvent() {
+        launcher.fireBrowserEvent(IBrowserEvent.ID_BROWSER_LAUNCHED,
+                                  1,
+                                  process,
+                                  "firefox",
+                                  "http://example.com/");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void fireBrowserEventContended() {
+        fireBrowserEvent();
+    }
+
+    /**
+     * Stands in for a browser process; the listeners never touch it.
+     */
+    private static final class IdleProcess
+            extends Process {
+        public OutputStream getOutputStream() {
+            return new ByteArrayOutputStream();
+        }
+
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        public InputStream getErrorStream() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        public int waitFor() {
+            return 0;
+        }
+
+        public int exitValue() {
+            return 0;
+        }
+
+        public void destroy() {
+        }
+    }
+}
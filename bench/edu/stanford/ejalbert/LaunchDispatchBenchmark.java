@@ -0,0 +1,84 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert;
+
+import java.util.concurrent.TimeUnit;
+
+import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
+import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.SpawnThrottle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a launch from the call to BrowserLauncher through the
+ * launch executor and browser command to the completed LaunchResult.
+ * <p>
+ * The bench target in build.xml puts stub browser scripts first on
+ * the PATH. The stubs exit at once, so the results show the
+ * library's own overhead plus the cost of spawning a process. The
+ * spawn rate limit is turned off so it does not set the pace.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-D" + SpawnThrottle.RATE_PROPERTY + "=0")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class LaunchDispatchBenchmark {
+    private BrowserLauncher launcher;
+
+    @Setup
+    public void setUp()
+            throws BrowserLaunchingInitializingException,
+            UnsupportedOperatingSystemException {
+        launcher = new BrowserLauncher();
+    }
+
+    @TearDown
+    public void tearDown()
+            throws InterruptedException {
+        launcher.shutdown(5000L);
+    }
+
+    @Benchmark
+    public LaunchResult defaultBrowser() {
+        return launcher.openURLinBrowserAsync("http://example.com/").join();
+    }
+
+    @Benchmark
+    public LaunchResult targetedBrowser() {
+        return launcher.openURLinBrowserAsync(
+                "FireFox",
+                "http://example.com/").join();
+    }
+}
@@ -0,0 +1,82 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.misc;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures building the command lines of a unix browser, the work
+ * done before every spawn of the open, force new window and start
+ * commands.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UnixCommandLineBenchmark {
+    /**
+     * firefox entry from linuxUnixConfig.properties
+     */
+    private static final String FIREFOX_CONFIG =
+            "FireFox;firefox;<browser> <url>;<browser> -new-tab <url>;" +
+            "<browser> -new-window <url>";
+
+    @Param({"http://example.com/",
+           "http://example.com/search?q=browser+launcher&lang=en&page=12#results"})
+    public String url;
+
+    private StandardUnixBrowser browser;
+
+    @Setup
+    public void setUp() {
+        browser = new StandardUnixBrowser(";", FIREFOX_CONFIG);
+    }
+
+    @Benchmark
+    public String[] argsForOpenBrowser() {
+        return browser.getArgsForOpenBrowser(url);
+    }
+
+    @Benchmark
+    public String[] argsForForcingNewBrowserWindow() {
+        return browser.getArgsForForcingNewBrowserWindow(url);
+    }
+
+    @Benchmark
+    public String[] argsForStartingBrowser() {
+        return browser.getArgsForStartingBrowser(url);
+    }
+}
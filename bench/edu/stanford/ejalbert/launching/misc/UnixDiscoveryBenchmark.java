@@ -0,0 +1,91 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.misc;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
+import edu.stanford.ejalbert.launching.utils.DiscoveryCache;
+import edu.stanford.ejalbert.launching.utils.ExecutableResolver;
+import net.sf.wraplog.NoneLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures UnixNetscapeBrowserLaunching.initialize(): loading the
+ * config file and discovering the browsers on the PATH.
+ * <p>
+ * The bench target in build.xml runs this against a PATH whose first
+ * directory holds stub scripts for every browser in the config file,
+ * so the results do not depend on which browsers are installed.
+ * The cold case clears the discovery caches before each call; the
+ * warm case reuses them, as a second launcher in the same JVM would.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class UnixDiscoveryBenchmark {
+
+    @State(Scope.Thread)
+    public static class ColdCaches {
+        @Setup(Level.Invocation)
+        public void clearCaches() {
+            DiscoveryCache.clear();
+            ExecutableResolver.clear();
+        }
+    }
+
+    @Benchmark
+    public List coldInitialize(ColdCaches caches)
+            throws BrowserLaunchingInitializingException {
+        return initialize();
+    }
+
+    @Benchmark
+    public List warmInitialize()
+            throws BrowserLaunchingInitializingException {
+        return initialize();
+    }
+
+    private static List initialize()
+            throws BrowserLaunchingInitializingException {
+        UnixNetscapeBrowserLaunching launching =
+                new UnixNetscapeBrowserLaunching(
+                        new NoneLogger(),
+                        UnixNetscapeBrowserLaunching.CONFIGFILE_LINUX_UNIX);
+        launching.initialize();
+        return launching.getBrowserList();
+    }
+}
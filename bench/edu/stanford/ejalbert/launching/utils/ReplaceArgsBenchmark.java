@@ -0,0 +1,82 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures filling in the browser and url placeholders of the
+ * command templates from the config files, both by string
+ * replacement and with the templates compiled by CommandTemplate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ReplaceArgsBenchmark {
+    private static final String UNIX_TEMPLATE =
+            "<browser> -new-tab <url>";
+    private static final String WINDOWS_TEMPLATE =
+            "\"<path><browser>.exe\" <args> \"<url>\"";
+
+    @Param({"http://example.com/",
+           "http://example.com/search?q=browser+launcher&lang=en&page=12#results"})
+    public String url;
+
+    private final CommandTemplate unixCommand =
+            CommandTemplate.compile(UNIX_TEMPLATE);
+    private final CommandTemplate windowsCommand =
+            CommandTemplate.compile(WINDOWS_TEMPLATE, true);
+
+    @Benchmark
+    public String unixTemplate() {
+        return LaunchingUtils.replaceArgs(UNIX_TEMPLATE, "firefox", url);
+    }
+
+    @Benchmark
+    public String windowsTemplate() {
+        return LaunchingUtils.replaceArgs(WINDOWS_TEMPLATE, "firefox", url);
+    }
+
+    @Benchmark
+    public String[] unixCompiled() {
+        return unixCommand.fill("firefox", url);
+    }
+
+    @Benchmark
+    public String[] windowsCompiled() {
+        return windowsCommand.fill("firefox", url, "C:\\Program Files\\", "");
+    }
+}
@@ -21,11 +21,24 @@
 // $Id: BrowserLauncher.java,v 1.14 2008/11/12 21:11:00 jchapman0 Exp $
 package edu.stanford.ejalbert;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 import edu.stanford.ejalbert.browserevents.BrowserEvent;
+import edu.stanford.ejalbert.browserevents.BrowserEventBus;
 import edu.stanford.ejalbert.browserevents.BrowserEventListener;
 import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
@@ -35,6 +48,11 @@ import edu.stanford.ejalbert.exceptionhandler.BrowserLauncherErrorHandler;
 import edu.stanford.ejalbert.launching.BrowserLaunchingFactory;
 import edu.stanford.ejalbert.launching.IBrowserEventCallBack;
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.BrowserCircuitBreaker;
+import edu.stanford.ejalbert.launchexecutor.BoundedLaunchExecutor;
+import edu.stanford.ejalbert.launchexecutor.ILaunchExecutor;
+import edu.stanford.ejalbert.metrics.LaunchMetrics;
 import net.sf.wraplog.AbstractLogger;
 import net.sf.wraplog.NoneLogger;
 
@@ -57,8 +75,9 @@ import net.sf.wraplog.NoneLogger;
  * The following protocols have been tested: http, mailto, and file.
  * <p>
  * This library is written completely in Java and will run on
- * all JDK 4.x-compliant systems without modification or a need
- * for additional libraries.
+ * Java 9 or later without modification or a need for additional
+ * libraries. It uses ProcessHandle, Process.onExit and
+ * CompletableFuture.delayedExecutor, which older releases lack.
  * <p>
  * There are certain system requirements for this library, as
  * it's running through Runtime.exec(), which is Java's way of
@@ -130,14 +149,51 @@ public class BrowserLauncher
      */
     public static final String WINDOWS_BROWSER_DISC_POLICY_REGISTRY =
             IBrowserLaunching.WINDOWS_BROWSER_DISC_POLICY_REGISTRY;
+    /**
+     * Initialization mode: load the config and discover browsers in
+     * the constructor. This is the default.
+     */
+    public static final int INIT_EAGER = 0;
+    /**
+     * Initialization mode: load the config and discover browsers on
+     * the first call that needs them.
+     */
+    public static final int INIT_LAZY = 1;
+    /**
+     * Initialization mode: start loading the config and discovering
+     * browsers in a background thread when the launcher is created.
+     * Calls that need the browsers before discovery has finished wait
+     * for it.
+     */
+    public static final int INIT_BACKGROUND = 2;
 
     private final IBrowserLaunching launching; // in ctor
     private AbstractLogger logger; // in init method
     private BrowserLauncherErrorHandler errorHandler; // in ctor
-    private final Set browserEventListeners = new HashSet();
+    private final BrowserEventBus eventBus; // in ctor
     private String userName; // in ctor
-    private static final Integer attemptIdLock = new Integer(0);
-    private static int attemptIdValue = 0;
+    /**
+     * executes the launches; created on first use if not set
+     */
+    private ILaunchExecutor launchExecutor = null;
+    /**
+     * merges identical launch requests; off until a window is set
+     */
+    private final LaunchCoalescer coalescer = new LaunchCoalescer();
+    /**
+     * launches started and not yet completed
+     */
+    private final Set<CompletableFuture<?>> pendingLaunches =
+            new HashSet<CompletableFuture<?>>();
+    private static final AtomicInteger attemptIdValue = new AtomicInteger();
+    /**
+     * instance used by the static openURL method and main;
+     * created on first use
+     */
+    private static BrowserLauncher sharedInstance = null;
+    private static AbstractLogger sharedLogger = null;
+    private static BrowserLauncherErrorHandler sharedErrorHandler = null;
+    private static final Object sharedLock = new Object();
 
     /**
      * Initializes the browser launcher for the operating system on which
@@ -210,6 +266,38 @@ public class BrowserLauncher
                            BrowserLauncherErrorHandler errorHandler)
             throws BrowserLaunchingInitializingException,
             UnsupportedOperatingSystemException {
+        this(logger, errorHandler, INIT_EAGER);
+    }
+
+    /**
+     * Initializes the browser launcher for the operating system on which
+     * the application is running, using the passed initialization mode.
+     * <p>
+     * With {@link #INIT_LAZY INIT_LAZY} or
+     * {@link #INIT_BACKGROUND INIT_BACKGROUND}, the constructor does not
+     * load the config or discover browsers and does not throw the
+     * declared exceptions. Initialization failures are reported to
+     * the errorHandler (openURLinBrowser), through the returned future
+     * (openURLinBrowserAsync) or to the logger (getBrowserList).
+     * <p>
+     * Null values for the logger and errorHandler are handled as in
+     * {@link #BrowserLauncher(AbstractLogger, BrowserLauncherErrorHandler)}.
+     *
+     * @param logger AbstractLogger
+     * @param errorHandler BrowserLauncherErrorHandler
+     * @param initMode int one of INIT_EAGER, INIT_LAZY or INIT_BACKGROUND
+     * @throws BrowserLaunchingInitializingException
+     * @throws UnsupportedOperatingSystemException
+     */
+    public BrowserLauncher(AbstractLogger logger,
+                           BrowserLauncherErrorHandler errorHandler,
+                           int initMode)
+            throws BrowserLaunchingInitializingException,
+            UnsupportedOperatingSystemException {
+        if (initMode < INIT_EAGER || initMode > INIT_BACKGROUND) {
+            throw new IllegalArgumentException(
+                    "invalid initialization mode: " + initMode);
+        }
         this.userName = System.getProperty("user.name");
         // assign logger or use default
         if (logger == null) {
@@ -221,9 +309,21 @@ public class BrowserLauncher
             errorHandler = new BrowserLauncherDefaultErrorHandler();
         }
         this.errorHandler = errorHandler;
+        this.eventBus = new BrowserEventBus(logger);
         // init and assign IBrowserLaunching instance
         // this method assumes the logger is not null
-        this.launching = initBrowserLauncher();
+        if (initMode == INIT_EAGER) {
+            this.launching = initBrowserLauncher();
+        }
+        else {
+            LazyBrowserLaunching lazyLaunching = new LazyBrowserLaunching(
+                    logger);
+            lazyLaunching.setBrowserEventCallBack(this);
+            if (initMode == INIT_BACKGROUND) {
+                lazyLaunching.initializeInBackground();
+            }
+            this.launching = lazyLaunching;
+        }
     }
 
     /**
@@ -245,15 +345,89 @@ public class BrowserLauncher
             throw new IllegalArgumentException(
                     "the logger cannot be null at this point.");
         }
+        long start = System.currentTimeMillis();
         IBrowserLaunching launching =
                 BrowserLaunchingFactory.createSystemBrowserLaunching(logger);
         launching.setBrowserEventCallBack(this);
         launching.initialize();
+        LaunchMetrics.getDefault().recordInitPhase(
+                "launcher.initialize",
+                System.currentTimeMillis() - start);
         return launching;
     }
 
+    /**
+     * Returns the launcher shared by the static
+     * {@link #openURL(String) openURL} method and {@link #main(String[]) main}.
+     * The shared launcher is created on the first call, using the logger and
+     * errorHandler set through {@link #setSharedLogger(AbstractLogger)
+     * setSharedLogger} and {@link #setSharedErrorHandler(BrowserLauncherErrorHandler)
+     * setSharedErrorHandler}, and reused by later calls until it is
+     * invalidated. If creating it fails, the exception is thrown and the
+     * next call tries again.
+     *
+     * @return BrowserLauncher
+     * @throws BrowserLaunchingInitializingException
+     * @throws UnsupportedOperatingSystemException
+     */
+    public static BrowserLauncher getSharedInstance()
+            throws BrowserLaunchingInitializingException,
+            UnsupportedOperatingSystemException {
+        synchronized (sharedLock) {
+            if (sharedInstance == null) {
+                sharedInstance = new BrowserLauncher(
+                        sharedLogger,
+                        sharedErrorHandler);
+            }
+            return sharedInstance;
+        }
+    }
+
+    /**
+     * Discards the shared launcher so the next call to
+     * {@link #getSharedInstance() getSharedInstance} creates a new one,
+     * reloading the config and discovering the browsers again. Launches
+     * already handed to the old launcher are not affected.
+     */
+    public static void invalidateSharedInstance() {
+        synchronized (sharedLock) {
+            sharedInstance = null;
+        }
+    }
+
+    /**
+     * Sets the logger used when the shared launcher is created.
+     * Null selects the default logger. The current shared launcher, if
+     * any, is invalidated.
+     *
+     * @param logger AbstractLogger
+     */
+    public static void setSharedLogger(AbstractLogger logger) {
+        synchronized (sharedLock) {
+            sharedLogger = logger;
+            sharedInstance = null;
+        }
+    }
+
+    /**
+     * Sets the errorHandler used when the shared launcher is created.
+     * Null selects the default errorHandler. The current shared launcher,
+     * if any, is invalidated.
+     *
+     * @param errorHandler BrowserLauncherErrorHandler
+     */
+    public static void setSharedErrorHandler(
+            BrowserLauncherErrorHandler errorHandler) {
+        synchronized (sharedLock) {
+            sharedErrorHandler = errorHandler;
+            sharedInstance = null;
+        }
+    }
+
     /**
      * Attempts to open the default web browser to the given URL.
+     * Uses the launcher returned by
+     * {@link #getSharedInstance() getSharedInstance}.
      * @deprecated -- create a BrowserLauncher object and use it instead of
      *                calling this static method.
      * @param urlString The URL to open
@@ -265,8 +439,7 @@ public class BrowserLauncher
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        BrowserLauncher launcher = new BrowserLauncher(null);
-        launcher.openURLinBrowser(urlString);
+        getSharedInstance().openURLinBrowser(urlString);
     }
 
     /**
@@ -282,29 +455,29 @@ public class BrowserLauncher
         }
         else {
             try {
-                BrowserLauncher launcher = new BrowserLauncher(null);
-                launcher.openURLinBrowser(args[0]);
+                BrowserLauncher launcher = getSharedInstance();
+                // wait for the launch to report its outcome
+                launcher.openURLinBrowserAsync(args[0]).get();
             }
             catch (BrowserLaunchingInitializingException ex) {
                 ex.printStackTrace();
             }
-            //catch (BrowserLaunchingExecutionException ex) {
-            //    ex.printStackTrace();
-            // }
             catch (UnsupportedOperatingSystemException ex) {
                 ex.printStackTrace();
             }
+            catch (ExecutionException ex) {
+                ex.getCause().printStackTrace();
+            }
+            catch (InterruptedException ex) {
+                ex.printStackTrace();
+            }
         }
     }
 
     /* -------------- from IBrowserEventCallBack ----======--- */
 
     public int getOpenAttemptId() {
-        int id;
-        synchronized(attemptIdLock) {
-            id = attemptIdValue++;
-        }
-        return id;
+        return attemptIdValue.getAndIncrement();
     }
 
     public void fireBrowserEvent(int id,
@@ -318,39 +491,54 @@ public class BrowserLauncher
                                                userName,
                                                browserName,
                                                urlLaunched);
-        BrowserEventListener[] listeners = null;
-        int lcnt = 0;
-        synchronized (browserEventListeners) {
-            lcnt = browserEventListeners.size();
-            listeners = (BrowserEventListener[]) browserEventListeners.toArray(new
-                    BrowserEventListener[lcnt]);
-        }
-
-        // maybe put this into a different thread??
-
-        for (int idx = 0; idx < lcnt; idx++) {
-            listeners[idx].handleBrowserEvent(bevent);
-        }
+        eventBus.publish(bevent);
     }
 
     /* ---------------------- API Methods -------------------- */
 
+    /**
+     * Adds a listener receiving all browser events. Events are
+     * delivered on the event bus dispatch thread.
+     *
+     * @param listener BrowserEventListener
+     */
     public void addBrowserEventListener(BrowserEventListener listener) {
         if (listener != null) {
-            synchronized (browserEventListeners) {
-                browserEventListeners.add(listener);
-            }
+            eventBus.subscribe(listener);
+        }
+    }
+
+    /**
+     * Adds a listener receiving the browser events with the passed id
+     * fired for the passed browser.
+     *
+     * @param listener BrowserEventListener
+     * @param eventId int event id or BrowserEventBus.ANY_EVENT
+     * @param browserName String browser name or null for any browser
+     */
+    public void addBrowserEventListener(BrowserEventListener listener,
+                                        int eventId,
+                                        String browserName) {
+        if (listener != null) {
+            eventBus.subscribe(listener, eventId, browserName);
         }
     }
 
     public void removeBrowserEventListener(BrowserEventListener listener) {
         if (listener != null) {
-            synchronized (browserEventListeners) {
-                browserEventListeners.remove(listener);
-            }
+            eventBus.unsubscribe(listener);
         }
     }
 
+    /**
+     * Returns the bus delivering this launcher's browser events.
+     *
+     * @return BrowserEventBus
+     */
+    public BrowserEventBus getEventBus() {
+        return eventBus;
+    }
+
     /**
      * Returns the logger being used by this BrowserLauncher instance.
      *
@@ -371,6 +559,22 @@ public class BrowserLauncher
         return launching.getBrowserList();
     }
 
+    /**
+     * Returns the browsers that are skipped because their launches
+     * keep failing. They are tried again once their circuit's open
+     * time has passed.
+     * <p>
+     * The circuit breaker is shared by all launchers in the JVM, so
+     * the list also reflects launches made through other
+     * BrowserLauncher instances.
+     *
+     * @see edu.stanford.ejalbert.launching.utils.BrowserCircuitBreaker
+     * @return List
+     */
+    public List<String> getUnavailableBrowsers() {
+        return BrowserCircuitBreaker.getDefault().getOpenBrowsers();
+    }
+
     /**
      * Attempts to open a browser and direct it to the passed url.
      *
@@ -378,13 +582,7 @@ public class BrowserLauncher
      * @param urlString String
      */
     public void openURLinBrowser(String urlString) {
-        Runnable runner = new BrowserLauncherRunner(
-                launching,
-                urlString,
-                logger,
-                errorHandler);
-        Thread launcherThread = new Thread(runner);
-        launcherThread.start();
+        launchAndReport(null, urlString);
     }
 
     /**
@@ -400,14 +598,9 @@ public class BrowserLauncher
      */
     public void openURLinBrowser(String browser,
                                  String urlString) {
-        Runnable runner = new BrowserLauncherRunner(
-                launching,
-                browser,
-                urlString,
-                logger,
-                errorHandler);
-        Thread launcherThread = new Thread(runner);
-        launcherThread.start();
+        launchAndReport(browser == null ? null :
+                        Collections.singletonList(browser),
+                        urlString);
     }
 
     /**
@@ -431,14 +624,386 @@ public class BrowserLauncher
      */
     public void openURLinBrowser(List browsers,
                                  String urlString) {
-        Runnable runner = new BrowserLauncherRunner(
-                launching,
-                browsers,
-                urlString,
-                logger,
-                errorHandler);
-        Thread launcherThread = new Thread(runner);
-        launcherThread.start();
+        launchAndReport(browsers, urlString);
+    }
+
+    /**
+     * Attempts to open the default browser and direct it to the passed
+     * url. The returned future completes with the outcome of the launch
+     * once the browser command has finished.
+     * <p>
+     * Unlike {@link #openURLinBrowser(String) openURLinBrowser(url)},
+     * exceptions are not passed to the errorHandler; the future
+     * completes exceptionally instead.
+     *
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openURLinBrowserAsync(
+            String urlString) {
+        return launchAsync(null, urlString);
+    }
+
+    /**
+     * Attempts to open a specific browser and direct it to the passed
+     * url. If the call to the requested browser fails, the code will
+     * fail over to the default browser. The returned future completes
+     * with the outcome of the launch.
+     *
+     * @param browser String
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openURLinBrowserAsync(
+            String browser,
+            String urlString) {
+        List browsers = browser == null ? null :
+                        Collections.singletonList(browser);
+        return launchAsync(browsers, urlString);
+    }
+
+    /**
+     * Tries the browsers in the list in order, failing over to the
+     * default browser if none of them are available. The returned
+     * future completes with the outcome of the launch, including
+     * every browser that was tried.
+     *
+     * @param browsers List
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openURLinBrowserAsync(
+            List browsers,
+            String urlString) {
+        return launchAsync(browsers, urlString);
+    }
+
+    /**
+     * Opens several urls in the default browser. Browsers that take
+     * several urls on one command line are started once per batch of
+     * urls instead of once per url; the batches are kept within the
+     * operating system's argument length limit (see
+     * {@link edu.stanford.ejalbert.launching.utils.UrlBatches UrlBatches}).
+     * The returned future completes with one result per url, in the
+     * order of the collection, once all of them have been launched.
+     * A url whose launch failed is reported by its result's
+     * {@link LaunchResult#getFailure() failure}.
+     * <p>
+     * Batch launches are not coalesced.
+     *
+     * @param urlStrings Collection of String objects
+     * @return CompletableFuture
+     */
+    public CompletableFuture<List<LaunchResult>> openURLs(
+            Collection<String> urlStrings) {
+        return openURLs(null, urlStrings);
+    }
+
+    /**
+     * Opens several urls, trying the browsers in the list in order
+     * before failing over to the default browser, as
+     * {@link #openURLs(Collection) openURLs(urls)} does.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @return CompletableFuture
+     * @throws IllegalArgumentException if the collection or one of
+     *         its urls is null
+     */
+    public CompletableFuture<List<LaunchResult>> openURLs(
+            List browsers,
+            Collection<String> urlStrings) {
+        if (urlStrings == null) {
+            throw new IllegalArgumentException("urls cannot be null.");
+        }
+        // checked before any url is launched, so each gets its result
+        Iterator<String> urlIter = urlStrings.iterator();
+        while (urlIter.hasNext()) {
+            if (urlIter.next() == null) {
+                throw new IllegalArgumentException("url cannot be null.");
+            }
+        }
+        return trackBatchLaunch(launching.openUrlsAsync(browsers,
+                                                        urlStrings,
+                                                        getLaunchExecutor()),
+                                urlStrings.size());
+    }
+
+    /**
+     * Returns the coalescing window in milliseconds. Zero, the
+     * default, means every request starts its own launch.
+     *
+     * @return long
+     */
+    public long getCoalescingWindow() {
+        return coalescer.getWindowMillis();
+    }
+
+    /**
+     * Sets the coalescing window in milliseconds. While the window is
+     * greater than zero, a request to open the same url in the same
+     * browser (or list of browsers) as a request made less than
+     * windowMillis earlier does not start a new launch. It shares the
+     * earlier launch instead, and async callers receive its result.
+     * This avoids duplicate browser windows and tabs when a url is
+     * requested several times in quick succession, for example on a
+     * double-click.
+     * <p>
+     * Set the window to zero to turn coalescing off.
+     *
+     * @param windowMillis long
+     */
+    public void setCoalescingWindow(long windowMillis) {
+        coalescer.setWindowMillis(windowMillis);
+    }
+
+    /**
+     * Returns the number of launch requests that were merged into an
+     * earlier identical request because of the coalescing window.
+     *
+     * @return long
+     */
+    public long getCoalescedLaunchCount() {
+        return coalescer.getCoalescedCount();
+    }
+
+    /**
+     * Returns the launch metrics shared by all launchers. They are
+     * also published as an MBean; see
+     * {@link edu.stanford.ejalbert.metrics.LaunchMetrics LaunchMetrics}.
+     *
+     * @return LaunchMetrics
+     */
+    public LaunchMetrics getMetrics() {
+        return LaunchMetrics.getDefault();
+    }
+
+    /**
+     * Starts an async launch, sharing an earlier identical launch if
+     * coalescing is on.
+     *
+     * @param browsers List
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    private CompletableFuture<LaunchResult> launchAsync(
+            final List browsers,
+            final String urlString) {
+        Supplier<CompletableFuture<LaunchResult>> startLaunch =
+                new Supplier<CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> get() {
+                return trackLaunch(launching.openUrlAsync(
+                        browsers,
+                        urlString,
+                        getLaunchExecutor()));
+            }
+        };
+        if (!coalescer.isEnabled()) {
+            return startLaunch.get();
+        }
+        return coalescer.launch(browsers, urlString, startLaunch);
+    }
+
+    /**
+     * Starts a launch for the openURLinBrowser methods. Errors are
+     * passed to the errorHandler; with coalescing on, they are passed
+     * once however many requests share the launch.
+     *
+     * @param browsers List
+     * @param urlString String
+     */
+    private void launchAndReport(final List browsers,
+                                 final String urlString) {
+        if (urlString == null) {
+            throw new IllegalArgumentException("url cannot be null.");
+        }
+        Supplier<CompletableFuture<LaunchResult>> startLaunch =
+                new Supplier<CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> get() {
+                CompletableFuture<LaunchResult> future =
+                        trackLaunch(launching.openUrlAsync(
+                                browsers,
+                                urlString,
+                                getLaunchExecutor()));
+                future.whenComplete(
+                        new BiConsumer<LaunchResult, Throwable>() {
+                    public void accept(LaunchResult result, Throwable ex) {
+                        if (ex != null) {
+                            reportLaunchFailure(ex);
+                        }
+                    }
+                });
+                return future;
+            }
+        };
+        if (coalescer.isEnabled()) {
+            coalescer.launch(browsers, urlString, startLaunch);
+        }
+        else {
+            startLaunch.get();
+        }
+    }
+
+    /**
+     * Logs a failed launch and passes it to the errorHandler.
+     *
+     * @param ex Throwable
+     */
+    private void reportLaunchFailure(Throwable ex) {
+        if (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        if (ex instanceof RejectedExecutionException) {
+            logger.error("browser launch rejected", ex);
+        }
+        else {
+            logger.error("fatal error opening url", ex);
+        }
+        errorHandler.handleException(
+                ex instanceof Exception ?
+                (Exception) ex :
+                new BrowserLaunchingExecutionException(ex));
+    }
+
+    /**
+     * Remembers the launch until it completes so that
+     * {@link #shutdown(long) shutdown} can wait for it, and records
+     * it in the launch metrics.
+     *
+     * @param future CompletableFuture
+     * @return the passed future
+     */
+    private CompletableFuture<LaunchResult> trackLaunch(
+            final CompletableFuture<LaunchResult> future) {
+        final LaunchMetrics metrics = LaunchMetrics.getDefault();
+        final long start = System.currentTimeMillis();
+        metrics.launchStarted();
+        synchronized (pendingLaunches) {
+            pendingLaunches.add(future);
+        }
+        future.whenComplete(new BiConsumer<LaunchResult, Throwable>() {
+            public void accept(LaunchResult result, Throwable ex) {
+                synchronized (pendingLaunches) {
+                    pendingLaunches.remove(future);
+                }
+                metrics.launchCompleted(result,
+                                        ex != null,
+                                        System.currentTimeMillis() - start);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Remembers a batch launch until it completes, as
+     * {@link #trackLaunch(CompletableFuture) trackLaunch} does, and
+     * records each of its urls in the launch metrics.
+     *
+     * @param future CompletableFuture
+     * @param urlCount int
+     * @return the passed future
+     */
+    private CompletableFuture<List<LaunchResult>> trackBatchLaunch(
+            final CompletableFuture<List<LaunchResult>> future,
+            final int urlCount) {
+        final LaunchMetrics metrics = LaunchMetrics.getDefault();
+        final long start = System.currentTimeMillis();
+        for (int idx = 0; idx < urlCount; idx++) {
+            metrics.launchStarted();
+        }
+        synchronized (pendingLaunches) {
+            pendingLaunches.add(future);
+        }
+        future.whenComplete(
+                new BiConsumer<List<LaunchResult>, Throwable>() {
+            public void accept(List<LaunchResult> results, Throwable ex) {
+                synchronized (pendingLaunches) {
+                    pendingLaunches.remove(future);
+                }
+                for (int idx = 0; idx < urlCount; idx++) {
+                    LaunchResult result = results == null ? null :
+                                          results.get(idx);
+                    metrics.launchCompleted(
+                            result,
+                            result == null || result.getFailure() != null,
+                            result == null ?
+                            System.currentTimeMillis() - start :
+                            result.getElapsedMillis());
+                }
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Returns the executor used to run browser launches. If no
+     * executor has been set, a
+     * {@link edu.stanford.ejalbert.launchexecutor.BoundedLaunchExecutor BoundedLaunchExecutor}
+     * with default settings is created.
+     *
+     * @return ILaunchExecutor
+     */
+    public synchronized ILaunchExecutor getLaunchExecutor() {
+        if (launchExecutor == null) {
+            launchExecutor = new BoundedLaunchExecutor();
+        }
+        return launchExecutor;
+    }
+
+    /**
+     * Sets the executor used to run browser launches. Use this to
+     * control the number of launch threads, the number of pending
+     * launches, and what happens to launches that cannot be
+     * accepted.
+     *
+     * @param launchExecutor ILaunchExecutor
+     */
+    public synchronized void setLaunchExecutor(ILaunchExecutor launchExecutor) {
+        if (launchExecutor == null) {
+            throw new IllegalArgumentException(
+                    "launchExecutor cannot be null.");
+        }
+        this.launchExecutor = launchExecutor;
+    }
+
+    /**
+     * Stops accepting browser launches and waits up to
+     * timeoutMillis for pending launches to complete. Urls
+     * passed to openURLinBrowser after this call are rejected
+     * and handed to the errorHandler. The event bus is shut down
+     * once the launches have completed.
+     *
+     * @param timeoutMillis long
+     * @return boolean true if all pending launches completed, and
+     *         their events were delivered, in time
+     * @throws InterruptedException
+     */
+    public boolean shutdown(long timeoutMillis)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        if (!getLaunchExecutor().shutdown(timeoutMillis)) {
+            return false;
+        }
+        // launches started by the executor may still be running
+        CompletableFuture<?>[] pending;
+        synchronized (pendingLaunches) {
+            pending = pendingLaunches.toArray(
+                    new CompletableFuture<?>[pendingLaunches.size()]);
+        }
+        try {
+            CompletableFuture.allOf(pending).get(
+                    Math.max(0L, deadline - System.currentTimeMillis()),
+                    TimeUnit.MILLISECONDS);
+        }
+        catch (ExecutionException ex) {
+            // failed launches have completed too
+        }
+        catch (TimeoutException ex) {
+            return false;
+        }
+        // deliver the events fired by the completed launches
+        return eventBus.shutdown(
+                Math.max(0L, deadline - System.currentTimeMillis()));
     }
 
     /**
@@ -0,0 +1,173 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.metrics.LaunchMetrics;
+
+/**
+ * Merges identical launch requests made within a time window. The
+ * first request for a browser selection and url starts the launch;
+ * requests for the same browser selection and url made before the
+ * window has elapsed share that launch and its result instead of
+ * starting their own.
+ * <p>
+ * The window is measured from the start of the first request, so a
+ * url requested again after the window has elapsed is opened again
+ * even if the earlier launch is still running.
+ *
+ * @see BrowserLauncher#setCoalescingWindow(long)
+ */
+class LaunchCoalescer {
+    private final Map<List<Object>, PendingLaunch> pending =
+            new HashMap<List<Object>, PendingLaunch>();
+    private long windowMillis = 0L;
+    private long launchCount = 0L;
+    private long coalescedCount = 0L;
+
+    /**
+     * Returns the coalescing window in milliseconds. Zero means
+     * requests are never merged.
+     *
+     * @return long
+     */
+    synchronized long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Sets the coalescing window in milliseconds. Zero turns
+     * coalescing off.
+     *
+     * @param windowMillis long
+     */
+    synchronized void setWindowMillis(long windowMillis) {
+        if (windowMillis < 0L) {
+            throw new IllegalArgumentException(
+                    "windowMillis cannot be negative.");
+        }
+        this.windowMillis = windowMillis;
+        if (windowMillis == 0L) {
+            pending.clear();
+        }
+    }
+
+    boolean isEnabled() {
+        return getWindowMillis() > 0L;
+    }
+
+    /**
+     * Returns the number of launches started through this object.
+     *
+     * @return long
+     */
+    synchronized long getLaunchCount() {
+        return launchCount;
+    }
+
+    /**
+     * Returns the number of requests that shared an earlier launch
+     * instead of starting their own.
+     *
+     * @return long
+     */
+    synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Returns a future for the launch of the url in the browser
+     * selection. If an identical request was made within the window,
+     * the future follows that launch; otherwise the launch is started
+     * by calling startLaunch.
+     * <p>
+     * Each caller gets its own future so that cancelling one does not
+     * affect the others.
+     *
+     * @param browsers List the browser selection, or null for the default
+     * @param urlString String
+     * @param startLaunch Supplier starts the launch
+     * @return CompletableFuture
+     */
+    CompletableFuture<LaunchResult> launch(
+            List<?> browsers,
+            String urlString,
+            Supplier<CompletableFuture<LaunchResult>> startLaunch) {
+        List<Object> key = Arrays.asList(new Object[] {
+                browsers == null ? null : new ArrayList<Object>(browsers),
+                urlString});
+        long now = System.nanoTime();
+        CompletableFuture<LaunchResult> future;
+        synchronized (this) {
+            purgeExpired(now);
+            PendingLaunch launch = pending.get(key);
+            if (launch != null) {
+                coalescedCount++;
+                LaunchMetrics.getDefault().launchCoalesced();
+                future = launch.future;
+            }
+            else {
+                future = startLaunch.get();
+                launchCount++;
+                pending.put(key, new PendingLaunch(future, now));
+            }
+        }
+        return future.copy();
+    }
+
+    /**
+     * Drops the launches whose window has elapsed. Called with the
+     * lock held.
+     *
+     * @param now long current System.nanoTime()
+     */
+    private void purgeExpired(long now) {
+        long windowNanos = windowMillis * 1000000L;
+        Iterator<PendingLaunch> iter = pending.values().iterator();
+        while (iter.hasNext()) {
+            PendingLaunch launch = iter.next();
+            if (now - launch.startNanos >= windowNanos) {
+                iter.remove();
+            }
+        }
+    }
+
+    private static final class PendingLaunch {
+        private final CompletableFuture<LaunchResult> future;
+        private final long startNanos;
+
+        PendingLaunch(CompletableFuture<LaunchResult> future,
+                      long startNanos) {
+            this.future = future;
+            this.startNanos = startNanos;
+        }
+    }
+}
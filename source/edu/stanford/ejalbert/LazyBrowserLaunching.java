@@ -0,0 +1,265 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
+import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
+import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
+import edu.stanford.ejalbert.launching.BrowserLaunchingFactory;
+import edu.stanford.ejalbert.launching.IBrowserEventCallBack;
+import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Defers creating and initializing the O/S specific IBrowserLaunching
+ * instance until it is first needed. Creating this object costs
+ * nothing; config loading and browser discovery happen on the first
+ * call that needs them.
+ * <p>
+ * Initialization runs at most once at a time. Callers arriving while
+ * it is running wait for it to finish. If it fails, the exception is
+ * passed to the caller and the next call tries again.
+ *
+ * @see BrowserLauncher#INIT_LAZY
+ * @see BrowserLauncher#INIT_BACKGROUND
+ */
+class LazyBrowserLaunching
+        implements IBrowserLaunching {
+    private final AbstractLogger logger; // in ctor
+    private volatile IBrowserLaunching delegate = null;
+    private IBrowserEventCallBack callback = null;
+    private boolean forceNewWindow = false;
+
+    LazyBrowserLaunching(AbstractLogger logger) {
+        if (logger == null) {
+            throw new IllegalArgumentException("logger cannot be null");
+        }
+        this.logger = logger;
+    }
+
+    /**
+     * Returns the initialized IBrowserLaunching instance, creating and
+     * initializing it if necessary.
+     *
+     * @return IBrowserLaunching
+     * @throws UnsupportedOperatingSystemException
+     * @throws BrowserLaunchingInitializingException
+     */
+    IBrowserLaunching getDelegate()
+            throws UnsupportedOperatingSystemException,
+            BrowserLaunchingInitializingException {
+        IBrowserLaunching launching = delegate;
+        if (launching == null) {
+            synchronized (this) {
+                launching = delegate;
+                if (launching == null) {
+                    logger.debug("initializing browser launching");
+                    launching = BrowserLaunchingFactory.
+                                createSystemBrowserLaunching(logger);
+                    launching.setBrowserEventCallBack(callback);
+                    launching.setNewWindowPolicy(forceNewWindow);
+                    launching.initialize();
+                    delegate = launching;
+                }
+            }
+        }
+        return launching;
+    }
+
+    /**
+     * Returns true once initialization has completed successfully.
+     *
+     * @return boolean
+     */
+    boolean isInitialized() {
+        return delegate != null;
+    }
+
+    /**
+     * Starts initialization in a background daemon thread. Failures
+     * are logged; the next call needing the browsers tries again and
+     * reports the failure to its caller.
+     */
+    void initializeInBackground() {
+        Thread initThread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    getDelegate();
+                }
+                catch (Exception ex) {
+                    logger.error("background browser discovery failed", ex);
+                }
+            }
+        }, "BrowserLauncher-init");
+        initThread.setDaemon(true);
+        initThread.start();
+    }
+
+    /* ------------------- from IBrowserLaunching -------------------- */
+
+    public void initialize()
+            throws BrowserLaunchingInitializingException {
+        try {
+            getDelegate();
+        }
+        catch (UnsupportedOperatingSystemException ex) {
+            throw new BrowserLaunchingInitializingException(ex);
+        }
+    }
+
+    public synchronized void setBrowserEventCallBack(
+            IBrowserEventCallBack callback) {
+        this.callback = callback;
+        if (delegate != null) {
+            delegate.setBrowserEventCallBack(callback);
+        }
+    }
+
+    public void openUrl(String urlString)
+            throws UnsupportedOperatingSystemException,
+            BrowserLaunchingExecutionException,
+            BrowserLaunchingInitializingException {
+        getDelegate().openUrl(urlString);
+    }
+
+    public void openUrl(String browser,
+                        String urlString)
+            throws UnsupportedOperatingSystemException,
+            BrowserLaunchingExecutionException,
+            BrowserLaunchingInitializingException {
+        getDelegate().openUrl(browser, urlString);
+    }
+
+    public void openUrl(List browsers,
+                        String urlString)
+            throws UnsupportedOperatingSystemException,
+            BrowserLaunchingExecutionException,
+            BrowserLaunchingInitializingException {
+        getDelegate().openUrl(browsers, urlString);
+    }
+
+    /**
+     * If initialization has not completed, it is run on the executor
+     * before the launch so the calling thread is never held up by
+     * browser discovery.
+     *
+     * @param browsers List
+     * @param urlString String
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openUrlAsync(
+            final List browsers,
+            final String urlString,
+            final Executor executor) {
+        IBrowserLaunching launching = delegate;
+        if (launching != null) {
+            return launching.openUrlAsync(browsers, urlString, executor);
+        }
+        return LaunchingUtils.supplyAsync(new Callable<IBrowserLaunching>() {
+            public IBrowserLaunching call()
+                    throws Exception {
+                return getDelegate();
+            }
+        }, executor).thenCompose(
+                new Function<IBrowserLaunching,
+                             CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> apply(
+                    IBrowserLaunching launching) {
+                return launching.openUrlAsync(browsers, urlString, executor);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #openUrlAsync(List,String,Executor) openUrlAsync},
+     * runs initialization on the executor if it has not completed.
+     *
+     * @param browsers List
+     * @param urlStrings Collection
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<List<LaunchResult>> openUrlsAsync(
+            final List browsers,
+            final Collection<String> urlStrings,
+            final Executor executor) {
+        IBrowserLaunching launching = delegate;
+        if (launching != null) {
+            return launching.openUrlsAsync(browsers, urlStrings, executor);
+        }
+        return LaunchingUtils.supplyAsync(new Callable<IBrowserLaunching>() {
+            public IBrowserLaunching call()
+                    throws Exception {
+                return getDelegate();
+            }
+        }, executor).thenCompose(
+                new Function<IBrowserLaunching,
+                             CompletableFuture<List<LaunchResult>>>() {
+            public CompletableFuture<List<LaunchResult>> apply(
+                    IBrowserLaunching launching) {
+                return launching.openUrlsAsync(browsers, urlStrings, executor);
+            }
+        });
+    }
+
+    /**
+     * Returns the available browsers, initializing if necessary. If
+     * initialization fails, the failure is logged and the list only
+     * contains {@link #BROWSER_DEFAULT BROWSER_DEFAULT}.
+     *
+     * @return List
+     */
+    public List getBrowserList() {
+        try {
+            return getDelegate().getBrowserList();
+        }
+        catch (Exception ex) {
+            logger.error("unable to initialize browser launching", ex);
+            List<String> browsers = new ArrayList<String>(1);
+            browsers.add(IBrowserLaunching.BROWSER_DEFAULT);
+            return browsers;
+        }
+    }
+
+    public synchronized boolean getNewWindowPolicy() {
+        return delegate != null ? delegate.getNewWindowPolicy() :
+                forceNewWindow;
+    }
+
+    public synchronized void setNewWindowPolicy(boolean forceNewWindow) {
+        this.forceNewWindow = forceNewWindow;
+        if (delegate != null) {
+            delegate.setNewWindowPolicy(forceNewWindow);
+        }
+    }
+}
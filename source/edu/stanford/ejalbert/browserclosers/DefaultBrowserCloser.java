@@ -1,58 +1,240 @@
 package edu.stanford.ejalbert.browserclosers;
 
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import edu.stanford.ejalbert.browserevents.BrowserEvent;
 
 /**
+ * Keeps the launch events of the browsers that may still be closed.
+ * <p>
+ * An event is forgotten as soon as its browser exits, and the
+ * registry is bounded: once it holds more than the maximum number
+ * of events, or holds events older than the maximum age, the oldest
+ * are forgotten without closing their browsers.
  *
  * @author not attributable
  * @version 1.0
  */
 public abstract class DefaultBrowserCloser
         implements IBrowserCloser {
-    private final Map browserEvents = new HashMap();
+    /**
+     * default number of events kept
+     */
+    public static final int DEFAULT_MAX_EVENTS = 256;
+
+    private final Map<Integer, BrowserEvent> browserEvents =
+            new ConcurrentHashMap<Integer, BrowserEvent>();
+    /**
+     * the kept events in the order they arrived; may still hold
+     * events already removed from the map
+     */
+    private final Queue<BrowserEvent> arrivals =
+            new ConcurrentLinkedQueue<BrowserEvent>();
+    private final int maxEvents; // in ctor
+    private final long maxAgeMillis; // in ctor
 
     public DefaultBrowserCloser() {
+        this(DEFAULT_MAX_EVENTS, 0L);
+    }
+
+    /**
+     * Creates a closer keeping at most maxEvents events, each for at
+     * most maxAgeMillis.
+     *
+     * @param maxEvents int zero or less for no limit
+     * @param maxAgeMillis long zero or less for no limit
+     */
+    public DefaultBrowserCloser(int maxEvents,
+                                long maxAgeMillis) {
+        this.maxEvents = maxEvents > 0 ? maxEvents : 0;
+        this.maxAgeMillis = maxAgeMillis > 0L ? maxAgeMillis : 0L;
     }
 
     protected abstract void killBrowser(BrowserEvent event);
 
+    /**
+     * Called once the event is no longer kept, because its browser
+     * exited, it was evicted or its browser was closed. Does nothing
+     * by default.
+     *
+     * @param event BrowserEvent
+     */
+    protected void browserForgotten(BrowserEvent event) {
+    }
+
+    /**
+     * Returns a future completing once the browser of the event has
+     * exited, or null if that cannot be told. The event is forgotten
+     * when the future completes. By default this is the exit of the
+     * launched process.
+     *
+     * @param event BrowserEvent
+     * @return CompletableFuture may be null
+     */
+    protected CompletableFuture<?> getBrowserExit(BrowserEvent event) {
+        Process process = event.getProcess();
+        return process == null ? null : process.onExit();
+    }
+
     /* --------------- from BrowserEventListener -------------- */
 
-    public void handleBrowserEvent(BrowserEvent event) {
+    public void handleBrowserEvent(final BrowserEvent event) {
         if (BrowserEvent.ID_BROWSER_LAUNCHED == event.getEventId()) {
-            Integer key = new Integer(event.getAttemptId());
-            synchronized (browserEvents) {
-                browserEvents.put(key, event);
+            final Integer key = Integer.valueOf(event.getAttemptId());
+            browserEvents.put(key, event);
+            arrivals.add(event);
+            CompletableFuture<?> exit = getBrowserExit(event);
+            if (exit != null) {
+                exit.thenRun(new Runnable() {
+                    public void run() {
+                        arrivals.remove(event);
+                        // closed or evicted events were forgotten already
+                        if (browserEvents.remove(key, event)) {
+                            browserForgotten(event);
+                        }
+                    }
+                });
+            }
+            evictExpired();
+        }
+    }
+
+    /**
+     * Forgets the oldest events while there are too many or they are
+     * too old. Entries of the arrivals queue whose event has already
+     * been removed are discarded on the way.
+     */
+    private void evictExpired() {
+        long oldest = maxAgeMillis > 0L ?
+                      System.currentTimeMillis() - maxAgeMillis :
+                      Long.MIN_VALUE;
+        BrowserEvent head;
+        while ((head = arrivals.peek()) != null) {
+            Integer key = Integer.valueOf(head.getAttemptId());
+            if (browserEvents.get(key) != head) {
+                arrivals.remove(head);
+            }
+            else if (head.getTimeStamp() < oldest ||
+                     (maxEvents > 0 && browserEvents.size() > maxEvents)) {
+                browserEvents.remove(key, head);
+                arrivals.remove(head);
+                browserForgotten(head);
+            }
+            else {
+                break;
             }
         }
     }
 
     /* ------------------ from IBrowserCloser ----------------- */
 
+    /**
+     * Returns the kept events. The array is taken without locking
+     * the registry, so events arriving or leaving meanwhile may or
+     * may not be in it.
+     *
+     * @return BrowserEvent[]
+     */
     public BrowserEvent[] getBrowserEvents() {
-        int cnt = 0;
-        BrowserEvent[] events = null;
-        synchronized (browserEvents) {
-            cnt = browserEvents.size();
-            events = (BrowserEvent[]) browserEvents.values().toArray(
-                    new BrowserEvent[cnt]);
-        }
-        return events;
+        evictExpired();
+        return browserEvents.values().toArray(new BrowserEvent[0]);
     }
 
     public void closeBrowser(BrowserEvent event) {
         if(event != null) {
-            Integer key = new Integer(event.getAttemptId());
-            BrowserEvent bevent = null;
-            synchronized(browserEvents) {
-                bevent = (BrowserEvent)browserEvents.remove(key);
-            }
+            Integer key = Integer.valueOf(event.getAttemptId());
+            BrowserEvent bevent = browserEvents.remove(key);
             if(bevent != null) {
+                arrivals.remove(bevent);
                 killBrowser(bevent);
+                browserForgotten(bevent);
             }
         }
     }
+
+    /**
+     * Closes the browsers launched under the passed browser name.
+     *
+     * @param browserName String
+     * @return int the number of browsers closed
+     */
+    public int closeBrowsers(String browserName) {
+        if (browserName == null) {
+            throw new IllegalArgumentException("browserName cannot be null.");
+        }
+        int closed = 0;
+        Iterator<BrowserEvent> iter = browserEvents.values().iterator();
+        while (iter.hasNext()) {
+            BrowserEvent event = iter.next();
+            if (browserName.equals(event.getBrowserName()) &&
+                closeKept(event)) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Closes the browsers launched more than ageMillis ago.
+     *
+     * @param ageMillis long
+     * @return int the number of browsers closed
+     */
+    public int closeBrowsersOlderThan(long ageMillis) {
+        long launchedBefore = System.currentTimeMillis() - ageMillis;
+        int closed = 0;
+        Iterator<BrowserEvent> iter = browserEvents.values().iterator();
+        while (iter.hasNext()) {
+            BrowserEvent event = iter.next();
+            if (event.getTimeStamp() < launchedBefore &&
+                closeKept(event)) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Closes the browser if its event is still kept, so each browser
+     * is closed at most once.
+     */
+    private boolean closeKept(BrowserEvent event) {
+        if (!browserEvents.remove(Integer.valueOf(event.getAttemptId()), event)) {
+            return false;
+        }
+        arrivals.remove(event);
+        killBrowser(event);
+        browserForgotten(event);
+        return true;
+    }
+
+    /**
+     * Closes all the browsers still kept.
+     *
+     * @return int the number of browsers closed
+     */
+    public int closeAllBrowsers() {
+        int closed = 0;
+        Iterator<BrowserEvent> iter = browserEvents.values().iterator();
+        while (iter.hasNext()) {
+            if (closeKept(iter.next())) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Returns the number of events kept.
+     *
+     * @return int
+     */
+    public int getBrowserEventCount() {
+        return browserEvents.size();
+    }
 }
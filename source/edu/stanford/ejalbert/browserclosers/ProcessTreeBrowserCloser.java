@@ -0,0 +1,356 @@
+package edu.stanford.ejalbert.browserclosers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import edu.stanford.ejalbert.browserevents.BrowserEvent;
+import edu.stanford.ejalbert.browserevents.LaunchedProcessListener;
+
+/**
+ * Closes browsers together with the processes they spawned.
+ * <p>
+ * The launched process is often only a wrapper (kfmclient, open,
+ * cmd /c start) that hands the url to the real browser and exits.
+ * This closer therefore tracks the process tree of each launch: the
+ * launched process and every process found below it while any
+ * tracked process is alive. The tree is sampled every
+ * {@link #SAMPLE_MILLIS SAMPLE_MILLIS} with one scan of the process
+ * table for all launches, so a browser started and detached from
+ * its wrapper between two samples is missed. The first sample is
+ * taken in the thread that started the launched process, before a
+ * short lived wrapper can exit. An event is forgotten, along with its
+ * tree, once all processes of the tree have exited, or when it is
+ * evicted or its browser closed.
+ * <p>
+ * Closing a browser asks each live process of its tree to terminate
+ * and, if any is still alive after the grace period, kills it
+ * forcibly. Closing does not block, so bulk closes run in parallel
+ * and all complete within the grace period; use
+ * {@link #awaitClosed(long) awaitClosed} to wait for them.
+ */
+public class ProcessTreeBrowserCloser
+        extends DefaultBrowserCloser
+        implements LaunchedProcessListener {
+    /**
+     * how often the process trees are sampled
+     */
+    public static final long SAMPLE_MILLIS = 250L;
+    /**
+     * default time processes get to exit before they are killed
+     */
+    public static final long DEFAULT_GRACE_MILLIS = 5000L;
+
+    private static ScheduledExecutorService scheduler = null;
+
+    private final long graceMillis; // in ctor
+    /**
+     * maps launch events to the process handles of their tree
+     */
+    private final Map<BrowserEvent, ProcessTree> trees =
+            new ConcurrentHashMap<BrowserEvent, ProcessTree>();
+    private final Set<CompletableFuture<Void>> closing =
+            ConcurrentHashMap.newKeySet();
+    private ScheduledFuture<?> sampler = null; // guarded by this
+
+    public ProcessTreeBrowserCloser() {
+        this(DEFAULT_MAX_EVENTS, 0L, DEFAULT_GRACE_MILLIS);
+    }
+
+    /**
+     * Creates a closer keeping at most maxEvents events, each for at
+     * most maxAgeMillis, and giving browsers graceMillis to exit
+     * before killing them.
+     *
+     * @param maxEvents int zero or less for no limit
+     * @param maxAgeMillis long zero or less for no limit
+     * @param graceMillis long zero to kill at once
+     */
+    public ProcessTreeBrowserCloser(int maxEvents,
+                                    long maxAgeMillis,
+                                    long graceMillis) {
+        super(maxEvents, maxAgeMillis);
+        if (graceMillis < 0L) {
+            throw new IllegalArgumentException(
+                    "graceMillis cannot be negative.");
+        }
+        this.graceMillis = graceMillis;
+    }
+
+    /**
+     * Starts tracking the tree of the launched process and takes its
+     * first sample.
+     *
+     * @param event BrowserEvent
+     */
+    public void processLaunched(BrowserEvent event) {
+        trackTree(event);
+    }
+
+    public void handleBrowserEvent(BrowserEvent event) {
+        if (BrowserEvent.ID_BROWSER_LAUNCHED == event.getEventId()) {
+            // not yet tracked if the event did not come through a bus
+            trackTree(event);
+        }
+        super.handleBrowserEvent(event);
+    }
+
+    protected void browserForgotten(BrowserEvent event) {
+        trees.remove(event);
+    }
+
+    private void trackTree(BrowserEvent event) {
+        if (event.getProcess() == null || trees.containsKey(event)) {
+            return;
+        }
+        ProcessTree tree = new ProcessTree(event.getProcess().toHandle());
+        if (trees.putIfAbsent(event, tree) == null) {
+            tree.sample(getChildrenByParent());
+            startSampling();
+        }
+    }
+
+    protected CompletableFuture<?> getBrowserExit(final BrowserEvent event) {
+        ProcessTree tree = trees.get(event);
+        if (tree == null) {
+            return super.getBrowserExit(event);
+        }
+        return tree.exit;
+    }
+
+    /**
+     * Asks the live processes of the browser's tree to terminate and
+     * schedules killing those still alive after the grace period.
+     *
+     * @param event BrowserEvent
+     */
+    protected void killBrowser(BrowserEvent event) {
+        ProcessTree tree = trees.get(event);
+        if (tree == null) {
+            Process process = event.getProcess();
+            if (process != null) {
+                tree = new ProcessTree(process.toHandle());
+            }
+            else {
+                return;
+            }
+        }
+        // take the latest descendants before the wrapper goes away
+        tree.sample(getChildrenByParent());
+        final List<ProcessHandle> handles = tree.getLiveHandles();
+        List<CompletableFuture<ProcessHandle>> exits =
+                new ArrayList<CompletableFuture<ProcessHandle>>();
+        Iterator<ProcessHandle> iter = handles.iterator();
+        while (iter.hasNext()) {
+            ProcessHandle handle = iter.next();
+            exits.add(handle.onExit());
+            if (graceMillis == 0L || !handle.supportsNormalTermination()) {
+                handle.destroyForcibly();
+            }
+            else {
+                handle.destroy();
+            }
+        }
+        final CompletableFuture<Void> closed = CompletableFuture.allOf(
+                exits.toArray(new CompletableFuture<?>[exits.size()]));
+        closing.add(closed);
+        if (graceMillis > 0L) {
+            closed.orTimeout(graceMillis, TimeUnit.MILLISECONDS)
+                    .whenComplete(new BiConsumer<Void, Throwable>() {
+                public void accept(Void ignored, Throwable ex) {
+                    if (ex instanceof TimeoutException) {
+                        Iterator<ProcessHandle> iter = handles.iterator();
+                        while (iter.hasNext()) {
+                            iter.next().destroyForcibly();
+                        }
+                    }
+                }
+            });
+        }
+        closed.whenComplete(new BiConsumer<Void, Throwable>() {
+            public void accept(Void ignored, Throwable ex) {
+                closing.remove(closed);
+            }
+        });
+    }
+
+    /**
+     * Waits up to timeoutMillis for the browsers being closed to exit.
+     *
+     * @param timeoutMillis long
+     * @return boolean true if they all exited in time
+     * @throws InterruptedException
+     */
+    public boolean awaitClosed(long timeoutMillis)
+            throws InterruptedException {
+        CompletableFuture<?>[] pending = closing.toArray(
+                new CompletableFuture<?>[0]);
+        try {
+            CompletableFuture.allOf(pending).get(timeoutMillis,
+                                                 TimeUnit.MILLISECONDS);
+            return true;
+        }
+        catch (ExecutionException ex) {
+            // closes do not fail; a timed out wait ends in a kill
+            return true;
+        }
+        catch (TimeoutException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the number of browsers being closed.
+     *
+     * @return int
+     */
+    public int getClosingCount() {
+        return closing.size();
+    }
+
+    /**
+     * Maps the pid of each live process to the handles of its
+     * children, with one scan of the process table.
+     */
+    private static Map<Long, List<ProcessHandle>> getChildrenByParent() {
+        final Map<Long, List<ProcessHandle>> children =
+                new HashMap<Long, List<ProcessHandle>>();
+        ProcessHandle.allProcesses().forEach(
+                new Consumer<ProcessHandle>() {
+            public void accept(ProcessHandle handle) {
+                Optional<ProcessHandle> parent = handle.parent();
+                if (parent.isPresent()) {
+                    Long ppid = Long.valueOf(parent.get().pid());
+                    List<ProcessHandle> siblings = children.get(ppid);
+                    if (siblings == null) {
+                        siblings = new ArrayList<ProcessHandle>();
+                        children.put(ppid, siblings);
+                    }
+                    siblings.add(handle);
+                }
+            }
+        });
+        return children;
+    }
+
+    private synchronized void startSampling() {
+        if (sampler == null) {
+            sampler = getScheduler().scheduleWithFixedDelay(new Runnable() {
+                public void run() {
+                    sampleTrees();
+                }
+            }, SAMPLE_MILLIS, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Adds new descendants to the tracked trees and drops the trees
+     * whose processes have all exited. Sampling stops while no tree
+     * is tracked.
+     */
+    private void sampleTrees() {
+        Map<Long, List<ProcessHandle>> children = getChildrenByParent();
+        Iterator<ProcessTree> iter = trees.values().iterator();
+        while (iter.hasNext()) {
+            ProcessTree tree = iter.next();
+            if (!tree.sample(children)) {
+                iter.remove();
+            }
+        }
+        synchronized (this) {
+            if (trees.isEmpty() && sampler != null) {
+                sampler.cancel(false);
+                sampler = null;
+            }
+        }
+    }
+
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                                               "BrowserLauncher-closer");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * The processes seen in the tree of one launch.
+     */
+    private static final class ProcessTree {
+        private final Set<ProcessHandle> handles =
+                ConcurrentHashMap.newKeySet();
+        private final CompletableFuture<Void> exit =
+                new CompletableFuture<Void>();
+
+        ProcessTree(ProcessHandle root) {
+            handles.add(root);
+        }
+
+        /**
+         * Adds the children of the live tracked processes, repeating
+         * for the new ones, and completes the exit once none is alive.
+         *
+         * @param children Map from parent pid to child handles
+         * @return boolean true if a tracked process is alive
+         */
+        boolean sample(Map<Long, List<ProcessHandle>> children) {
+            List<ProcessHandle> todo = getLiveHandles();
+            boolean alive = !todo.isEmpty();
+            while (!todo.isEmpty()) {
+                ProcessHandle handle = todo.remove(todo.size() - 1);
+                List<ProcessHandle> kids =
+                        children.get(Long.valueOf(handle.pid()));
+                if (kids != null) {
+                    Iterator<ProcessHandle> iter = kids.iterator();
+                    while (iter.hasNext()) {
+                        ProcessHandle kid = iter.next();
+                        if (handles.add(kid)) {
+                            todo.add(kid);
+                        }
+                    }
+                }
+            }
+            if (!alive) {
+                exit.complete(null);
+            }
+            return alive;
+        }
+
+        List<ProcessHandle> getLiveHandles() {
+            List<ProcessHandle> live = new ArrayList<ProcessHandle>();
+            Iterator<ProcessHandle> iter = handles.iterator();
+            while (iter.hasNext()) {
+                ProcessHandle handle = iter.next();
+                if (handle.isAlive()) {
+                    live.add(handle);
+                }
+                else {
+                    iter.remove();
+                }
+            }
+            return live;
+        }
+    }
+}
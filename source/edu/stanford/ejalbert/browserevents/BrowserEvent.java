@@ -36,6 +36,7 @@ public class BrowserEvent
     private final String urlLaunched; // in ctor
     private final Process process; // in ctor
     private final int attemptId; // in ctor
+    private final long timeStamp; // in ctor
 
     public BrowserEvent(int id,
                         int attemptId,
@@ -49,6 +50,7 @@ public class BrowserEvent
         this.urlLaunched = urlLaunched;
         this.process = proc;
         this.attemptId = attemptId;
+        this.timeStamp = System.currentTimeMillis();
     }
 
     public int getAttemptId() {
@@ -74,4 +76,13 @@ public class BrowserEvent
     public String getURLLaunched() {
         return urlLaunched;
     }
+
+    /**
+     * Returns the time in millis at which the event was fired.
+     *
+     * @return long
+     */
+    public long getTimeStamp() {
+        return timeStamp;
+    }
 }
@@ -0,0 +1,433 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.browserevents;
+
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Delivers browser events to subscribed listeners on a dedicated
+ * dispatch thread, so a slow listener never holds up the launch that
+ * fired the event.
+ * <p>
+ * Publishing puts the event into a bounded queue and returns. A
+ * single daemon thread takes events off the queue in order and hands
+ * each one to the subscriptions matching it. Subscriptions are kept
+ * in a copy-on-write list, so publishing and dispatching never lock
+ * the registry; subscribing and unsubscribing copy it.
+ * <p>
+ * When the queue is full, the overflow policy decides what happens
+ * to the new event:
+ * <ul>
+ * <li>{@link #OVERFLOW_CALLER_RUNS OVERFLOW_CALLER_RUNS}: the event is
+ * delivered in the publishing thread, slowing the launch down.</li>
+ * <li>{@link #OVERFLOW_DROP_OLDEST OVERFLOW_DROP_OLDEST}: the oldest
+ * queued event is dropped to make room for the new one.</li>
+ * <li>{@link #OVERFLOW_DROP_NEWEST OVERFLOW_DROP_NEWEST}: the new
+ * event is dropped.</li>
+ * </ul>
+ * Events with the id
+ * {@link BrowserEvent#ID_BROWSER_LAUNCHED ID_BROWSER_LAUNCHED} are
+ * never dropped, since they carry the only handle on the browser
+ * process the browser closers get. An overflowing one is delivered in
+ * the publishing thread, and one that is queued is not dropped to
+ * make room. Listeners implementing
+ * {@link LaunchedProcessListener LaunchedProcessListener} are also
+ * shown each launched event in the publishing thread.
+ * The dispatch thread times out when idle.
+ */
+public class BrowserEventBus {
+    /**
+     * Deliver overflowing events in the publishing thread.
+     */
+    public static final int OVERFLOW_CALLER_RUNS = 0;
+    /**
+     * Drop the oldest queued event to make room for an overflowing one.
+     */
+    public static final int OVERFLOW_DROP_OLDEST = 1;
+    /**
+     * Drop overflowing events.
+     */
+    public static final int OVERFLOW_DROP_NEWEST = 2;
+    /**
+     * Event id matching all events in a subscription.
+     */
+    public static final int ANY_EVENT = 0;
+    /**
+     * default number of queued events
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+    /**
+     * how long an idle dispatch thread is kept alive
+     */
+    private static final long KEEP_ALIVE_MILLIS = 30000L;
+    /**
+     * used to number bus instances in thread names
+     */
+    private static final AtomicInteger busCounter = new AtomicInteger(1);
+
+    private final AbstractLogger logger; // in ctor
+    private final int overflowPolicy; // in ctor
+    private final ThreadPoolExecutor dispatcher; // in ctor
+    private final CopyOnWriteArrayList<Subscription> subscriptions =
+            new CopyOnWriteArrayList<Subscription>();
+    private final AtomicLong publishedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    /**
+     * Creates a bus using the default queue capacity and the caller
+     * runs overflow policy.
+     *
+     * @param logger AbstractLogger receiving listener failures
+     */
+    public BrowserEventBus(AbstractLogger logger) {
+        this(logger, DEFAULT_QUEUE_CAPACITY, OVERFLOW_CALLER_RUNS);
+    }
+
+    /**
+     * Creates a bus queueing up to queueCapacity events and applying
+     * the overflow policy when the queue is full.
+     *
+     * @param logger AbstractLogger receiving listener failures
+     * @param queueCapacity int
+     * @param overflowPolicy int
+     */
+    public BrowserEventBus(AbstractLogger logger,
+                           int queueCapacity,
+                           int overflowPolicy) {
+        if (logger == null) {
+            throw new IllegalArgumentException("logger cannot be null.");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "queueCapacity must be positive");
+        }
+        if (overflowPolicy < OVERFLOW_CALLER_RUNS ||
+            overflowPolicy > OVERFLOW_DROP_NEWEST) {
+            throw new IllegalArgumentException(
+                    "invalid overflow policy: " + overflowPolicy);
+        }
+        this.logger = logger;
+        this.overflowPolicy = overflowPolicy;
+        this.dispatcher = new ThreadPoolExecutor(
+                1,
+                1,
+                KEEP_ALIVE_MILLIS,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new DispatchThreadFactory(),
+                new OverflowHandler());
+        this.dispatcher.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the overflow policy used by this bus.
+     *
+     * @return int
+     */
+    public int getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Subscribes the listener to all events.
+     *
+     * @param listener BrowserEventListener
+     */
+    public void subscribe(BrowserEventListener listener) {
+        subscribe(listener, ANY_EVENT, null);
+    }
+
+    /**
+     * Subscribes the listener to the events with the passed id
+     * fired for the passed browser.
+     *
+     * @param listener BrowserEventListener
+     * @param eventId int event id or ANY_EVENT
+     * @param browserName String browser name or null for any browser
+     */
+    public void subscribe(BrowserEventListener listener,
+                          int eventId,
+                          String browserName) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener cannot be null.");
+        }
+        subscriptions.add(new Subscription(listener, eventId, browserName));
+    }
+
+    /**
+     * Removes all subscriptions of the listener. Events already
+     * being delivered may still reach it.
+     *
+     * @param listener BrowserEventListener
+     */
+    public void unsubscribe(BrowserEventListener listener) {
+        Iterator<Subscription> iter = subscriptions.iterator();
+        while (iter.hasNext()) {
+            Subscription subscription = iter.next();
+            if (subscription.listener == listener) {
+                subscriptions.remove(subscription);
+            }
+        }
+    }
+
+    /**
+     * Queues the event for delivery and returns without waiting for
+     * the listeners. Events published while nobody is subscribed are
+     * not queued. A launched event is first shown to the matching
+     * {@link LaunchedProcessListener LaunchedProcessListeners}.
+     *
+     * @param event BrowserEvent
+     */
+    public void publish(final BrowserEvent event) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        if (event.getEventId() == BrowserEvent.ID_BROWSER_LAUNCHED) {
+            showLaunchedProcess(event);
+        }
+        publishedCount.incrementAndGet();
+        dispatcher.execute(new Dispatch(event));
+    }
+
+    /**
+     * Calls processLaunched on the matching subscriptions whose
+     * listener wants to see launched processes at once.
+     */
+    private void showLaunchedProcess(BrowserEvent event) {
+        Iterator<Subscription> iter = subscriptions.iterator();
+        while (iter.hasNext()) {
+            Subscription subscription = iter.next();
+            if (subscription.listener instanceof LaunchedProcessListener &&
+                subscription.matches(event)) {
+                try {
+                    ((LaunchedProcessListener) subscription.listener).
+                            processLaunched(event);
+                }
+                catch (RuntimeException ex) {
+                    logger.error("launched process listener failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the event to each matching subscription. A failing
+     * listener is logged and does not keep the event from the others.
+     */
+    private void dispatch(BrowserEvent event) {
+        Iterator<Subscription> iter = subscriptions.iterator();
+        while (iter.hasNext()) {
+            Subscription subscription = iter.next();
+            if (subscription.matches(event)) {
+                try {
+                    subscription.listener.handleBrowserEvent(event);
+                    deliveredCount.incrementAndGet();
+                }
+                catch (RuntimeException ex) {
+                    logger.error("browser event listener failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops accepting events and waits up to timeoutMillis for the
+     * queued ones to be delivered.
+     *
+     * @param timeoutMillis long
+     * @return boolean true if all queued events were delivered in time
+     * @throws InterruptedException
+     */
+    public boolean shutdown(long timeoutMillis)
+            throws InterruptedException {
+        dispatcher.shutdown();
+        return dispatcher.awaitTermination(timeoutMillis,
+                                           TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the number of events queued for delivery.
+     *
+     * @return long
+     */
+    public long getPublishedCount() {
+        return publishedCount.get();
+    }
+
+    /**
+     * Returns the number of times an event was handed to a listener.
+     *
+     * @return long
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * Returns the number of events dropped because the queue was full
+     * or the bus had been shut down.
+     *
+     * @return long
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Returns the number of events waiting for delivery.
+     *
+     * @return int
+     */
+    public int getQueuedCount() {
+        return dispatcher.getQueue().size();
+    }
+
+    /**
+     * Delivery of one queued event.
+     */
+    private final class Dispatch
+            implements Runnable {
+        private final BrowserEvent event; // in ctor
+
+        Dispatch(BrowserEvent event) {
+            this.event = event;
+        }
+
+        /**
+         * Returns true if the event may be dropped when the queue
+         * overflows.
+         *
+         * @return boolean
+         */
+        boolean isDroppable() {
+            return event.getEventId() != BrowserEvent.ID_BROWSER_LAUNCHED;
+        }
+
+        public void run() {
+            dispatch(event);
+        }
+    }
+
+    /**
+     * One listener with the events it wants.
+     */
+    private static final class Subscription {
+        private final BrowserEventListener listener; // in ctor
+        private final int eventId; // in ctor
+        private final String browserName; // in ctor
+
+        Subscription(BrowserEventListener listener,
+                     int eventId,
+                     String browserName) {
+            this.listener = listener;
+            this.eventId = eventId;
+            this.browserName = browserName;
+        }
+
+        boolean matches(BrowserEvent event) {
+            return (eventId == ANY_EVENT || eventId == event.getEventId()) &&
+                    (browserName == null ||
+                     browserName.equals(event.getBrowserName()));
+        }
+    }
+
+    /**
+     * Creates the named daemon dispatch thread so it never keeps the
+     * JVM alive.
+     */
+    private static final class DispatchThreadFactory
+            implements ThreadFactory {
+        private final int busNumber = busCounter.getAndIncrement();
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                                       "BrowserLauncher-events-" + busNumber);
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Applies the overflow policy. Events published after shutdown
+     * are dropped.
+     */
+    private final class OverflowHandler
+            implements RejectedExecutionHandler {
+        public void rejectedExecution(Runnable dispatch,
+                                      ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                droppedCount.incrementAndGet();
+                return;
+            }
+            switch (overflowPolicy) {
+            case OVERFLOW_CALLER_RUNS:
+                dispatch.run();
+                break;
+            case OVERFLOW_DROP_OLDEST:
+                if (dropOldest(executor)) {
+                    executor.execute(dispatch);
+                }
+                else {
+                    // only launched events queued; none may be dropped
+                    dispatch.run();
+                }
+                break;
+            default:
+                if (((Dispatch) dispatch).isDroppable()) {
+                    droppedCount.incrementAndGet();
+                }
+                else {
+                    dispatch.run();
+                }
+            }
+        }
+
+        /**
+         * Removes the oldest queued event that may be dropped.
+         *
+         * @return boolean false if there was none
+         */
+        private boolean dropOldest(ThreadPoolExecutor executor) {
+            Iterator<Runnable> iter = executor.getQueue().iterator();
+            while (iter.hasNext()) {
+                Runnable queued = iter.next();
+                if (((Dispatch) queued).isDroppable() &&
+                    executor.getQueue().remove(queued)) {
+                    droppedCount.incrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
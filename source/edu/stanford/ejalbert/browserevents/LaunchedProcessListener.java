@@ -0,0 +1,41 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.browserevents;
+
+/**
+ * Implemented by listeners that have to see a launched browser process
+ * at once rather than when the event is delivered. The
+ * {@link BrowserEventBus BrowserEventBus} calls
+ * {@link #processLaunched(BrowserEvent) processLaunched} for each
+ * matching {@link BrowserEvent#ID_BROWSER_LAUNCHED ID_BROWSER_LAUNCHED}
+ * event in the thread publishing it, which is the thread that has just
+ * started the process, before queueing the event for
+ * {@link BrowserEventListener#handleBrowserEvent(BrowserEvent)
+ * handleBrowserEvent}.
+ * <p>
+ * The launch waits for the call, so it must be quick.
+ */
+public interface LaunchedProcessListener
+        extends BrowserEventListener {
+
+    public void processLaunched(BrowserEvent event);
+}
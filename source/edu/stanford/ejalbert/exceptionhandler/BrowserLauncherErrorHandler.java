@@ -22,9 +22,13 @@
 package edu.stanford.ejalbert.exceptionhandler;
 
 /**
- * This is an interface to be used by the BrowserLauncherRunner for handling
- * exceptions. Applications should implement this interface to handle
- * exceptions in an application specific manner.
+ * This is an interface to be used by the BrowserLauncher for handling
+ * exceptions of the launches started by its
+ * {@link edu.stanford.ejalbert.BrowserLauncher#openURLinBrowser(String)
+ * openURLinBrowser} methods. These launches run asynchronously, so their
+ * exceptions are passed to the handler when the launch completes.
+ * Applications should implement this interface to handle exceptions in
+ * an application specific manner.
  *
  * @author Jeff Chapman
  */
@@ -0,0 +1,200 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launchexecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Launch executor backed by a fixed size pool of named threads and a
+ * bounded queue of pending launches.
+ * <p>
+ * When both the pool and the queue are full, the rejection policy
+ * decides what happens to the new launch:
+ * <ul>
+ * <li>{@link #POLICY_CALLER_RUNS POLICY_CALLER_RUNS}: the launch runs
+ * in the thread requesting it, slowing the caller down.</li>
+ * <li>{@link #POLICY_DROP_OLDEST POLICY_DROP_OLDEST}: the oldest
+ * pending launch is dropped to make room for the new one.</li>
+ * <li>{@link #POLICY_FAIL_FAST POLICY_FAIL_FAST}: the new launch is
+ * rejected with a RejectedExecutionException.</li>
+ * </ul>
+ * The launch threads are not daemons, so a launch requested just
+ * before the application returns from main still runs. Idle pool
+ * threads time out after a second so they do not keep the JVM alive
+ * once the launches have been started.
+ */
+public class BoundedLaunchExecutor
+        implements ILaunchExecutor {
+    /**
+     * Run rejected launches in the calling thread.
+     */
+    public static final int POLICY_CALLER_RUNS = 0;
+    /**
+     * Drop the oldest pending launch to make room for a rejected one.
+     */
+    public static final int POLICY_DROP_OLDEST = 1;
+    /**
+     * Throw a RejectedExecutionException for rejected launches.
+     */
+    public static final int POLICY_FAIL_FAST = 2;
+    /**
+     * default number of launch threads
+     */
+    public static final int DEFAULT_POOL_SIZE = 4;
+    /**
+     * default number of pending launches
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+    /**
+     * how long idle launch threads are kept alive
+     */
+    private static final long KEEP_ALIVE_MILLIS = 1000L;
+    /**
+     * used to number executor instances in thread names
+     */
+    private static final AtomicInteger poolCounter = new AtomicInteger(1);
+
+    private final ThreadPoolExecutor pool; // in ctor
+    private final int rejectionPolicy; // in ctor
+
+    /**
+     * Creates an executor using the default pool size, queue
+     * capacity and the caller runs rejection policy.
+     */
+    public BoundedLaunchExecutor() {
+        this(DEFAULT_POOL_SIZE, DEFAULT_QUEUE_CAPACITY, POLICY_CALLER_RUNS);
+    }
+
+    /**
+     * Creates an executor with the given number of launch threads,
+     * the given number of pending launches and the rejection
+     * policy to apply when both are exhausted.
+     *
+     * @param poolSize int
+     * @param queueCapacity int
+     * @param rejectionPolicy int
+     */
+    public BoundedLaunchExecutor(int poolSize,
+                                 int queueCapacity,
+                                 int rejectionPolicy) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be positive");
+        }
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "queueCapacity must be positive");
+        }
+        if (rejectionPolicy < POLICY_CALLER_RUNS ||
+            rejectionPolicy > POLICY_FAIL_FAST) {
+            throw new IllegalArgumentException(
+                    "invalid rejection policy: " + rejectionPolicy);
+        }
+        this.rejectionPolicy = rejectionPolicy;
+        this.pool = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                KEEP_ALIVE_MILLIS,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity),
+                new LaunchThreadFactory(),
+                new LaunchRejectionHandler());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the rejection policy used by this executor.
+     *
+     * @return int
+     */
+    public int getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /* ------------------- from ILaunchExecutor -------------------- */
+
+    public void execute(Runnable launch) {
+        pool.execute(launch);
+    }
+
+    public boolean shutdown(long timeoutMillis)
+            throws InterruptedException {
+        pool.shutdown();
+        return pool.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    /**
+     * Creates named launch threads.
+     */
+    private static final class LaunchThreadFactory
+            implements ThreadFactory {
+        private final int poolNumber = poolCounter.getAndIncrement();
+        private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable,
+                              "BrowserLauncher-launch-" + poolNumber +
+                              "-" + threadCounter.getAndIncrement());
+        }
+    }
+
+    /**
+     * Applies the rejection policy. Launches submitted after
+     * shutdown are always rejected.
+     */
+    private final class LaunchRejectionHandler
+            implements RejectedExecutionHandler {
+        public void rejectedExecution(Runnable launch,
+                                      ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException(
+                        "launch executor has been shut down");
+            }
+            switch (rejectionPolicy) {
+            case POLICY_CALLER_RUNS:
+                launch.run();
+                break;
+            case POLICY_DROP_OLDEST:
+                Runnable dropped = executor.getQueue().poll();
+                // let anyone waiting on the dropped launch know about it
+                if (dropped instanceof Future) {
+                    ((Future<?>) dropped).cancel(false);
+                }
+                executor.execute(launch);
+                break;
+            default:
+                throw new RejectedExecutionException(
+                        "launch queue is full");
+            }
+        }
+    }
+}
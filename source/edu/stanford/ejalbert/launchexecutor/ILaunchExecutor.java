@@ -0,0 +1,55 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launchexecutor;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Executes the browser launches requested through
+ * {@link edu.stanford.ejalbert.BrowserLauncher BrowserLauncher}.
+ * <p>
+ * Implementations decide how many launches may run at the same time
+ * and what happens when more launches are requested than can be
+ * handled. Launch tasks that cannot be accepted should be rejected
+ * with a
+ * {@link java.util.concurrent.RejectedExecutionException RejectedExecutionException}.
+ */
+public interface ILaunchExecutor
+        extends Executor {
+    /**
+     * Stops accepting new launches and waits up to timeoutMillis
+     * for the launches already accepted to complete.
+     *
+     * @param timeoutMillis long
+     * @return boolean true if all launches completed in time
+     * @throws InterruptedException
+     */
+    public boolean shutdown(long timeoutMillis)
+            throws InterruptedException;
+
+    /**
+     * Returns true if {@link #shutdown(long) shutdown} has been called.
+     *
+     * @return boolean
+     */
+    public boolean isShutdown();
+}
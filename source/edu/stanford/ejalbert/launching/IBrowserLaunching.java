@@ -21,7 +21,10 @@
 // $Id: IBrowserLaunching.java,v 1.10 2008/11/12 21:11:00 jchapman0 Exp $
 package edu.stanford.ejalbert.launching;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
@@ -150,6 +153,45 @@ public interface IBrowserLaunching {
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException;
 
+    /**
+     * Opens the url on the passed executor and returns a future
+     * holding the outcome of the launch.
+     * <p>
+     * The browsers from the list will be tried in order until one
+     * of them succeeds. If the list is null or empty, or if none of
+     * the browsers succeed, the code will fail over to the default
+     * browser. The future completes exceptionally if the launch
+     * throws one of the exceptions declared by the openUrl methods.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openUrlAsync(List browsers,
+                                                        String urlString,
+                                                        Executor executor);
+
+    /**
+     * Opens several urls on the passed executor and returns a future
+     * holding one launch result per url, in the order of the
+     * collection. Each url is launched as by
+     * {@link #openUrlAsync(List,String,Executor) openUrlAsync}, but
+     * launchers whose browsers accept several urls on one command
+     * line open them with a few commands rather than one per url. A
+     * url whose launch failed is reported by its result's
+     * {@link LaunchResult#getFailure() failure}.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<List<LaunchResult>> openUrlsAsync(
+            List browsers,
+            Collection<String> urlStrings,
+            Executor executor);
+
     /**
      * Returns a list of browsers to be used for browser targetting.
      * This list will always contain at least one item:
@@ -0,0 +1,381 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a request to open a url. The result records every
+ * command that was run while working through the browser fallback
+ * chain, which browser finally opened the url, and how long it took.
+ */
+public class LaunchResult {
+    /**
+     * Stage addressing an already open browser (new tab or current
+     * instance).
+     */
+    public static final int STAGE_OPEN = 1;
+    /**
+     * Stage forcing the url into a new browser window.
+     */
+    public static final int STAGE_FORCE_NEW_WINDOW = 2;
+    /**
+     * Stage starting a new browser instance.
+     */
+    public static final int STAGE_START = 3;
+    /**
+     * Stage handing the url to the system's default browser.
+     */
+    public static final int STAGE_DEFAULT = 4;
+    /**
+     * Exit code recorded for commands that did not report one.
+     */
+    public static final int NO_EXIT_CODE = Integer.MIN_VALUE;
+    /**
+     * Exit code recorded for commands still running when the detach
+     * time elapsed. The browser is taken to have started.
+     */
+    public static final int EXIT_DETACHED = Integer.MIN_VALUE + 1;
+    /**
+     * Exit code recorded for commands that were still running at the
+     * step timeout or the launch deadline.
+     */
+    public static final int EXIT_TIMED_OUT = Integer.MIN_VALUE + 2;
+
+    private final String urlLaunched; // in ctor
+    private final long startTime; // in ctor
+    private final long deadline; // in ctor
+    private long endTime = -1L;
+    private final List<Attempt> attempts = new ArrayList<Attempt>();
+    private String browserLaunched = null;
+    private int attemptId = -1;
+    private boolean success = false;
+    private Throwable failure = null;
+
+    /**
+     * Starts the result for a request to open the passed url.
+     *
+     * @param urlLaunched String
+     */
+    public LaunchResult(String urlLaunched) {
+        this(urlLaunched, 0L);
+    }
+
+    /**
+     * Starts the result for a request to open the passed url which
+     * has to complete within timeoutMillis. No command of the launch
+     * is started after the deadline.
+     *
+     * @param urlLaunched String
+     * @param timeoutMillis long zero for no deadline
+     */
+    public LaunchResult(String urlLaunched,
+                        long timeoutMillis) {
+        this.urlLaunched = urlLaunched;
+        this.startTime = System.currentTimeMillis();
+        this.deadline = timeoutMillis > 0L ? startTime + timeoutMillis : 0L;
+    }
+
+    /**
+     * Returns the name of a stage for debugging.
+     *
+     * @param stage int
+     * @return String
+     */
+    public static String getStageName(int stage) {
+        switch (stage) {
+        case STAGE_OPEN:
+            return "open";
+        case STAGE_FORCE_NEW_WINDOW:
+            return "force-new-window";
+        case STAGE_START:
+            return "start";
+        case STAGE_DEFAULT:
+            return "default";
+        default:
+            return "unknown";
+        }
+    }
+
+    /**
+     * Records a command run as part of the launch.
+     *
+     * @param attemptId int the id from IBrowserEventCallBack.getOpenAttemptId() or -1
+     * @param browserName String
+     * @param stage int one of the STAGE_ constants
+     * @param exitCode int the exit code or NO_EXIT_CODE
+     * @param attemptStart long start time in millis
+     * @return Attempt
+     */
+    public synchronized Attempt addAttempt(int attemptId,
+                                           String browserName,
+                                           int stage,
+                                           int exitCode,
+                                           long attemptStart) {
+        Attempt attempt = new Attempt(attemptId,
+                                      browserName,
+                                      stage,
+                                      exitCode,
+                                      attemptStart,
+                                      System.currentTimeMillis() -
+                                      attemptStart);
+        attempts.add(attempt);
+        this.attemptId = attemptId;
+        return attempt;
+    }
+
+    /**
+     * Marks the launch as successful with the passed browser.
+     *
+     * @param browserName String
+     */
+    public synchronized void setSucceeded(String browserName) {
+        this.success = true;
+        this.browserLaunched = browserName;
+    }
+
+    /**
+     * Records the error that ended the launch. Used where several
+     * launches report through one future, such as batch launches.
+     *
+     * @param failure Throwable
+     */
+    public synchronized void setFailure(Throwable failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Records the end time of the launch. Only the first call has an
+     * effect.
+     */
+    public synchronized void finish() {
+        if (endTime < 0L) {
+            endTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Returns the url passed to the browser.
+     *
+     * @return String
+     */
+    public String getURLLaunched() {
+        return urlLaunched;
+    }
+
+    /**
+     * Returns true if one of the browsers opened the url.
+     *
+     * @return boolean
+     */
+    public synchronized boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Returns the name of the browser that opened the url or null if
+     * the launch did not succeed.
+     *
+     * @return String
+     */
+    public synchronized String getBrowserLaunched() {
+        return browserLaunched;
+    }
+
+    /**
+     * Returns the error that ended the launch, or null if it ended
+     * normally.
+     *
+     * @return Throwable
+     */
+    public synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Returns the attempt id of the last attempt or -1 if the
+     * launcher does not assign attempt ids. The id matches the one
+     * passed to browser event listeners.
+     *
+     * @return int
+     */
+    public synchronized int getAttemptId() {
+        return attemptId;
+    }
+
+    /**
+     * Returns all commands run for this launch in the order they
+     * were run.
+     *
+     * @return List of Attempt objects
+     */
+    public synchronized List<Attempt> getAttempts() {
+        return Collections.unmodifiableList(new ArrayList<Attempt>(attempts));
+    }
+
+    /**
+     * Returns the names of the browsers tried, in the order they
+     * were tried.
+     *
+     * @return List of String objects
+     */
+    public synchronized List<String> getBrowsersTried() {
+        List<String> browsers = new ArrayList<String>();
+        for (int idx = 0; idx < attempts.size(); idx++) {
+            String name = attempts.get(idx).getBrowserName();
+            if (!browsers.contains(name)) {
+                browsers.add(name);
+            }
+        }
+        return browsers;
+    }
+
+    /**
+     * Returns the time in millis by which the launch has to complete,
+     * or zero if it has no deadline.
+     *
+     * @return long
+     */
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Returns the start time of the launch in millis.
+     *
+     * @return long
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Returns the time the launch took or the time elapsed so far if
+     * the launch has not finished.
+     *
+     * @return long
+     */
+    public synchronized long getElapsedMillis() {
+        long end = endTime < 0L ? System.currentTimeMillis() : endTime;
+        return end - startTime;
+    }
+
+    /**
+     * Returns debug information.
+     *
+     * @return String
+     */
+    public synchronized String toString() {
+        StringBuffer buf = new StringBuffer();
+        buf.append("url=");
+        buf.append(urlLaunched);
+        buf.append(" success=");
+        buf.append(success);
+        buf.append(" browser=");
+        buf.append(browserLaunched);
+        buf.append(" elapsed=");
+        buf.append(getElapsedMillis());
+        buf.append("ms attempts=");
+        buf.append(attempts);
+        if (failure != null) {
+            buf.append(" failure=");
+            buf.append(failure);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A single command run while launching a url.
+     */
+    public static final class Attempt {
+        private final int attemptId; // in ctor
+        private final String browserName; // in ctor
+        private final int stage; // in ctor
+        private final int exitCode; // in ctor
+        private final long startTime; // in ctor
+        private final long elapsedMillis; // in ctor
+
+        private Attempt(int attemptId,
+                        String browserName,
+                        int stage,
+                        int exitCode,
+                        long startTime,
+                        long elapsedMillis) {
+            this.attemptId = attemptId;
+            this.browserName = browserName;
+            this.stage = stage;
+            this.exitCode = exitCode;
+            this.startTime = startTime;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getAttemptId() {
+            return attemptId;
+        }
+
+        public String getBrowserName() {
+            return browserName;
+        }
+
+        public int getStage() {
+            return stage;
+        }
+
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        public long getStartTime() {
+            return startTime;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public String toString() {
+            StringBuffer buf = new StringBuffer();
+            buf.append(browserName);
+            buf.append('/');
+            buf.append(getStageName(stage));
+            buf.append(" exit=");
+            if (exitCode == NO_EXIT_CODE) {
+                buf.append("none");
+            }
+            else if (exitCode == EXIT_DETACHED) {
+                buf.append("detached");
+            }
+            else if (exitCode == EXIT_TIMED_OUT) {
+                buf.append("timeout");
+            }
+            else {
+                buf.append(exitCode);
+            }
+            buf.append(' ');
+            buf.append(elapsedMillis);
+            buf.append("ms");
+            return buf.toString();
+        }
+    }
+}
@@ -22,16 +22,19 @@
 package edu.stanford.ejalbert.launching.macos;
 
 import java.io.File;
-import java.io.IOException;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
 import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.utils.BrowserProcessRunner;
+import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
 
 /**
  * @author Markus Gebhard
@@ -122,12 +125,23 @@ public class MacOs2_1BrowserLaunching
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
         String browser = getBrowser();
-        try {
-            Runtime.getRuntime().exec(new String[] {browser, urlString});
-        }
-        catch (IOException e) {
-            throw new BrowserLaunchingExecutionException(e);
-        }
+        // the browser runs until the user quits it, so only its start
+        // is waited for
+        final CompletableFuture<Void> started = new CompletableFuture<Void>();
+        BrowserProcessRunner.run(
+                new String[] {browser, urlString},
+                new BrowserProcessRunner.ProcessListener() {
+            public void processStarted(Process process) {
+                started.complete(null);
+            }
+        }).whenComplete(new BiConsumer<Integer, Throwable>() {
+            public void accept(Integer exitCode, Throwable ex) {
+                if (ex != null) {
+                    started.completeExceptionally(ex);
+                }
+            }
+        });
+        LaunchingUtils.join(started);
     }
 
     /**
@@ -21,13 +21,20 @@
 // $Id: MacOsBrowserLaunching.java,v 1.4 2008/11/12 21:11:00 jchapman0 Exp $
 package edu.stanford.ejalbert.launching.macos;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
 import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
 import edu.stanford.ejalbert.launching.IBrowserEventCallBack;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import edu.stanford.ejalbert.launching.utils.UrlBatches;
 
 /**
  * @author Markus Gebhard
@@ -93,6 +100,52 @@ public abstract class MacOsBrowserLaunching
         openUrl(urlString);
     }
 
+    /**
+     * Runs the non-targetted openUrl method on the executor. Browser
+     * targetting has not been implemented for the Mac.
+     *
+     * @param browsers List
+     * @param urlString String
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openUrlAsync(List browsers,
+                                                        final String urlString,
+                                                        Executor executor) {
+        return LaunchingUtils.supplyAsync(new Callable<LaunchResult>() {
+            public LaunchResult call()
+                    throws Exception {
+                LaunchResult result = new LaunchResult(urlString);
+                long start = System.currentTimeMillis();
+                openUrl(urlString);
+                result.addAttempt(-1,
+                                  IBrowserLaunching.BROWSER_DEFAULT,
+                                  LaunchResult.STAGE_DEFAULT,
+                                  LaunchResult.NO_EXIT_CODE,
+                                  start);
+                result.setSucceeded(IBrowserLaunching.BROWSER_DEFAULT);
+                result.finish();
+                return result;
+            }
+        }, executor);
+    }
+
+    /**
+     * Opens each url with its own launch. The Mac launchers
+     * open one url per call.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @param executor Executor
+     * @return CompletableFuture completing with one result per url
+     */
+    public CompletableFuture<List<LaunchResult>> openUrlsAsync(
+            List browsers,
+            Collection<String> urlStrings,
+            Executor executor) {
+        return UrlBatches.openEachAsync(this, browsers, urlStrings, executor);
+    }
+
     /**
      * Returns the policy used for opening a url in a browser.
      * <p>
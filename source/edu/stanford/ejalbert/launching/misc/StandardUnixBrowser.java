@@ -21,13 +21,12 @@
 // $Id: StandardUnixBrowser.java,v 1.8 2007/08/31 15:54:10 jchapman0 Exp $
 package edu.stanford.ejalbert.launching.misc;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.List;
 
 import net.sf.wraplog.AbstractLogger;
-import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import edu.stanford.ejalbert.launching.utils.ExecutableResolver;
+import edu.stanford.ejalbert.launching.utils.CommandTemplate;
+import edu.stanford.ejalbert.launching.utils.UrlBatches;
 
 /**
  * Contains information on a unix browser.
@@ -52,13 +51,30 @@ class StandardUnixBrowser
     private final String argsForStartBrowser; // in ctor
 
     private final String argsForForcedBrowserWindow; // in ctor
+    /**
+     * the argument templates compiled in the ctor
+     */
+    private final CommandTemplate openBrowserCommand; // in ctor
+    private final CommandTemplate startBrowserCommand; // in ctor
+    private final CommandTemplate forcedBrowserWindowCommand; // in ctor
+    /**
+     * most urls passed to one command
+     */
+    private final int maxUrlsPerCommand; // in ctor
+    /**
+     * name the running browser's process has, null if not known
+     */
+    private final String processName; // in ctor
 
     /**
      * Splits the config string using the configSep character.
      * The resulting config items are used to set the
      * browser display name, the browser executable name, and
      * the arguments for starting a new browser instance and
-     * addressing an already open browser.
+     * addressing an already open browser. The optional sixth item
+     * is the most urls a command takes; it is ignored unless every
+     * command template accepts several urls. The optional seventh
+     * item is the name of the running browser's process.
      *
      * @param configSep String
      * @param configStr String
@@ -70,12 +86,38 @@ class StandardUnixBrowser
         this.browserArgName = configItems[1];
         this.argsForStartBrowser = configItems[2];
         this.argsForOpenBrowser = configItems[3];
-        if(configItems.length == 5) {
+        if(configItems.length >= 5) {
             this.argsForForcedBrowserWindow = configItems[4];
         }
         else {
             this.argsForForcedBrowserWindow = configItems[2];
         }
+        this.startBrowserCommand = CommandTemplate.compile(
+                argsForStartBrowser);
+        this.openBrowserCommand = argsForOpenBrowser.length() > 0 ?
+                                  CommandTemplate.compile(argsForOpenBrowser) :
+                                  startBrowserCommand;
+        this.forcedBrowserWindowCommand = CommandTemplate.compile(
+                argsForForcedBrowserWindow);
+        int maxUrls = 1;
+        if (configItems.length >= 6 && configItems[5].trim().length() > 0 &&
+            startBrowserCommand.acceptsManyUrls() &&
+            openBrowserCommand.acceptsManyUrls() &&
+            forcedBrowserWindowCommand.acceptsManyUrls()) {
+            try {
+                maxUrls = Math.max(Integer.parseInt(configItems[5].trim()), 1);
+            }
+            catch (NumberFormatException ex) {
+                // one url per command
+            }
+        }
+        this.maxUrlsPerCommand = maxUrls;
+        if (configItems.length >= 7 && configItems[6].trim().length() > 0) {
+            this.processName = configItems[6].trim();
+        }
+        else {
+            this.processName = null;
+        }
     }
 
     /**
@@ -96,23 +138,6 @@ class StandardUnixBrowser
         return buf.toString();
     }
 
-    /**
-     * Replaces the placeholders <browser> and <url> in the
-     * argsString and splits the resulting string around
-     * space characters.
-     *
-     * @param argsString String
-     * @param urlString String
-     * @return String[]
-     */
-    private String[] getCommandLineArgs(String argsString,
-                                        String urlString) {
-        argsString = LaunchingUtils.replaceArgs(argsString,
-                                                browserArgName,
-                                                urlString);
-        return argsString.split("[ ]");
-    }
-
     /* --------------------- from BrowserDescription --------------------- */
 
     /**
@@ -143,10 +168,7 @@ class StandardUnixBrowser
      * @return String[]
      */
     public String[] getArgsForOpenBrowser(String urlString) {
-        String argsStartString = argsForOpenBrowser != null &&
-                                 argsForOpenBrowser.length() > 0 ?
-                                 argsForOpenBrowser : argsForStartBrowser;
-        return getCommandLineArgs(argsStartString, urlString);
+        return openBrowserCommand.fill(browserArgName, urlString);
     }
 
     /**
@@ -157,46 +179,110 @@ class StandardUnixBrowser
      * @return String[]
      */
     public String[] getArgsForStartingBrowser(String urlString) {
-        return getCommandLineArgs(argsForStartBrowser, urlString);
+        return startBrowserCommand.fill(browserArgName, urlString);
     }
 
     public String[] getArgsForForcingNewBrowserWindow(String urlString) {
-        return getCommandLineArgs(argsForForcedBrowserWindow, urlString);
+        return forcedBrowserWindowCommand.fill(browserArgName, urlString);
+    }
+
+    public String[] getArgsForOpenBrowser(List<String> urlStrings) {
+        return fillMany(openBrowserCommand, urlStrings);
+    }
+
+    public String[] getArgsForStartingBrowser(List<String> urlStrings) {
+        return fillMany(startBrowserCommand, urlStrings);
+    }
+
+    public String[] getArgsForForcingNewBrowserWindow(
+            List<String> urlStrings) {
+        return fillMany(forcedBrowserWindowCommand, urlStrings);
     }
 
     /**
-     * Returns true if the browser is available, ie which command finds it.
+     * Returns the most urls the browser's commands take at once.
      *
-     * @param logger AbstractLogger
-     * @return boolean
+     * @return int
      */
-    public boolean isBrowserAvailable(AbstractLogger logger) {
-        boolean isAvailable = false;
-        try {
-            Process process = Runtime.getRuntime().exec(new String[] {"which",
-                    browserArgName});
-            InputStream errStream = process.getErrorStream();
-            InputStream inStream = process.getInputStream();
-            BufferedReader errIn
-                    = new BufferedReader(new InputStreamReader(errStream));
-            BufferedReader in
-                    = new BufferedReader(new InputStreamReader(inStream));
-            String whichOutput = in.readLine();
-            String whichErrOutput = errIn.readLine();
-            in.close();
-            errIn.close();
-            if(whichOutput != null) {
-                logger.debug(whichOutput);
-            }
-            if(whichErrOutput != null) {
-                logger.debug(whichErrOutput);
+    public int getMaxUrlsPerCommand() {
+        return maxUrlsPerCommand;
+    }
+
+    /**
+     * Splits the urls into batches of at most
+     * {@link #getMaxUrlsPerCommand() getMaxUrlsPerCommand} urls, sized
+     * for the longest of the browser's commands.
+     *
+     * @param urlStrings List of String objects
+     * @param maxCommandBytes int
+     * @return List of Lists of String objects
+     */
+    public List<List<String>> getUrlBatches(List<String> urlStrings,
+                                            int maxCommandBytes) {
+        if (maxUrlsPerCommand == 1) {
+            return UrlBatches.split(urlStrings, 1, 0, 0, maxCommandBytes);
+        }
+        CommandTemplate[] commands = {
+                startBrowserCommand,
+                openBrowserCommand,
+                forcedBrowserWindowCommand};
+        int fixedBytes = 0;
+        int perUrlBytes = 0;
+        for (int idx = 0; idx < commands.length; idx++) {
+            int repeated = commands[idx].getBytesPerUrl();
+            // the arguments of a one char url, less the url and the
+            // arguments repeated with it
+            String[] args = commands[idx].fill(browserArgName, "u");
+            int bytes = -2 - repeated;
+            for (int arg = 0; arg < args.length; arg++) {
+                bytes += args[arg].length() + 1;
             }
-            isAvailable = whichOutput != null &&
-                          whichOutput.startsWith("/");
+            fixedBytes = Math.max(fixedBytes, bytes);
+            perUrlBytes = Math.max(perUrlBytes, repeated);
         }
-        catch (IOException ex) {
-            logger.error("io error executing which command", ex);
+        return UrlBatches.split(urlStrings,
+                                maxUrlsPerCommand,
+                                fixedBytes,
+                                perUrlBytes,
+                                maxCommandBytes);
+    }
+
+    private String[] fillMany(CommandTemplate command,
+                              List<String> urlStrings) {
+        if (urlStrings.size() == 1) {
+            return command.fill(browserArgName, urlStrings.get(0));
         }
-        return isAvailable;
+        return command.fill(browserArgName, urlStrings);
+    }
+
+    /**
+     * Returns the name of the running browser's process from the
+     * config, or null if it is not given.
+     *
+     * @return String may be null
+     */
+    public String getBrowserProcessName() {
+        return processName;
+    }
+
+    /**
+     * Returns true if the browser's executable can be found on the PATH.
+     *
+     * @param logger AbstractLogger
+     * @return boolean
+     */
+    public boolean isBrowserAvailable(AbstractLogger logger) {
+        return findBrowserExecutable(logger) != null;
+    }
+
+    /**
+     * Returns the full path to the browser's executable, or null if
+     * it cannot be found on the PATH.
+     *
+     * @param logger AbstractLogger
+     * @return String
+     */
+    String findBrowserExecutable(AbstractLogger logger) {
+        return ExecutableResolver.resolve(browserArgName, logger);
     }
 }
@@ -21,11 +21,12 @@
 // $Id: SunOSBrowserLaunching.java,v 1.4 2008/11/12 21:11:00 jchapman0 Exp $
 package edu.stanford.ejalbert.launching.misc;
 
-import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
-import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
-import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
-import edu.stanford.ejalbert.launching.IBrowserEvent;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
 import net.sf.wraplog.AbstractLogger;
 
 /**
@@ -59,48 +60,44 @@ public class SunOSBrowserLaunching
      * {@link IBrowserLaunching.BROWSER_DEFAULT IBrowserLaunching.BROWSER_DEFAULT}.
      *
      * @param urlString String
-     * @throws BrowserLaunchingExecutionException
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if a browser opened the url
      */
-    public void openUrl(String urlString)
-            throws UnsupportedOperatingSystemException,
-            BrowserLaunchingExecutionException,
-            BrowserLaunchingInitializingException {
-        try {
-            logger.info(urlString);
-            // check system property which may contain user's preferred browser
-            String browserId = System.getProperty(
-                    IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
-                    null);
-            StandardUnixBrowser defBrowser = getBrowser(
-                    IBrowserLaunching.BROWSER_DEFAULT);
-            if (browserId != null) {
-                logger.info(
-                        "browser pref defined in system prop. Failing over to super.openUrl() method");
-                super.openUrl(urlString);
-            }
-            // we should always have a default browser defined for
-            // SunOS but if not, fail over to super class method
-            else if (defBrowser == null) {
-                logger.info(
-                        "no default browser defined. Failing over to super.openUrl() method");
-                super.openUrl(urlString);
-            }
-            else {
-                logger.info(defBrowser.getBrowserDisplayName());
-                int attemptId = browserEventCallback.getOpenAttemptId();
-                Process process = Runtime.getRuntime().exec(
-                        defBrowser.getArgsForStartingBrowser(urlString));
-                browserEventCallback.fireBrowserEvent(
-                        IBrowserEvent.ID_BROWSER_LAUNCHED,
-                        attemptId,
-                        process,
-                        defBrowser.getBrowserApplicationName(),
-                        urlString);
-                process.waitFor();
-            }
+    protected CompletableFuture<Boolean> openUrlInDefaultBrowserAsync(
+            String urlString,
+            final LaunchResult result) {
+        logger.info(urlString);
+        // check system property which may contain user's preferred browser
+        String browserId = System.getProperty(
+                IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
+                null);
+        final StandardUnixBrowser defBrowser = getBrowser(
+                IBrowserLaunching.BROWSER_DEFAULT);
+        if (browserId != null) {
+            logger.info(
+                    "browser pref defined in system prop. Failing over to super.openUrlInDefaultBrowserAsync() method");
+            return super.openUrlInDefaultBrowserAsync(urlString, result);
         }
-        catch (Exception e) {
-            throw new BrowserLaunchingExecutionException(e);
+        // we should always have a default browser defined for
+        // SunOS but if not, fail over to super class method
+        else if (defBrowser == null) {
+            logger.info(
+                    "no default browser defined. Failing over to super.openUrlInDefaultBrowserAsync() method");
+            return super.openUrlInDefaultBrowserAsync(urlString, result);
         }
+        logger.info(defBrowser.getBrowserDisplayName());
+        return LaunchingUtils.wrapFailures(runBrowserCommand(
+                defBrowser,
+                defBrowser.getArgsForStartingBrowser(urlString),
+                urlString,
+                browserEventCallback.getOpenAttemptId(),
+                LaunchResult.STAGE_DEFAULT,
+                result).thenApply(new Function<Boolean, Boolean>() {
+            public Boolean apply(Boolean exitedCleanly) {
+                // sdtwebclient does not report browser failures
+                result.setSucceeded(defBrowser.getBrowserDisplayName());
+                return Boolean.TRUE;
+            }
+        }));
     }
 }
@@ -21,7 +21,10 @@
 // $Id: UnixBrowser.java,v 1.4 2006/09/11 20:41:55 jchapman0 Exp $
 package edu.stanford.ejalbert.launching.misc;
 
+import java.util.List;
+
 import edu.stanford.ejalbert.launching.BrowserDescription;
+import edu.stanford.ejalbert.launching.utils.UrlBatches;
 import net.sf.wraplog.AbstractLogger;
 
 /**
@@ -50,6 +53,93 @@ public interface UnixBrowser
 
     public String[] getArgsForForcingNewBrowserWindow(String url);
 
+    /**
+     * Returns the command line arguments for addressing an already
+     * open browser with several urls. Only called with more than one
+     * url if {@link #getMaxUrlsPerCommand() getMaxUrlsPerCommand} is
+     * greater than one; by default the one url is passed to
+     * {@link #getArgsForOpenBrowser(String) getArgsForOpenBrowser}.
+     *
+     * @param urlStrings List of String objects
+     * @return String[]
+     */
+    public default String[] getArgsForOpenBrowser(List<String> urlStrings) {
+        return getArgsForOpenBrowser(getOnlyUrl(urlStrings));
+    }
+
+    /**
+     * Returns the command line arguments for starting a new browser
+     * instance with several urls.
+     *
+     * @param urlStrings List of String objects
+     * @return String[]
+     */
+    public default String[] getArgsForStartingBrowser(List<String> urlStrings) {
+        return getArgsForStartingBrowser(getOnlyUrl(urlStrings));
+    }
+
+    /**
+     * Returns the command line arguments for forcing a new browser
+     * window with several urls.
+     *
+     * @param urlStrings List of String objects
+     * @return String[]
+     */
+    public default String[] getArgsForForcingNewBrowserWindow(
+            List<String> urlStrings) {
+        return getArgsForForcingNewBrowserWindow(getOnlyUrl(urlStrings));
+    }
+
+    /**
+     * Returns the most urls the browser's commands take at once. One
+     * means each url needs a command of its own, which is the default.
+     *
+     * @return int
+     */
+    public default int getMaxUrlsPerCommand() {
+        return 1;
+    }
+
+    /**
+     * Splits the urls into batches, each small enough to be passed to
+     * one of the browser's commands. By default each url gets a batch
+     * of its own.
+     *
+     * @param urlStrings List of String objects
+     * @param maxCommandBytes int most bytes the arguments may take
+     * @return List of Lists of String objects
+     */
+    public default List<List<String>> getUrlBatches(List<String> urlStrings,
+                                                    int maxCommandBytes) {
+        return UrlBatches.split(urlStrings, 1, 0, 0, maxCommandBytes);
+    }
+
+    /**
+     * Returns the url of a one url list, for the default multi url
+     * methods of browsers taking one url per command.
+     *
+     * @param urlStrings List of String objects
+     * @return String
+     */
+    private static String getOnlyUrl(List<String> urlStrings) {
+        if (urlStrings.size() != 1) {
+            throw new IllegalArgumentException(
+                    "browser takes one url per command.");
+        }
+        return urlStrings.get(0);
+    }
+
+    /**
+     * Returns the name the browser's process runs under, or null if it
+     * is not known, which is the default. The launched executable is
+     * often a wrapper (kfmclient for konqueror) or a script, so its
+     * name cannot be used to tell whether the browser is running.
+     *
+     * @return String may be null
+     */
+    public default String getBrowserProcessName() {
+        return null;
+    }
 
     /**
      * Returns true if the browser is available on the user's system..
@@ -22,15 +22,20 @@
 package edu.stanford.ejalbert.launching.misc;
 
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
@@ -38,6 +43,19 @@ import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
 import edu.stanford.ejalbert.launching.IBrowserEvent;
 import edu.stanford.ejalbert.launching.IBrowserEventCallBack;
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.BrowserCatalog;
+import edu.stanford.ejalbert.launching.utils.BrowserCircuitBreaker;
+import edu.stanford.ejalbert.launching.utils.BrowserConfigLoader;
+import edu.stanford.ejalbert.launching.utils.BrowserProcessRunner;
+import edu.stanford.ejalbert.launching.utils.BrowserRanking;
+import edu.stanford.ejalbert.launching.utils.DiscoveryCache;
+import edu.stanford.ejalbert.launching.utils.LaunchTimeouts;
+import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import edu.stanford.ejalbert.launching.utils.ParallelDiscovery;
+import edu.stanford.ejalbert.launching.utils.RunningBrowserDetector;
+import edu.stanford.ejalbert.launching.utils.UrlBatches;
+import edu.stanford.ejalbert.metrics.LaunchMetrics;
 import net.sf.wraplog.AbstractLogger;
 
 /**
@@ -55,10 +73,34 @@ public class UnixNetscapeBrowserLaunching
     public static final String CONFIGFILE_LINUX_UNIX =
             "/edu/stanford/ejalbert/launching/misc/linuxUnixConfig.properties";
     /**
-     * map of supported unix/linux browsers. The map contains
-     * displayName => StandardUnixBrowser mappings.
+     * creates the browsers shared by launchers using the same catalog
      */
-    private Map unixBrowsers = new TreeMap(String.CASE_INSENSITIVE_ORDER);
+    private static final BrowserCatalog.BrowserFactory BROWSER_FACTORY =
+            new BrowserCatalog.BrowserFactory() {
+        public Object createBrowser(String delimiter,
+                                    String config) {
+            return new StandardUnixBrowser(delimiter, config);
+        }
+    };
+    /**
+     * the available browsers; replaced as a whole when the config
+     * changes so a launch reading it once sees a consistent set
+     */
+    private volatile BrowserSnapshot snapshot = new BrowserSnapshot(
+            null,
+            0L,
+            Collections.<String, StandardUnixBrowser>emptyMap(),
+            null);
+    /**
+     * catalog with which no browser was available; not retried until
+     * the discovery results change
+     */
+    private volatile BrowserCatalog rejectedCatalog = null;
+    /**
+     * {@link DiscoveryCache#getChangeCount() discovery change count}
+     * when no browser was available with the rejected catalog
+     */
+    private volatile long rejectedChangeCount = 0L;
 
     protected final AbstractLogger logger; // in ctor
     /**
@@ -97,7 +139,7 @@ public class UnixNetscapeBrowserLaunching
      * @return StandardUnixBrowser
      */
     protected StandardUnixBrowser getBrowser(String key) {
-        return (StandardUnixBrowser) unixBrowsers.get(key);
+        return snapshot.browsers.get(key);
     }
 
     /**
@@ -112,70 +154,565 @@ public class UnixNetscapeBrowserLaunching
     protected boolean openUrlWithBrowser(UnixBrowser unixBrowser,
                                          String urlString)
             throws BrowserLaunchingExecutionException {
-        boolean success = false;
+        return openUrlWithBrowser(unixBrowser,
+                                  urlString,
+                                  new LaunchResult(
+                                          urlString,
+                                          LaunchTimeouts.getDefault()
+                                          .getLaunchTimeout()));
+    }
+
+    /**
+     * Attempts to open a url with the specified browser and waits
+     * for the outcome. Each command run is recorded in the passed
+     * launch result.
+     *
+     * @param unixBrowser UnixBrowser
+     * @param urlString String
+     * @param result LaunchResult
+     * @return boolean
+     * @throws BrowserLaunchingExecutionException
+     */
+    protected boolean openUrlWithBrowser(UnixBrowser unixBrowser,
+                                         String urlString,
+                                         LaunchResult result)
+            throws BrowserLaunchingExecutionException {
+        return LaunchingUtils.join(openUrlWithBrowserAsync(unixBrowser,
+                                                           urlString,
+                                                           result))
+                .booleanValue();
+    }
+
+    /**
+     * Attempts to open a url with the specified browser. The commands
+     * are run one after another, each once the previous one has
+     * exited without success: the command addressing an open browser
+     * (or, if a new window is forced, the command forcing a new
+     * window), then the command starting the browser. Each command
+     * run is recorded in the passed launch result. If the
+     * {@link RunningBrowserDetector detector} sees the browser's
+     * {@link UnixBrowser#getBrowserProcessName() process} is not
+     * running, the command addressing an open browser is skipped.
+     * While the browser's {@link BrowserCircuitBreaker circuit} is
+     * open no command is run and the future completes with false.
+     *
+     * @param unixBrowser UnixBrowser
+     * @param urlString String
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if a command succeeded
+     */
+    protected CompletableFuture<Boolean> openUrlWithBrowserAsync(
+            UnixBrowser unixBrowser,
+            String urlString,
+            LaunchResult result) {
+        return openUrlsWithBrowserAsync(unixBrowser,
+                                        Collections.singletonList(urlString),
+                                        Collections.singletonList(result));
+    }
+
+    /**
+     * Attempts to open several urls with one run of each of the
+     * specified browser's commands, as
+     * {@link #openUrlWithBrowserAsync(UnixBrowser,String,LaunchResult) openUrlWithBrowserAsync}
+     * does for one url. There must be no more urls than the browser's
+     * {@link UnixBrowser#getMaxUrlsPerCommand() getMaxUrlsPerCommand}.
+     * Each command run is recorded in every url's launch result.
+     *
+     * @param unixBrowser UnixBrowser
+     * @param urlStrings List of String objects
+     * @param results List of LaunchResults, one per url
+     * @return CompletableFuture completing with true if a command succeeded
+     */
+    protected CompletableFuture<Boolean> openUrlsWithBrowserAsync(
+            final UnixBrowser unixBrowser,
+            final List<String> urlStrings,
+            final List<LaunchResult> results) {
         logger.info(unixBrowser.getBrowserDisplayName());
-        logger.info(urlString);
-        try {
-            int attemptId = browserEventCallback.getOpenAttemptId();
-            int exitCode = -1;
-            Process process = null;
-            String[] args;
-            // try to open in a new tab/current instance
-            // skip this attempt if force new window is set to true
-            if (!forceNewWindow) {
-                args = unixBrowser.getArgsForOpenBrowser(urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(Arrays.asList(args).toString());
+        if (urlStrings.size() == 1) {
+            logger.info(urlStrings.get(0));
+        }
+        else {
+            logger.info(urlStrings.size() + " urls");
+        }
+        BrowserCircuitBreaker breaker = BrowserCircuitBreaker.getDefault();
+        if (!breaker.allowLaunch(unixBrowser.getBrowserDisplayName())) {
+            logger.info("circuit open, skipping " +
+                        unixBrowser.getBrowserDisplayName());
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        final int attemptId = browserEventCallback.getOpenAttemptId();
+        final RunningBrowserDetector detector =
+                RunningBrowserDetector.getDefault();
+        final String processName = unixBrowser.getBrowserProcessName();
+        Boolean running = detector == null || processName == null ? null :
+                          detector.isRunning(processName);
+        List<Supplier<CompletableFuture<Boolean>>> stages =
+                new ArrayList<Supplier<CompletableFuture<Boolean>>>();
+        // try to open in a new tab/current instance
+        // or, if force new window is set to true, force a new window
+        if (Boolean.FALSE.equals(running)) {
+            logger.debug("not running, starting " +
+                         unixBrowser.getBrowserDisplayName());
+        }
+        else if (!forceNewWindow) {
+            stages.add(new Supplier<CompletableFuture<Boolean>>() {
+                public CompletableFuture<Boolean> get() {
+                    return runBrowserCommand(
+                            unixBrowser,
+                            unixBrowser.getArgsForOpenBrowser(urlStrings),
+                            urlStrings,
+                            attemptId,
+                            LaunchResult.STAGE_OPEN,
+                            results);
+                }
+            });
+        }
+        else {
+            stages.add(new Supplier<CompletableFuture<Boolean>>() {
+                public CompletableFuture<Boolean> get() {
+                    return runBrowserCommand(
+                            unixBrowser,
+                            unixBrowser.getArgsForForcingNewBrowserWindow(
+                                    urlStrings),
+                            urlStrings,
+                            attemptId,
+                            LaunchResult.STAGE_FORCE_NEW_WINDOW,
+                            results);
                 }
-                process = Runtime.getRuntime().exec(args);
-                browserEventCallback.fireBrowserEvent(
-                        IBrowserEvent.ID_BROWSER_LAUNCHED,
+            });
+        }
+        // open in a new window
+        stages.add(new Supplier<CompletableFuture<Boolean>>() {
+            public CompletableFuture<Boolean> get() {
+                return runBrowserCommand(
+                        unixBrowser,
+                        unixBrowser.getArgsForStartingBrowser(urlStrings),
+                        urlStrings,
                         attemptId,
-                        process,
-                        unixBrowser.getBrowserApplicationName(),
-                        urlString);
-                exitCode = process.waitFor();
+                        LaunchResult.STAGE_START,
+                        results);
             }
-            // try call to force a new window if requested
-            if (forceNewWindow && exitCode != 0) {
-                args = unixBrowser.getArgsForForcingNewBrowserWindow(urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(Arrays.asList(args).toString());
+        });
+        CompletableFuture<Boolean> launched =
+                BrowserProcessRunner.tryInOrder(stages.iterator())
+                .thenApply(new Function<Boolean, Boolean>() {
+            public Boolean apply(Boolean success) {
+                if (success.booleanValue()) {
+                    for (int idx = 0; idx < results.size(); idx++) {
+                        results.get(idx).setSucceeded(
+                                unixBrowser.getBrowserDisplayName());
+                    }
+                    if (detector != null && processName != null) {
+                        detector.markRunning(processName);
+                    }
                 }
-                process = Runtime.getRuntime().exec(args);
-                browserEventCallback.fireBrowserEvent(
-                        IBrowserEvent.ID_BROWSER_LAUNCHED,
-                        attemptId,
-                        process,
-                        unixBrowser.getBrowserApplicationName(),
-                        urlString);
-                exitCode = process.waitFor();
+                return success;
             }
-            // open in a new window
-            if (exitCode != 0) {
-                args = unixBrowser.getArgsForStartingBrowser(urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(Arrays.asList(args).toString());
+        });
+        launched = breaker.track(launched, unixBrowser.getBrowserDisplayName());
+        if (BrowserRanking.isEnabled()) {
+            launched = BrowserRanking.getDefault(logger).track(
+                    launched,
+                    unixBrowser.getBrowserDisplayName(),
+                    logger);
+        }
+        return LaunchingUtils.wrapFailures(launched);
+    }
+
+    /**
+     * Runs one of the browser's commands, firing the browser launched
+     * event when it has started, and records the attempt when it has
+     * exited.
+     *
+     * @param unixBrowser UnixBrowser
+     * @param args String[]
+     * @param urlString String
+     * @param attemptId int
+     * @param stage int
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if the command exited
+     *         with 0 or was still running after the detach time
+     */
+    protected CompletableFuture<Boolean> runBrowserCommand(
+            UnixBrowser unixBrowser,
+            String[] args,
+            String urlString,
+            int attemptId,
+            int stage,
+            LaunchResult result) {
+        return runBrowserCommand(unixBrowser,
+                                 args,
+                                 Collections.singletonList(urlString),
+                                 attemptId,
+                                 stage,
+                                 Collections.singletonList(result));
+    }
+
+    /**
+     * Runs one of the browser's commands for several urls, firing the
+     * browser launched event for each url when it has started, and
+     * records the attempt in each url's launch result when it has
+     * exited.
+     *
+     * @param unixBrowser UnixBrowser
+     * @param args String[]
+     * @param urlStrings List of String objects
+     * @param attemptId int
+     * @param stage int
+     * @param results List of LaunchResults, one per url
+     * @return CompletableFuture completing with true if the command exited
+     *         with 0 or was still running after the detach time
+     */
+    protected CompletableFuture<Boolean> runBrowserCommand(
+            final UnixBrowser unixBrowser,
+            String[] args,
+            final List<String> urlStrings,
+            final int attemptId,
+            final int stage,
+            final List<LaunchResult> results) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(Arrays.asList(args).toString());
+        }
+        final long start = System.currentTimeMillis();
+        return BrowserProcessRunner.run(
+                args,
+                new BrowserProcessRunner.ProcessListener() {
+            public void processStarted(Process process) {
+                for (int idx = 0; idx < urlStrings.size(); idx++) {
+                    browserEventCallback.fireBrowserEvent(
+                            IBrowserEvent.ID_BROWSER_LAUNCHED,
+                            attemptId,
+                            process,
+                            unixBrowser.getBrowserApplicationName(),
+                            urlStrings.get(idx));
                 }
-                process = Runtime.getRuntime().exec(args);
-                browserEventCallback.fireBrowserEvent(
-                        IBrowserEvent.ID_BROWSER_LAUNCHED,
-                        attemptId,
-                        process,
-                        unixBrowser.getBrowserApplicationName(),
-                        urlString);
-                exitCode = process.waitFor();
             }
-            if (exitCode == 0) {
-                success = true;
+        },
+                results.get(0).getDeadline(),
+                logger,
+                // only the start command runs as the browser itself
+                stage == LaunchResult.STAGE_START)
+                .thenApply(new Function<Integer, Boolean>() {
+            public Boolean apply(Integer exitCode) {
+                for (int idx = 0; idx < results.size(); idx++) {
+                    results.get(idx).addAttempt(
+                            attemptId,
+                            unixBrowser.getBrowserDisplayName(),
+                            stage,
+                            exitCode.intValue(),
+                            start);
+                }
+                BrowserProcessRunner.checkNotTimedOut(exitCode.intValue());
+                return Boolean.valueOf(
+                        exitCode.intValue() == 0 ||
+                        exitCode.intValue() == LaunchResult.EXIT_DETACHED);
+            }
+        });
+    }
+
+    /**
+     * Returns attempts opening the url in each of the browsers, in
+     * order, for {@link BrowserProcessRunner#tryInOrder(Iterator) tryInOrder}.
+     *
+     * @param browsers List of UnixBrowser objects
+     * @param urlString String
+     * @param result LaunchResult
+     * @return Iterator
+     */
+    protected Iterator<Supplier<CompletableFuture<Boolean>>> getBrowserAttempts(
+            List<UnixBrowser> browsers,
+            final String urlString,
+            final LaunchResult result) {
+        List<Supplier<CompletableFuture<Boolean>>> attempts =
+                new ArrayList<Supplier<CompletableFuture<Boolean>>>();
+        Iterator<UnixBrowser> iter = browsers.iterator();
+        while (iter.hasNext()) {
+            final UnixBrowser browser = iter.next();
+            attempts.add(new Supplier<CompletableFuture<Boolean>>() {
+                public CompletableFuture<Boolean> get() {
+                    return openUrlWithBrowserAsync(browser,
+                                                   urlString,
+                                                   result);
+                }
+            });
+        }
+        return attempts.iterator();
+    }
+
+    /**
+     * Opens the url in one of the available browsers. This is the
+     * non-targetted launch all other launches fall back on.
+     * Subclasses with a system default browser override this method.
+     *
+     * @param urlString String
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if a browser opened the url
+     */
+    protected CompletableFuture<Boolean> openUrlInDefaultBrowserAsync(
+            String urlString,
+            LaunchResult result) {
+        logger.info(urlString);
+        // iterate over browsers until one works
+        return BrowserProcessRunner.tryInOrder(getBrowserAttempts(
+                getDefaultBrowserOrder(), urlString, result));
+    }
+
+    /**
+     * Returns the available browsers in the order the non-targetted
+     * launch tries them: the browser named by the
+     * {@link IBrowserLaunching#BROWSER_SYSTEM_PROPERTY system property},
+     * then running browsers, then the rest, each group ranked if
+     * ranking is on. Browsers are taken by display name unless the
+     * config sets a {@link BrowserConfigLoader#KEY_BROWSER_ORDER browser order}.
+     *
+     * @return List of UnixBrowser objects
+     */
+    protected List<UnixBrowser> getDefaultBrowserOrder() {
+        BrowserSnapshot current = snapshot;
+        // get list of browsers to try
+        List<UnixBrowser> unixBrowsersList = new ArrayList<UnixBrowser>(
+                current.configuredOrder != null ? current.configuredOrder :
+                current.browsers.values());
+        if (BrowserRanking.isEnabled()) {
+            // working browsers first
+            unixBrowsersList = BrowserRanking.getDefault(logger).sort(
+                    unixBrowsersList);
+        }
+        // running browsers first
+        unixBrowsersList = sortRunningFirst(unixBrowsersList);
+        // check system property which may contain user's preferred browser
+        String browserId = System.getProperty(
+                IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
+                null);
+        if (browserId != null) {
+            UnixBrowser unixBrowser = current.browsers.get(browserId);
+            if (unixBrowser != null) {
+                // if user has preferred browser, place at start of list
+                unixBrowsersList.add(0, unixBrowser);
+            }
+        }
+        return unixBrowsersList;
+    }
+
+    /**
+     * Returns the browsers with those the
+     * {@link RunningBrowserDetector detector} sees running first,
+     * otherwise keeping their order.
+     *
+     * @param browsers List of UnixBrowser objects
+     * @return List
+     */
+    protected List<UnixBrowser> sortRunningFirst(List<UnixBrowser> browsers) {
+        RunningBrowserDetector detector = RunningBrowserDetector.getDefault();
+        if (detector == null || !detector.isSupported()) {
+            return browsers;
+        }
+        List<UnixBrowser> running = new ArrayList<UnixBrowser>();
+        List<UnixBrowser> others = new ArrayList<UnixBrowser>();
+        Iterator<UnixBrowser> iter = browsers.iterator();
+        while (iter.hasNext()) {
+            UnixBrowser browser = iter.next();
+            String processName = browser.getBrowserProcessName();
+            if (processName != null &&
+                Boolean.TRUE.equals(detector.isRunning(processName))) {
+                running.add(browser);
+            }
+            else {
+                others.add(browser);
             }
         }
-        // Runtimes may throw InterruptedException
-        // want to catch every possible exception and wrap it
-        catch (Exception e) {
-            throw new BrowserLaunchingExecutionException(e);
+        if (logger.isDebugEnabled() && !running.isEmpty()) {
+            logger.debug("running browsers: " + running.size());
         }
-        return success;
+        running.addAll(others);
+        return running;
+    }
+
+    /**
+     * Tries the listed browsers in order until one of them succeeds.
+     * If the list is null or empty, or none of the browsers succeed,
+     * the url is opened in the default browser.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    protected CompletableFuture<LaunchResult> launchUrlAsync(
+            List browsers,
+            String urlString) {
+        refreshBrowsers();
+        return launchUrlAsync(
+                browsers,
+                urlString,
+                new LaunchResult(
+                        urlString,
+                        LaunchTimeouts.getDefault().getLaunchTimeout()));
+    }
+
+    /**
+     * Tries the listed browsers in order until one of them succeeds,
+     * recording the commands run in the passed launch result.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @param result LaunchResult
+     * @return CompletableFuture
+     */
+    protected CompletableFuture<LaunchResult> launchUrlAsync(
+            List browsers,
+            final String urlString,
+            final LaunchResult result) {
+        List<UnixBrowser> targets = getTargetBrowsers(browsers);
+        CompletableFuture<Boolean> launched = BrowserProcessRunner.tryInOrder(
+                getBrowserAttempts(targets, urlString, result))
+                .thenCompose(new Function<Boolean, CompletionStage<Boolean>>() {
+            public CompletionStage<Boolean> apply(Boolean success) {
+                if (success.booleanValue()) {
+                    return CompletableFuture.completedFuture(success);
+                }
+                logger.debug("falling through to non-targetted openUrl");
+                return openUrlInDefaultBrowserAsync(urlString, result);
+            }
+        });
+        return LaunchingUtils.wrapFailures(launched.thenApply(
+                new Function<Boolean, LaunchResult>() {
+            public LaunchResult apply(Boolean success) {
+                result.finish();
+                return result;
+            }
+        }));
+    }
+
+    /**
+     * Returns the available browsers among the named ones, in order.
+     *
+     * @param browsers List of browser names, may be null
+     * @return List of UnixBrowser objects
+     */
+    protected List<UnixBrowser> getTargetBrowsers(List<?> browsers) {
+        Map<String, StandardUnixBrowser> unixBrowsers = snapshot.browsers;
+        List<UnixBrowser> targets = new ArrayList<UnixBrowser>();
+        if (browsers != null) {
+            Iterator<?> iter = browsers.iterator();
+            while (iter.hasNext()) {
+                Object browserName = iter.next();
+                if (browserName == null ||
+                    IBrowserLaunching.BROWSER_DEFAULT.equals(browserName)) {
+                    continue;
+                }
+                UnixBrowser unixBrowser = unixBrowsers.get(browserName);
+                if (unixBrowser != null) {
+                    targets.add(unixBrowser);
+                }
+            }
+        }
+        return targets;
+    }
+
+    /**
+     * Opens several urls, passing as many as possible to each command.
+     * The urls go to the first browser a single url launch would try
+     * whose circuit is not open. If its commands take several urls,
+     * the urls are split into
+     * {@link UnixBrowser#getUrlBatches(List,int) batches} and each
+     * batch is opened with one run of the browser's commands. The urls
+     * of a batch that fails, and all urls if the browser takes one url
+     * per command, are launched one by one with the usual fail over.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @return CompletableFuture completing with one result per url
+     */
+    protected CompletableFuture<List<LaunchResult>> launchUrlsAsync(
+            final List browsers,
+            Collection<String> urlStrings) {
+        refreshBrowsers();
+        List<String> urls = new ArrayList<String>(urlStrings);
+        long timeout = LaunchTimeouts.getDefault().getLaunchTimeout();
+        List<LaunchResult> results = new ArrayList<LaunchResult>();
+        for (int idx = 0; idx < urls.size(); idx++) {
+            results.add(new LaunchResult(urls.get(idx), timeout));
+        }
+        List<CompletableFuture<LaunchResult>> launches =
+                new ArrayList<CompletableFuture<LaunchResult>>();
+        UnixBrowser batchBrowser = getBatchBrowser(browsers);
+        if (batchBrowser == null) {
+            for (int idx = 0; idx < urls.size(); idx++) {
+                launches.add(launchUrlAsync(browsers,
+                                            urls.get(idx),
+                                            results.get(idx)));
+            }
+            return UrlBatches.collect(launches, results);
+        }
+        List<List<String>> batches = batchBrowser.getUrlBatches(
+                urls,
+                UrlBatches.getMaxCommandBytes());
+        if (logger.isDebugEnabled()) {
+            logger.debug(urls.size() + " urls in " + batches.size() +
+                         " batches for " +
+                         batchBrowser.getBrowserDisplayName());
+        }
+        int first = 0;
+        for (int batchIdx = 0; batchIdx < batches.size(); batchIdx++) {
+            List<String> batch = batches.get(batchIdx);
+            final List<LaunchResult> batchResults =
+                    results.subList(first, first + batch.size());
+            first += batch.size();
+            if (batch.size() == 1) {
+                launches.add(launchUrlAsync(browsers,
+                                            batch.get(0),
+                                            batchResults.get(0)));
+                continue;
+            }
+            CompletableFuture<Boolean> launched = openUrlsWithBrowserAsync(
+                    batchBrowser,
+                    batch,
+                    batchResults);
+            for (int idx = 0; idx < batch.size(); idx++) {
+                final String urlString = batch.get(idx);
+                final LaunchResult result = batchResults.get(idx);
+                launches.add(launched.thenCompose(
+                        new Function<Boolean, CompletionStage<LaunchResult>>() {
+                    public CompletionStage<LaunchResult> apply(
+                            Boolean success) {
+                        if (success.booleanValue()) {
+                            result.finish();
+                            return CompletableFuture.completedFuture(result);
+                        }
+                        logger.debug("batch failed, launching " + urlString);
+                        return launchUrlAsync(browsers, urlString, result);
+                    }
+                }));
+            }
+        }
+        return UrlBatches.collect(launches, results);
+    }
+
+    /**
+     * Returns the browser a batch of urls is passed to: the first of
+     * the targetted browsers, or if there are none, of the
+     * {@link #getDefaultBrowserOrder() default order}, whose circuit
+     * is not open. Returns null if that browser's commands take one
+     * url each.
+     *
+     * @param browsers List may be null
+     * @return UnixBrowser may be null
+     */
+    protected UnixBrowser getBatchBrowser(List browsers) {
+        List<UnixBrowser> candidates = getTargetBrowsers(browsers);
+        if (candidates.isEmpty()) {
+            candidates = getDefaultBrowserOrder();
+        }
+        BrowserCircuitBreaker breaker = BrowserCircuitBreaker.getDefault();
+        Iterator<UnixBrowser> iter = candidates.iterator();
+        while (iter.hasNext()) {
+            UnixBrowser browser = iter.next();
+            if (breaker.getState(browser.getBrowserDisplayName()) !=
+                BrowserCircuitBreaker.STATE_OPEN) {
+                return browser.getMaxUrlsPerCommand() > 1 ? browser : null;
+            }
+        }
+        return null;
     }
 
     /* ---------------------- from IBrowserLaunching ----------------------- */
@@ -190,57 +727,234 @@ public class UnixNetscapeBrowserLaunching
     }
 
     /**
-     * Uses the which command to find out which browsers are available.
-     * The available browsers are put into the unixBrowsers map
+     * Probes concurrently for the executables of the browsers that
+     * have no result in the discovery snapshot yet and records the
+     * results. Probes that miss the deadline are not recorded so
+     * they are retried by the next launcher.
+     *
+     * @param browsers List of StandardUnixBrowser objects
+     * @param discovered DiscoveryCache.Snapshot
+     */
+    private void probeBrowsers(List<Object> browsers,
+                               DiscoveryCache.Snapshot discovered) {
+        List<String> exeNames = new ArrayList<String>();
+        List<Callable<String>> probes = new ArrayList<Callable<String>>();
+        Iterator<Object> iter = browsers.iterator();
+        while (iter.hasNext()) {
+            final StandardUnixBrowser browser = (StandardUnixBrowser) iter.next();
+            String exeName = browser.getBrowserApplicationName();
+            if (discovered.contains(exeName)) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("cached discovery result for " + exeName +
+                                 ": " + discovered.getExecutablePath(exeName));
+                }
+            }
+            else if (!exeNames.contains(exeName)) {
+                exeNames.add(exeName);
+                probes.add(new Callable<String>() {
+                    public String call() {
+                        return browser.findBrowserExecutable(logger);
+                    }
+                });
+            }
+        }
+        List<ParallelDiscovery.ProbeResult> results =
+                ParallelDiscovery.probeAll(exeNames,
+                                           probes,
+                                           ParallelDiscovery.getProbeTimeout(),
+                                           logger);
+        for (int idx = 0; idx < results.size(); idx++) {
+            ParallelDiscovery.ProbeResult result = results.get(idx);
+            if (!result.isTimedOut()) {
+                discovered.put(result.getName(), result.getValue());
+            }
+        }
+    }
+
+    /**
+     * Searches the PATH to find out which browsers are available.
+     * The available browsers are put into the browser snapshot
      * using displayName => StandardUnixBrowser mappings.
+     * <p>
+     * The browsers are taken from the shared
+     * {@link BrowserConfigLoader browser catalog}, which merges the
+     * config file with the system, user and programmatic overrides.
+     * <p>
+     * Results are taken from the
+     * {@link edu.stanford.ejalbert.launching.utils.DiscoveryCache DiscoveryCache}
+     * when possible so the PATH is only searched for executables
+     * that have not been probed since the PATH last changed.
      *
      * @todo what do we do if there are no browsers available?
      * @throws BrowserLaunchingInitializingException
      */
     public void initialize()
             throws BrowserLaunchingInitializingException {
+        LaunchMetrics metrics = LaunchMetrics.getDefault();
+        long phaseStart = System.currentTimeMillis();
         try {
-            URL configUrl = getClass().getResource(configFileName);
-            if (configUrl == null) {
-                throw new BrowserLaunchingInitializingException(
-                        "unable to find config file: " + configFileName);
+            // the browsers in config order, shared with other launchers
+            BrowserCatalog catalog = BrowserConfigLoader.getCatalog(
+                    configFileName,
+                    logger);
+            metrics.recordInitPhase("unix.config",
+                                    System.currentTimeMillis() - phaseStart);
+            snapshot = buildSnapshot(catalog, metrics);
+        }
+        catch (IOException ioex) {
+            throw new BrowserLaunchingInitializingException(ioex);
+        }
+    }
+
+    /**
+     * Finds the available browsers among the catalog's browsers.
+     *
+     * @param catalog BrowserCatalog
+     * @param metrics LaunchMetrics to record the phases in, or null
+     * @return BrowserSnapshot
+     * @throws BrowserLaunchingInitializingException if none of the
+     *         browsers is available
+     */
+    private BrowserSnapshot buildSnapshot(BrowserCatalog catalog,
+                                          LaunchMetrics metrics)
+            throws BrowserLaunchingInitializingException {
+        long phaseStart = System.currentTimeMillis();
+        StringBuffer potentialBrowserNames = new StringBuffer();
+        List<Object> browsers = catalog.getBrowsers(BROWSER_FACTORY);
+        // read before the results so no later change is missed
+        long changeCount = DiscoveryCache.getChangeCount();
+        // results shared with other launchers using the same PATH
+        DiscoveryCache.Snapshot discovered =
+                DiscoveryCache.getSnapshot(logger);
+        long now = System.currentTimeMillis();
+        if (metrics != null) {
+            metrics.recordInitPhase("unix.cache", now - phaseStart);
+        }
+        phaseStart = now;
+        probeBrowsers(browsers, discovered);
+        now = System.currentTimeMillis();
+        if (metrics != null) {
+            metrics.recordInitPhase("unix.discovery", now - phaseStart);
+        }
+        phaseStart = now;
+        // the first available browser listed wins a display name
+        Map<String, StandardUnixBrowser> unixBrowsers =
+                new TreeMap<String, StandardUnixBrowser>(
+                        String.CASE_INSENSITIVE_ORDER);
+        Iterator<Object> browserIter = browsers.iterator();
+        while (browserIter.hasNext()) {
+            StandardUnixBrowser browser =
+                    (StandardUnixBrowser) browserIter.next();
+            String exeName = browser.getBrowserApplicationName();
+            if (discovered.getExecutablePath(exeName) != null) {
+                if (!unixBrowsers.containsKey(
+                        browser.getBrowserDisplayName())) {
+                    unixBrowsers.put(browser.getBrowserDisplayName(),
+                                     browser);
+                }
             }
-            StringBuffer potentialBrowserNames = new StringBuffer();
-            Properties configProps = new Properties();
-            configProps.load(configUrl.openStream());
-            String sepChar = configProps.getProperty(PROP_KEY_DELIMITER);
-            Iterator keysIter = configProps.keySet().iterator();
-            while (keysIter.hasNext()) {
-                String key = (String) keysIter.next();
-                if (key.startsWith(PROP_KEY_BROWSER_PREFIX)) {
-                    StandardUnixBrowser browser = new StandardUnixBrowser(
-                            sepChar,
-                            configProps.getProperty(key));
-                    if (browser.isBrowserAvailable(logger)) {
-                        unixBrowsers.put(browser.getBrowserDisplayName(),
-                                         browser);
-                    }
-                    else {
-                        if (potentialBrowserNames.length() > 0) {
-                            potentialBrowserNames.append("; ");
-                        }
-                        potentialBrowserNames.append(
-                                browser.getBrowserDisplayName());
-                    }
+            else {
+                if (potentialBrowserNames.length() > 0) {
+                    potentialBrowserNames.append("; ");
                 }
+                potentialBrowserNames.append(
+                        browser.getBrowserDisplayName());
             }
-            if (unixBrowsers.size() == 0) {
-                // no browser installed
-                throw new BrowserLaunchingInitializingException(
-                        "one of the supported browsers must be installed: "
-                        + potentialBrowserNames);
+        }
+        if (unixBrowsers.size() == 0) {
+            // no browser installed
+            throw new BrowserLaunchingInitializingException(
+                    "one of the supported browsers must be installed: "
+                    + potentialBrowserNames);
+        }
+        discovered.save(logger);
+        logger.info(unixBrowsers.keySet().toString());
+        List<StandardUnixBrowser> configuredOrder = null;
+        if (catalog.getProperty(BrowserConfigLoader.KEY_BROWSER_ORDER)
+            != null) {
+            configuredOrder = new ArrayList<StandardUnixBrowser>();
+            browserIter = browsers.iterator();
+            while (browserIter.hasNext()) {
+                StandardUnixBrowser browser =
+                        (StandardUnixBrowser) browserIter.next();
+                if (unixBrowsers.containsValue(browser)) {
+                    configuredOrder.add(browser);
+                }
             }
-            logger.info(unixBrowsers.keySet().toString());
-            unixBrowsers = Collections.unmodifiableMap(unixBrowsers);
         }
-        catch (IOException ioex) {
-            throw new BrowserLaunchingInitializingException(ioex);
+        if (metrics != null) {
+            metrics.recordInitPhase("unix.register",
+                                    System.currentTimeMillis() - phaseStart);
         }
+        return new BrowserSnapshot(catalog,
+                                   changeCount,
+                                   unixBrowsers,
+                                   configuredOrder);
+    }
+
+    /**
+     * Finds the available browsers again if the config has changed,
+     * or browsers were installed or removed according to the
+     * {@link edu.stanford.ejalbert.launching.utils.DiscoveryWatcher
+     * DiscoveryWatcher}, since the browsers were found. Browsers whose
+     * config entries did not change are kept, and only executables
+     * missing from the discovery cache are searched for. Launches
+     * already started keep the browsers they have. If no browser is
+     * available any more, the current browsers are kept.
+     */
+    protected void refreshBrowsers() {
+        BrowserSnapshot current = snapshot;
+        if (current.catalog == null) {
+            // not initialized
+            return;
+        }
+        BrowserCatalog catalog;
+        try {
+            catalog = BrowserConfigLoader.getCatalog(configFileName, logger);
+        }
+        catch (IOException ex) {
+            logger.error("unable to load browser config", ex);
+            return;
+        }
+        long changeCount = DiscoveryCache.getChangeCount();
+        if (isCurrent(current, catalog, changeCount) ||
+            (catalog == rejectedCatalog &&
+             changeCount == rejectedChangeCount)) {
+            return;
+        }
+        synchronized (this) {
+            if (isCurrent(snapshot, catalog, changeCount)) {
+                return;
+            }
+            try {
+                snapshot = buildSnapshot(catalog, null);
+                logger.info("available browsers found again with " + catalog);
+            }
+            catch (BrowserLaunchingInitializingException ex) {
+                rejectedCatalog = catalog;
+                rejectedChangeCount = changeCount;
+                logger.error("keeping browsers of " + current.catalog, ex);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the snapshot was built from the catalog, or a
+     * newer one, and the discovery results as of the change count.
+     *
+     * @param current BrowserSnapshot
+     * @param catalog BrowserCatalog
+     * @param changeCount long
+     * @return boolean
+     */
+    private static boolean isCurrent(BrowserSnapshot current,
+                                     BrowserCatalog catalog,
+                                     long changeCount) {
+        if (current.catalog.getVersion() > catalog.getVersion()) {
+            return true;
+        }
+        return current.catalog.getVersion() == catalog.getVersion() &&
+                current.changeCount >= changeCount;
     }
 
     /**
@@ -253,36 +967,7 @@ public class UnixNetscapeBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        try {
-            logger.info(urlString);
-            boolean success = false;
-            // get list of browsers to try
-            List unixBrowsersList = new ArrayList(unixBrowsers.values());
-            // check system property which may contain user's preferred browser
-            String browserId = System.getProperty(
-                    IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
-                    null);
-            if (browserId != null) {
-                UnixBrowser unixBrowser =
-                        (UnixBrowser) unixBrowsers.get(browserId);
-                if (unixBrowser != null) {
-                    // if user has preferred browser, place at start of list
-                    unixBrowsersList.add(0, unixBrowser);
-                }
-            }
-            // iterate over browsers until one works
-            Iterator iter = unixBrowsersList.iterator();
-            UnixBrowser browser;
-            Process process;
-            while (iter.hasNext() && !success) {
-                browser = (UnixBrowser) iter.next();
-                success = openUrlWithBrowser(browser,
-                                             urlString);
-            }
-        }
-        catch (Exception e) {
-            throw new BrowserLaunchingExecutionException(e);
-        }
+        LaunchingUtils.join(launchUrlAsync(null, urlString));
     }
 
     /**
@@ -301,21 +986,9 @@ public class UnixNetscapeBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        UnixBrowser unixBrowser = (UnixBrowser) unixBrowsers.get(browser);
-        if (unixBrowser == null ||
-            IBrowserLaunching.BROWSER_DEFAULT.equals(browser)) {
-            logger.debug("falling through to non-targetted openUrl");
-            openUrl(urlString);
-        }
-        else {
-            boolean success = openUrlWithBrowser(unixBrowser,
-                                                 urlString);
-            if (!success) {
-                logger.debug(
-                        "open browser failure, trying non-targetted openUrl");
-                openUrl(urlString);
-            }
-        }
+        LaunchingUtils.join(launchUrlAsync(
+                browser == null ? null : Collections.singletonList(browser),
+                urlString));
     }
 
     /**
@@ -339,27 +1012,51 @@ public class UnixNetscapeBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        if (browsers == null || browsers.isEmpty()) {
-            logger.debug("falling through to non-targetted openUrl");
-            openUrl(urlString);
-        }
-        else {
-            boolean success = false;
-            Iterator iter = browsers.iterator();
-            while (iter.hasNext() && !success) {
-                UnixBrowser unixBrowser = (UnixBrowser) unixBrowsers.get(
-                        iter.next());
-                if (unixBrowser != null) {
-                    success = openUrlWithBrowser(unixBrowser,
-                                                 urlString);
-                }
+        LaunchingUtils.join(launchUrlAsync(browsers, urlString));
+    }
+
+    /**
+     * Starts the launch on the executor. The browsers from the list
+     * are tried in order before failing over to the default browser.
+     * The executor thread is only used to start the first command;
+     * the rest of the launch is driven by the commands exiting.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openUrlAsync(final List browsers,
+                                                        final String urlString,
+                                                        Executor executor) {
+        return LaunchingUtils.composeAsync(
+                new Callable<CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> call() {
+                return launchUrlAsync(browsers, urlString);
             }
-            if (!success) {
-                logger.debug(
-                        "none of listed browsers succeeded; falling through to non-targetted openUrl");
-                openUrl(urlString);
+        }, executor);
+    }
+
+    /**
+     * Starts the launch of several urls on the executor. Browsers
+     * that take several urls per command are started once per batch
+     * of urls rather than once per url.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @param executor Executor
+     * @return CompletableFuture completing with one result per url
+     */
+    public CompletableFuture<List<LaunchResult>> openUrlsAsync(
+            final List browsers,
+            final Collection<String> urlStrings,
+            Executor executor) {
+        return LaunchingUtils.composeAsync(
+                new Callable<CompletableFuture<List<LaunchResult>>>() {
+            public CompletableFuture<List<LaunchResult>> call() {
+                return launchUrlsAsync(browsers, urlStrings);
             }
-        }
+        }, executor);
     }
 
     /**
@@ -370,7 +1067,9 @@ public class UnixNetscapeBrowserLaunching
      * @return List
      */
     public List getBrowserList() {
-        List browsers = new ArrayList();
+        refreshBrowsers();
+        Map<String, StandardUnixBrowser> unixBrowsers = snapshot.browsers;
+        List<String> browsers = new ArrayList<String>();
         // add Default if not present
         if (!unixBrowsers.containsKey(IBrowserLaunching.BROWSER_DEFAULT)) {
             browsers.add(IBrowserLaunching.BROWSER_DEFAULT);
@@ -406,4 +1105,41 @@ public class UnixNetscapeBrowserLaunching
     public void setNewWindowPolicy(boolean forceNewWindow) {
         this.forceNewWindow = forceNewWindow;
     }
+
+    /**
+     * The browsers available with one catalog.
+     */
+    private static final class BrowserSnapshot {
+        /**
+         * catalog the browsers come from; null before initialize
+         */
+        private final BrowserCatalog catalog; // in ctor
+        /**
+         * {@link DiscoveryCache#getChangeCount() discovery change count}
+         * before the browsers were found
+         */
+        private final long changeCount; // in ctor
+        /**
+         * displayName => StandardUnixBrowser
+         */
+        private final Map<String, StandardUnixBrowser> browsers; // in ctor
+        /**
+         * available browsers in the order given by the config's
+         * {@link BrowserConfigLoader#KEY_BROWSER_ORDER browser order},
+         * or null to try them by display name
+         */
+        private final List<StandardUnixBrowser> configuredOrder; // in ctor
+
+        BrowserSnapshot(BrowserCatalog catalog,
+                        long changeCount,
+                        Map<String, StandardUnixBrowser> browsers,
+                        List<StandardUnixBrowser> configuredOrder) {
+            this.catalog = catalog;
+            this.changeCount = changeCount;
+            this.browsers = Collections.unmodifiableMap(browsers);
+            this.configuredOrder = configuredOrder == null ? null :
+                                   Collections.unmodifiableList(
+                                           configuredOrder);
+        }
+    }
 }
@@ -21,7 +21,8 @@
 // $Id: SoyLatteBrowserImpl.java,v 1.1 2007/12/21 17:13:35 jchapman0 Exp $
 package edu.stanford.ejalbert.launching.soylatte;
 
-import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import edu.stanford.ejalbert.launching.utils.ExecutableResolver;
+import edu.stanford.ejalbert.launching.utils.CommandTemplate;
 import net.sf.wraplog.AbstractLogger;
 
 /**
@@ -47,6 +48,12 @@ class SoyLatteBrowserImpl
     private final String argsForStartBrowser; // in ctor
 
     private final String argsForForcedBrowserWindow; // in ctor
+    /**
+     * the argument templates compiled in the ctor
+     */
+    private final CommandTemplate openBrowserCommand; // in ctor
+    private final CommandTemplate startBrowserCommand; // in ctor
+    private final CommandTemplate forcedBrowserWindowCommand; // in ctor
 
     /**
      * Splits the config string using the configSep character.
@@ -71,6 +78,13 @@ class SoyLatteBrowserImpl
         else {
             this.argsForForcedBrowserWindow = configItems[2];
         }
+        this.startBrowserCommand = CommandTemplate.compile(
+                argsForStartBrowser);
+        this.openBrowserCommand = argsForOpenBrowser.length() > 0 ?
+                                  CommandTemplate.compile(argsForOpenBrowser) :
+                                  startBrowserCommand;
+        this.forcedBrowserWindowCommand = CommandTemplate.compile(
+                argsForForcedBrowserWindow);
     }
 
     /**
@@ -91,23 +105,6 @@ class SoyLatteBrowserImpl
         return buf.toString();
     }
 
-    /**
-     * Replaces the placeholders <browser> and <url> in the
-     * argsString and splits the resulting string around
-     * space characters.
-     *
-     * @param argsString String
-     * @param urlString String
-     * @return String[]
-     */
-    private String[] getCommandLineArgs(String argsString,
-                                        String urlString) {
-        argsString = LaunchingUtils.replaceArgs(argsString,
-                                                browserArgName,
-                                                urlString);
-        return argsString.split("[ ]");
-    }
-
     /* --------------------- from BrowserDescription --------------------- */
 
     /**
@@ -138,10 +135,7 @@ class SoyLatteBrowserImpl
      * @return String[]
      */
     public String[] getArgsForOpenBrowser(String urlString) {
-        String argsStartString = argsForOpenBrowser != null &&
-                                 argsForOpenBrowser.length() > 0 ?
-                                 argsForOpenBrowser : argsForStartBrowser;
-        return getCommandLineArgs(argsStartString, urlString);
+        return openBrowserCommand.fill(browserArgName, urlString);
     }
 
     /**
@@ -152,25 +146,20 @@ class SoyLatteBrowserImpl
      * @return String[]
      */
     public String[] getArgsForStartingBrowser(String urlString) {
-        return getCommandLineArgs(argsForStartBrowser, urlString);
+        return startBrowserCommand.fill(browserArgName, urlString);
     }
 
     public String[] getArgsForForcingNewBrowserWindow(String urlString) {
-        return getCommandLineArgs(argsForForcedBrowserWindow, urlString);
+        return forcedBrowserWindowCommand.fill(browserArgName, urlString);
     }
 
     /**
-     * Returns true if the browser is available.
+     * Returns true if the browser's executable can be found.
      *
      * @param logger AbstractLogger
      * @return boolean
      */
     public boolean isBrowserAvailable(AbstractLogger logger) {
-        // setting this to true
-        // we should develop a method to determine browser
-        // availability for SoyLatte
-        boolean isAvailable = true;
-
-        return isAvailable;
+        return ExecutableResolver.resolve(browserArgName, logger) != null;
     }
 }
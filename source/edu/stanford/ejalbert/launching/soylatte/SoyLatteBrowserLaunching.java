@@ -22,20 +22,35 @@
 package edu.stanford.ejalbert.launching.soylatte;
 
 import java.io.IOException;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
 import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.BrowserCatalog;
+import edu.stanford.ejalbert.launching.utils.BrowserCircuitBreaker;
+import edu.stanford.ejalbert.launching.utils.BrowserConfigLoader;
+import edu.stanford.ejalbert.launching.utils.BrowserProcessRunner;
+import edu.stanford.ejalbert.launching.utils.BrowserRanking;
+import edu.stanford.ejalbert.launching.utils.LaunchTimeouts;
+import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import edu.stanford.ejalbert.launching.utils.ParallelDiscovery;
+import edu.stanford.ejalbert.launching.utils.UrlBatches;
 import net.sf.wraplog.AbstractLogger;
 import edu.stanford.ejalbert.launching.IBrowserEventCallBack;
 
@@ -47,6 +62,16 @@ public class SoyLatteBrowserLaunching
      */
     public static final String CONFIGFILE_SOYLATTE =
             "/edu/stanford/ejalbert/launching/soylatte/soylatteConfig.properties";
+    /**
+     * creates the browsers shared by launchers using the same catalog
+     */
+    private static final BrowserCatalog.BrowserFactory BROWSER_FACTORY =
+            new BrowserCatalog.BrowserFactory() {
+        public Object createBrowser(String delimiter,
+                                    String config) {
+            return new SoyLatteBrowserImpl(delimiter, config);
+        }
+    };
     /**
      * map of supported browsers. The map contains
      * displayName => SoyLatteBrowser mappings.
@@ -97,51 +122,277 @@ public class SoyLatteBrowserLaunching
     protected boolean openUrlWithBrowser(SoyLatteBrowser slBrowser,
                                          String urlString)
             throws BrowserLaunchingExecutionException {
-        boolean success = false;
+        return openUrlWithBrowser(slBrowser,
+                                  urlString,
+                                  new LaunchResult(
+                                          urlString,
+                                          LaunchTimeouts.getDefault()
+                                          .getLaunchTimeout()));
+    }
+
+    /**
+     * Attempts to open a url with the specified browser and waits
+     * for the outcome. Each command run is recorded in the passed
+     * launch result.
+     *
+     * @param slBrowser SoyLatteBrowser
+     * @param urlString String
+     * @param result LaunchResult
+     * @return boolean
+     * @throws BrowserLaunchingExecutionException
+     */
+    protected boolean openUrlWithBrowser(SoyLatteBrowser slBrowser,
+                                         String urlString,
+                                         LaunchResult result)
+            throws BrowserLaunchingExecutionException {
+        return LaunchingUtils.join(openUrlWithBrowserAsync(slBrowser,
+                                                           urlString,
+                                                           result))
+                .booleanValue();
+    }
+
+    /**
+     * Attempts to open a url with the specified browser. The command
+     * addressing an open browser (or, if a new window is forced, the
+     * command forcing a new window) is run first; if it exits without
+     * success, the command starting the browser is run. Each command
+     * run is recorded in the passed launch result. While the
+     * browser's {@link BrowserCircuitBreaker circuit} is open no
+     * command is run and the future completes with false.
+     *
+     * @param slBrowser SoyLatteBrowser
+     * @param urlString String
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if a command succeeded
+     */
+    protected CompletableFuture<Boolean> openUrlWithBrowserAsync(
+            final SoyLatteBrowser slBrowser,
+            final String urlString,
+            final LaunchResult result) {
         logger.info(slBrowser.getBrowserDisplayName());
         logger.info(urlString);
-        try {
-            int exitCode = -1;
-            Process process = null;
-            String[] args;
-            // try to open in a new tab/current instance
-            // skip this attempt if force new window is set to true
-            if (!forceNewWindow) {
-                args = slBrowser.getArgsForOpenBrowser(urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(Arrays.asList(args).toString());
+        BrowserCircuitBreaker breaker = BrowserCircuitBreaker.getDefault();
+        if (!breaker.allowLaunch(slBrowser.getBrowserDisplayName())) {
+            logger.info("circuit open, skipping " +
+                        slBrowser.getBrowserDisplayName());
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        List<Supplier<CompletableFuture<Boolean>>> stages =
+                new ArrayList<Supplier<CompletableFuture<Boolean>>>();
+        // try to open in a new tab/current instance
+        // or, if force new window is set to true, force a new window
+        if (!forceNewWindow) {
+            stages.add(new Supplier<CompletableFuture<Boolean>>() {
+                public CompletableFuture<Boolean> get() {
+                    return runBrowserCommand(
+                            slBrowser,
+                            slBrowser.getArgsForOpenBrowser(urlString),
+                            LaunchResult.STAGE_OPEN,
+                            result);
                 }
-                process = Runtime.getRuntime().exec(args);
-                exitCode = process.waitFor();
-            }
-            // try call to force a new window if requested
-            if (forceNewWindow && exitCode != 0) {
-                args = slBrowser.getArgsForForcingNewBrowserWindow(urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(Arrays.asList(args).toString());
+            });
+        }
+        else {
+            stages.add(new Supplier<CompletableFuture<Boolean>>() {
+                public CompletableFuture<Boolean> get() {
+                    return runBrowserCommand(
+                            slBrowser,
+                            slBrowser.getArgsForForcingNewBrowserWindow(
+                                    urlString),
+                            LaunchResult.STAGE_FORCE_NEW_WINDOW,
+                            result);
                 }
-                process = Runtime.getRuntime().exec(args);
-                exitCode = process.waitFor();
+            });
+        }
+        // open in a new window
+        stages.add(new Supplier<CompletableFuture<Boolean>>() {
+            public CompletableFuture<Boolean> get() {
+                return runBrowserCommand(
+                        slBrowser,
+                        slBrowser.getArgsForStartingBrowser(urlString),
+                        LaunchResult.STAGE_START,
+                        result);
             }
-            // open in a new window
-            if (exitCode != 0) {
-                args = slBrowser.getArgsForStartingBrowser(urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(Arrays.asList(args).toString());
+        });
+        CompletableFuture<Boolean> launched =
+                BrowserProcessRunner.tryInOrder(stages.iterator())
+                .thenApply(new Function<Boolean, Boolean>() {
+            public Boolean apply(Boolean success) {
+                if (success.booleanValue()) {
+                    result.setSucceeded(slBrowser.getBrowserDisplayName());
                 }
-                process = Runtime.getRuntime().exec(args);
-                exitCode = process.waitFor();
+                return success;
             }
-            if (exitCode == 0) {
-                success = true;
+        });
+        launched = breaker.track(launched, slBrowser.getBrowserDisplayName());
+        if (BrowserRanking.isEnabled()) {
+            launched = BrowserRanking.getDefault(logger).track(
+                    launched,
+                    slBrowser.getBrowserDisplayName(),
+                    logger);
+        }
+        return LaunchingUtils.wrapFailures(launched);
+    }
+
+    /**
+     * Runs one of the browser's commands and records the attempt
+     * when it has exited.
+     *
+     * @param slBrowser SoyLatteBrowser
+     * @param args String[]
+     * @param stage int
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if the command exited
+     *         with 0 or was still running after the detach time
+     */
+    private CompletableFuture<Boolean> runBrowserCommand(
+            final SoyLatteBrowser slBrowser,
+            String[] args,
+            final int stage,
+            final LaunchResult result) {
+        if (logger.isDebugEnabled()) {
+            logger.debug(Arrays.asList(args).toString());
+        }
+        final long start = System.currentTimeMillis();
+        // only the start command runs as the browser itself
+        return BrowserProcessRunner.run(args,
+                                        null,
+                                        result.getDeadline(),
+                                        logger,
+                                        stage == LaunchResult.STAGE_START)
+                .thenApply(new Function<Integer, Boolean>() {
+            public Boolean apply(Integer exitCode) {
+                result.addAttempt(-1,
+                                  slBrowser.getBrowserDisplayName(),
+                                  stage,
+                                  exitCode.intValue(),
+                                  start);
+                BrowserProcessRunner.checkNotTimedOut(exitCode.intValue());
+                return Boolean.valueOf(
+                        exitCode.intValue() == 0 ||
+                        exitCode.intValue() == LaunchResult.EXIT_DETACHED);
             }
+        });
+    }
+
+    /**
+     * Returns attempts opening the url in each of the browsers, in
+     * order, for {@link BrowserProcessRunner#tryInOrder(Iterator) tryInOrder}.
+     *
+     * @param browsers List of SoyLatteBrowser objects
+     * @param urlString String
+     * @param result LaunchResult
+     * @return Iterator
+     */
+    private Iterator<Supplier<CompletableFuture<Boolean>>> getBrowserAttempts(
+            List<SoyLatteBrowser> browsers,
+            final String urlString,
+            final LaunchResult result) {
+        List<Supplier<CompletableFuture<Boolean>>> attempts =
+                new ArrayList<Supplier<CompletableFuture<Boolean>>>();
+        Iterator<SoyLatteBrowser> iter = browsers.iterator();
+        while (iter.hasNext()) {
+            final SoyLatteBrowser browser = iter.next();
+            attempts.add(new Supplier<CompletableFuture<Boolean>>() {
+                public CompletableFuture<Boolean> get() {
+                    return openUrlWithBrowserAsync(browser,
+                                                   urlString,
+                                                   result);
+                }
+            });
+        }
+        return attempts.iterator();
+    }
+
+    /**
+     * Opens the url in one of the available browsers. This is the
+     * non-targetted launch all other launches fall back on.
+     *
+     * @param urlString String
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if a browser opened the url
+     */
+    protected CompletableFuture<Boolean> openUrlInDefaultBrowserAsync(
+            String urlString,
+            LaunchResult result) {
+        logger.info(urlString);
+        // get list of browsers to try
+        List<SoyLatteBrowser> slBrowsersList = new ArrayList<SoyLatteBrowser>();
+        Iterator<?> iter = soylatteBrowsers.values().iterator();
+        while (iter.hasNext()) {
+            slBrowsersList.add((SoyLatteBrowser) iter.next());
         }
-        // Runtimes may throw InterruptedException
-        // want to catch every possible exception and wrap it
-        catch (Exception e) {
-            throw new BrowserLaunchingExecutionException(e);
+        if (BrowserRanking.isEnabled()) {
+            // working browsers first
+            slBrowsersList = BrowserRanking.getDefault(logger).sort(
+                    slBrowsersList);
         }
-        return success;
+        // check system property which may contain user's preferred browser
+        String browserId = System.getProperty(
+                IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
+                null);
+        if (browserId != null) {
+            SoyLatteBrowser slBrowser =
+                    (SoyLatteBrowser) soylatteBrowsers.get(browserId);
+            if (slBrowser != null) {
+                // if user has preferred browser, place at start of list
+                slBrowsersList.add(0, slBrowser);
+            }
+        }
+        // iterate over browsers until one works
+        return BrowserProcessRunner.tryInOrder(
+                getBrowserAttempts(slBrowsersList, urlString, result));
+    }
+
+    /**
+     * Tries the listed browsers in order until one of them succeeds.
+     * If the list is null or empty, or none of the browsers succeed,
+     * the url is opened in the default browser.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    protected CompletableFuture<LaunchResult> launchUrlAsync(
+            List browsers,
+            final String urlString) {
+        final LaunchResult result = new LaunchResult(
+                urlString,
+                LaunchTimeouts.getDefault().getLaunchTimeout());
+        List<SoyLatteBrowser> targets = new ArrayList<SoyLatteBrowser>();
+        if (browsers != null) {
+            Iterator<?> iter = browsers.iterator();
+            while (iter.hasNext()) {
+                Object browserName = iter.next();
+                if (browserName == null ||
+                    IBrowserLaunching.BROWSER_DEFAULT.equals(browserName)) {
+                    continue;
+                }
+                SoyLatteBrowser slBrowser =
+                        (SoyLatteBrowser) soylatteBrowsers.get(browserName);
+                if (slBrowser != null) {
+                    targets.add(slBrowser);
+                }
+            }
+        }
+        CompletableFuture<Boolean> launched = BrowserProcessRunner.tryInOrder(
+                getBrowserAttempts(targets, urlString, result))
+                .thenCompose(new Function<Boolean, CompletionStage<Boolean>>() {
+            public CompletionStage<Boolean> apply(Boolean success) {
+                if (success.booleanValue()) {
+                    return CompletableFuture.completedFuture(success);
+                }
+                logger.debug("falling through to non-targetted openUrl");
+                return openUrlInDefaultBrowserAsync(urlString, result);
+            }
+        });
+        return LaunchingUtils.wrapFailures(launched.thenApply(
+                new Function<Boolean, LaunchResult>() {
+            public LaunchResult apply(Boolean success) {
+                result.finish();
+                return result;
+            }
+        }));
     }
 
     /* ---------------------- from IBrowserLaunching ----------------------- */
@@ -156,7 +407,8 @@ public class SoyLatteBrowserLaunching
     }
 
     /**
-     * Uses the which command to find out which browsers are available.
+     * Checks the configured executables to find out which browsers
+     * are available.
      * The available browsers are put into the slBrowsers map
      * using displayName => SoyLatteBrowser mappings.
      *
@@ -166,33 +418,49 @@ public class SoyLatteBrowserLaunching
     public void initialize()
             throws BrowserLaunchingInitializingException {
         try {
-            URL configUrl = getClass().getResource(configFileName);
-            if (configUrl == null) {
-                throw new BrowserLaunchingInitializingException(
-                        "unable to find config file: " + configFileName);
-            }
             StringBuffer potentialBrowserNames = new StringBuffer();
-            Properties configProps = new Properties();
-            configProps.load(configUrl.openStream());
-            String sepChar = configProps.getProperty(PROP_KEY_DELIMITER);
-            Iterator keysIter = configProps.keySet().iterator();
-            while (keysIter.hasNext()) {
-                String key = (String) keysIter.next();
-                if (key.startsWith(PROP_KEY_BROWSER_PREFIX)) {
-                    SoyLatteBrowserImpl browser = new SoyLatteBrowserImpl(
-                            sepChar,
-                            configProps.getProperty(key));
-                    if (browser.isBrowserAvailable(logger)) {
+            // the browsers in config order, shared with other launchers
+            List<Object> browsers = BrowserConfigLoader.getCatalog(
+                    configFileName,
+                    logger).getBrowsers(BROWSER_FACTORY);
+            // create the probes in config order
+            List<String> names = new ArrayList<String>();
+            List<Callable<String>> probes = new ArrayList<Callable<String>>();
+            Iterator<Object> browserIter = browsers.iterator();
+            while (browserIter.hasNext()) {
+                final SoyLatteBrowserImpl browser =
+                        (SoyLatteBrowserImpl) browserIter.next();
+                names.add(browser.getBrowserDisplayName());
+                probes.add(new Callable<String>() {
+                    public String call() {
+                        return browser.isBrowserAvailable(logger) ?
+                                browser.getBrowserApplicationName() : null;
+                    }
+                });
+            }
+            List<ParallelDiscovery.ProbeResult> results =
+                    ParallelDiscovery.probeAll(
+                            names,
+                            probes,
+                            ParallelDiscovery.getProbeTimeout(),
+                            logger);
+            // the first available browser listed wins a display name
+            for (int idx = 0; idx < browsers.size(); idx++) {
+                SoyLatteBrowserImpl browser =
+                        (SoyLatteBrowserImpl) browsers.get(idx);
+                if (results.get(idx).getValue() != null) {
+                    if (!soylatteBrowsers.containsKey(
+                            browser.getBrowserDisplayName())) {
                         soylatteBrowsers.put(browser.getBrowserDisplayName(),
                                              browser);
                     }
-                    else {
-                        if (potentialBrowserNames.length() > 0) {
-                            potentialBrowserNames.append("; ");
-                        }
-                        potentialBrowserNames.append(
-                                browser.getBrowserDisplayName());
+                }
+                else {
+                    if (potentialBrowserNames.length() > 0) {
+                        potentialBrowserNames.append("; ");
                     }
+                    potentialBrowserNames.append(
+                            browser.getBrowserDisplayName());
                 }
             }
             if (soylatteBrowsers.size() == 0) {
@@ -219,36 +487,7 @@ public class SoyLatteBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        try {
-            logger.info(urlString);
-            boolean success = false;
-            // get list of browsers to try
-            List slBrowsersList = new ArrayList(soylatteBrowsers.values());
-            // check system property which may contain user's preferred browser
-            String browserId = System.getProperty(
-                    IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
-                    null);
-            if (browserId != null) {
-                SoyLatteBrowser slBrowser =
-                        (SoyLatteBrowser) soylatteBrowsers.get(browserId);
-                if (slBrowser != null) {
-                    // if user has preferred browser, place at start of list
-                    slBrowsersList.add(0, slBrowser);
-                }
-            }
-            // iterate over browsers until one works
-            Iterator iter = slBrowsersList.iterator();
-            SoyLatteBrowser browser;
-            Process process;
-            while (iter.hasNext() && !success) {
-                browser = (SoyLatteBrowser) iter.next();
-                success = openUrlWithBrowser(browser,
-                                             urlString);
-            }
-        }
-        catch (Exception e) {
-            throw new BrowserLaunchingExecutionException(e);
-        }
+        LaunchingUtils.join(launchUrlAsync(null, urlString));
     }
 
     /**
@@ -267,21 +506,9 @@ public class SoyLatteBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        SoyLatteBrowser slBrowser = (SoyLatteBrowser) soylatteBrowsers.get(browser);
-        if (slBrowser == null ||
-            IBrowserLaunching.BROWSER_DEFAULT.equals(browser)) {
-            logger.debug("falling through to non-targetted openUrl");
-            openUrl(urlString);
-        }
-        else {
-            boolean success = openUrlWithBrowser(slBrowser,
-                                                 urlString);
-            if (!success) {
-                logger.debug(
-                        "open browser failure, trying non-targetted openUrl");
-                openUrl(urlString);
-            }
-        }
+        LaunchingUtils.join(launchUrlAsync(
+                browser == null ? null : Collections.singletonList(browser),
+                urlString));
     }
 
     /**
@@ -305,27 +532,45 @@ public class SoyLatteBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        if (browsers == null || browsers.isEmpty()) {
-            logger.debug("falling through to non-targetted openUrl");
-            openUrl(urlString);
-        }
-        else {
-            boolean success = false;
-            Iterator iter = browsers.iterator();
-            while (iter.hasNext() && !success) {
-                SoyLatteBrowser slBrowser = (SoyLatteBrowser) soylatteBrowsers.get(
-                        iter.next());
-                if (slBrowser != null) {
-                    success = openUrlWithBrowser(slBrowser,
-                                                 urlString);
-                }
-            }
-            if (!success) {
-                logger.debug(
-                        "none of listed browsers succeeded; falling through to non-targetted openUrl");
-                openUrl(urlString);
+        LaunchingUtils.join(launchUrlAsync(browsers, urlString));
+    }
+
+    /**
+     * Starts the launch on the executor. The browsers from the list
+     * are tried in order before failing over to the default browser.
+     * The executor thread is only used to start the first command;
+     * the rest of the launch is driven by the commands exiting.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openUrlAsync(final List browsers,
+                                                        final String urlString,
+                                                        Executor executor) {
+        return LaunchingUtils.composeAsync(
+                new Callable<CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> call() {
+                return launchUrlAsync(browsers, urlString);
             }
-        }
+        }, executor);
+    }
+
+    /**
+     * Opens each url with its own launch. The browsers are
+     * started through open, which takes one url per call.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @param executor Executor
+     * @return CompletableFuture completing with one result per url
+     */
+    public CompletableFuture<List<LaunchResult>> openUrlsAsync(
+            List browsers,
+            Collection<String> urlStrings,
+            Executor executor) {
+        return UrlBatches.openEachAsync(this, browsers, urlStrings, executor);
     }
 
     /**
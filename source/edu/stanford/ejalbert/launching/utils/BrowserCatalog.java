@@ -0,0 +1,303 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.ejalbert.launching.IBrowserLaunching;
+
+/**
+ * The merged browser configuration for one config file, as built by
+ * {@link BrowserConfigLoader BrowserConfigLoader}. A catalog never
+ * changes; a config change produces a new catalog with a higher
+ * version, so launchers holding the old one keep a consistent view.
+ * <p>
+ * Launchers sharing a catalog also share the browser objects created
+ * from it through {@link #getBrowsers(BrowserFactory) getBrowsers},
+ * so the config entries are parsed once however many launchers are
+ * created. A catalog replacing an earlier one reuses the earlier
+ * catalog's browser objects for the entries that did not change.
+ */
+public final class BrowserCatalog {
+    /**
+     * Creates a launcher's browser object from a config entry. The
+     * objects are shared, so they must not change once created.
+     */
+    public interface BrowserFactory {
+        /**
+         * Returns the browser described by the config entry.
+         *
+         * @param delimiter String separating the entry's items
+         * @param config String the entry
+         * @return Object
+         */
+        public Object createBrowser(String delimiter,
+                                    String config);
+    }
+
+    private final String configName; // in ctor
+    private final long version; // in ctor
+    private final List<String> sources; // in ctor
+    /**
+     * state of the layer files when they were read
+     */
+    private final String sourceStamp; // in ctor
+    /**
+     * key => value in config order
+     */
+    private final Map<String, String> properties; // in ctor
+    private final List<String> browserKeys; // in ctor
+    /**
+     * factory class => List of browsers; guarded by this
+     */
+    private final Map<Class<?>, List<Object>> browsers =
+            new HashMap<Class<?>, List<Object>>();
+    /**
+     * factory class => (key => browser) for the browsers created;
+     * guarded by this
+     */
+    private final Map<Class<?>, Map<String, Object>> browsersByKey =
+            new HashMap<Class<?>, Map<String, Object>>();
+    /**
+     * factory class => (key => browser) for the unchanged entries of
+     * the replaced catalog; guarded by this
+     */
+    private final Map<Class<?>, Map<String, Object>> reusable; // in ctor
+
+    /**
+     * Creates a catalog from the merged properties.
+     *
+     * @param configName String resource name of the config file
+     * @param version long
+     * @param sources List of String descriptions of the merged layers
+     * @param sourceStamp String state of the layer files
+     * @param properties Map of String keys and values in config order
+     * @param previous BrowserCatalog the catalog replaced, may be null
+     */
+    BrowserCatalog(String configName,
+                   long version,
+                   List<String> sources,
+                   String sourceStamp,
+                   Map<String, String> properties,
+                   BrowserCatalog previous) {
+        this.configName = configName;
+        this.version = version;
+        this.sourceStamp = sourceStamp;
+        this.sources = Collections.unmodifiableList(
+                new ArrayList<String>(sources));
+        this.properties = Collections.unmodifiableMap(
+                new LinkedHashMap<String, String>(properties));
+        List<String> keys = new ArrayList<String>();
+        Iterator<String> iter = properties.keySet().iterator();
+        while (iter.hasNext()) {
+            String key = iter.next();
+            if (key.startsWith(IBrowserLaunching.PROP_KEY_BROWSER_PREFIX)) {
+                keys.add(key);
+            }
+        }
+        this.browserKeys = Collections.unmodifiableList(keys);
+        this.reusable = previous == null ?
+                        new HashMap<Class<?>, Map<String, Object>>() :
+                        previous.getUnchangedBrowsers(this.properties);
+    }
+
+    /**
+     * Returns the browsers created from this catalog's entries that
+     * are the same in the passed properties.
+     */
+    private synchronized Map<Class<?>, Map<String, Object>> getUnchangedBrowsers(
+            Map<String, String> newProperties) {
+        Map<Class<?>, Map<String, Object>> unchanged =
+                new HashMap<Class<?>, Map<String, Object>>();
+        String delimiter = getDelimiter();
+        if (delimiter == null || !delimiter.equals(newProperties.get(
+                IBrowserLaunching.PROP_KEY_DELIMITER))) {
+            return unchanged;
+        }
+        Iterator<Map.Entry<Class<?>, Map<String, Object>>> classIter =
+                browsersByKey.entrySet().iterator();
+        while (classIter.hasNext()) {
+            Map.Entry<Class<?>, Map<String, Object>> entry = classIter.next();
+            Map<String, Object> kept = new HashMap<String, Object>();
+            Iterator<Map.Entry<String, Object>> keyIter =
+                    entry.getValue().entrySet().iterator();
+            while (keyIter.hasNext()) {
+                Map.Entry<String, Object> browser = keyIter.next();
+                String key = browser.getKey();
+                if (properties.get(key).equals(newProperties.get(key))) {
+                    kept.put(key, browser.getValue());
+                }
+            }
+            unchanged.put(entry.getKey(), kept);
+        }
+        return unchanged;
+    }
+
+    /**
+     * Returns the resource name of the config file the catalog was
+     * built for.
+     *
+     * @return String
+     */
+    public String getConfigName() {
+        return configName;
+    }
+
+    /**
+     * Returns the version of the catalog. Each catalog built by the
+     * loader has a higher version than the ones built before it.
+     *
+     * @return long
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns descriptions of the layers merged into the catalog,
+     * lowest precedence first.
+     *
+     * @return List of String objects
+     */
+    public List<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * Returns the state of the layer files when they were read, to
+     * compare with {@link BrowserConfigLoader#getSourceStamp(String)
+     * their current state}.
+     *
+     * @return String
+     */
+    public String getSourceStamp() {
+        return sourceStamp;
+    }
+
+    /**
+     * Returns the value for the key or null if it is not set.
+     *
+     * @param key String
+     * @return String
+     */
+    public String getProperty(String key) {
+        return properties.get(key);
+    }
+
+    /**
+     * Returns the value for the key or the default if it is not set.
+     *
+     * @param key String
+     * @param defaultValue String
+     * @return String
+     */
+    public String getProperty(String key,
+                              String defaultValue) {
+        String value = properties.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns the character separating the items of a browser entry.
+     *
+     * @return String
+     */
+    public String getDelimiter() {
+        return properties.get(IBrowserLaunching.PROP_KEY_DELIMITER);
+    }
+
+    /**
+     * Returns all keys in config order.
+     *
+     * @return List of String objects
+     */
+    public List<String> getKeysInOrder() {
+        return Collections.unmodifiableList(
+                new ArrayList<String>(properties.keySet()));
+    }
+
+    /**
+     * Returns the keys of the browser entries in the order the
+     * browsers are tried.
+     *
+     * @return List of String objects
+     */
+    public List<String> getBrowserKeys() {
+        return browserKeys;
+    }
+
+    /**
+     * Returns the browsers created by the factory from the browser
+     * entries, in order. They are created on the first call for a
+     * factory class and shared by all later calls. Browsers of the
+     * replaced catalog whose entries did not change are reused.
+     *
+     * @param factory BrowserFactory
+     * @return List of the objects created by the factory
+     */
+    public synchronized List<Object> getBrowsers(BrowserFactory factory) {
+        List<Object> created = browsers.get(factory.getClass());
+        if (created == null) {
+            String delimiter = getDelimiter();
+            Map<String, Object> unchanged = reusable.remove(factory.getClass());
+            Map<String, Object> byKey = new HashMap<String, Object>();
+            created = new ArrayList<Object>(browserKeys.size());
+            for (int idx = 0; idx < browserKeys.size(); idx++) {
+                String key = browserKeys.get(idx);
+                Object browser = unchanged == null ? null : unchanged.get(key);
+                if (browser == null) {
+                    browser = factory.createBrowser(delimiter,
+                                                    properties.get(key));
+                }
+                created.add(browser);
+                byKey.put(key, browser);
+            }
+            created = Collections.unmodifiableList(created);
+            browsers.put(factory.getClass(), created);
+            browsersByKey.put(factory.getClass(), byKey);
+        }
+        return created;
+    }
+
+    /**
+     * Returns debug information.
+     *
+     * @return String
+     */
+    public String toString() {
+        StringBuffer buf = new StringBuffer();
+        buf.append(configName);
+        buf.append(" version=");
+        buf.append(version);
+        buf.append(" browsers=");
+        buf.append(browserKeys.size());
+        buf.append(" sources=");
+        buf.append(sources);
+        return buf.toString();
+    }
+}
@@ -0,0 +1,356 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Stops launching browsers that keep failing. Each browser has a
+ * circuit:
+ * <ul>
+ * <li>{@link #STATE_CLOSED closed}: launches go ahead. After the
+ * failure threshold of launches in a row have failed the circuit
+ * opens.</li>
+ * <li>{@link #STATE_OPEN open}: launches are skipped without
+ * spawning anything, so the next browser of the fallback chain is
+ * tried at once. After the open time the circuit becomes half
+ * open.</li>
+ * <li>{@link #STATE_HALF_OPEN half open}: a single launch is let
+ * through as a probe. If it succeeds the circuit closes, if it fails
+ * the circuit opens again.</li>
+ * </ul>
+ * The browser launching classes share the instance returned by
+ * {@link #getDefault() getDefault}. Its settings are read from
+ * system properties when it is first used.
+ */
+public final class BrowserCircuitBreaker {
+    public static final int STATE_CLOSED = 0;
+    public static final int STATE_OPEN = 1;
+    public static final int STATE_HALF_OPEN = 2;
+    /**
+     * Key to system property holding the number of launches in a row
+     * that have to fail for a circuit to open. Zero or less turns
+     * the breaker off.
+     */
+    public static final String THRESHOLD_PROPERTY =
+            "edu.stanford.ejalbert.breaker.threshold";
+    /**
+     * Key to system property holding the time in milliseconds a
+     * circuit stays open before a probe launch is let through.
+     */
+    public static final String OPEN_TIME_PROPERTY =
+            "edu.stanford.ejalbert.breaker.opentime";
+    public static final int DEFAULT_THRESHOLD = 3;
+    public static final long DEFAULT_OPEN_TIME_MILLIS = 60000L;
+
+    private static BrowserCircuitBreaker defaultBreaker = null;
+
+    private final int threshold; // in ctor
+    private final long openTimeMillis; // in ctor
+    /**
+     * browser name => Circuit, guarded by this
+     */
+    private final Map<String, Circuit> circuits =
+            new HashMap<String, Circuit>();
+    private long skippedCount = 0L; // guarded by this
+
+    /**
+     * Creates a breaker with the passed settings.
+     *
+     * @param threshold int failures in a row opening a circuit; zero
+     *        or less to never open
+     * @param openTimeMillis long time a circuit stays open
+     */
+    public BrowserCircuitBreaker(int threshold,
+                                 long openTimeMillis) {
+        if (openTimeMillis < 0L) {
+            throw new IllegalArgumentException(
+                    "openTimeMillis cannot be negative.");
+        }
+        this.threshold = threshold > 0 ? threshold : 0;
+        this.openTimeMillis = openTimeMillis;
+    }
+
+    /**
+     * Returns the breaker shared by the browser launching classes,
+     * creating it from the system properties on first use.
+     *
+     * @return BrowserCircuitBreaker
+     */
+    public static synchronized BrowserCircuitBreaker getDefault() {
+        if (defaultBreaker == null) {
+            defaultBreaker = new BrowserCircuitBreaker(
+                    (int) getLongProperty(THRESHOLD_PROPERTY,
+                                          DEFAULT_THRESHOLD),
+                    getLongProperty(OPEN_TIME_PROPERTY,
+                                    DEFAULT_OPEN_TIME_MILLIS));
+        }
+        return defaultBreaker;
+    }
+
+    /**
+     * Replaces the breaker shared by the browser launching classes.
+     *
+     * @param breaker BrowserCircuitBreaker
+     */
+    public static synchronized void setDefault(BrowserCircuitBreaker breaker) {
+        if (breaker == null) {
+            throw new IllegalArgumentException("breaker cannot be null.");
+        }
+        defaultBreaker = breaker;
+    }
+
+    private static long getLongProperty(String key, long defValue) {
+        String value = System.getProperty(key, null);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            }
+            catch (NumberFormatException ex) {
+                // fall through to the default
+            }
+        }
+        return defValue;
+    }
+
+    /**
+     * Returns true if a launch with the browser may go ahead. An
+     * open circuit whose open time has passed becomes half open and
+     * lets this one launch through; the caller then has to report
+     * its outcome.
+     *
+     * @param browserName String
+     * @return boolean
+     */
+    public synchronized boolean allowLaunch(String browserName) {
+        if (threshold == 0) {
+            return true;
+        }
+        Circuit circuit = circuits.get(browserName);
+        if (circuit == null || circuit.state == STATE_CLOSED) {
+            return true;
+        }
+        if (circuit.state == STATE_OPEN &&
+            System.currentTimeMillis() - circuit.openedMillis >=
+            openTimeMillis) {
+            circuit.state = STATE_HALF_OPEN;
+            return true;
+        }
+        skippedCount++;
+        return false;
+    }
+
+    /**
+     * Records a successful launch, closing the browser's circuit.
+     *
+     * @param browserName String
+     */
+    public synchronized void recordSuccess(String browserName) {
+        Circuit circuit = circuits.get(browserName);
+        if (circuit != null) {
+            circuit.state = STATE_CLOSED;
+            circuit.failures = 0;
+        }
+    }
+
+    /**
+     * Records a failed launch. The circuit opens if the threshold is
+     * reached or the launch was the probe of a half open circuit.
+     *
+     * @param browserName String
+     */
+    public synchronized void recordFailure(String browserName) {
+        if (threshold == 0) {
+            return;
+        }
+        Circuit circuit = circuits.get(browserName);
+        if (circuit == null) {
+            circuit = new Circuit();
+            circuits.put(browserName, circuit);
+        }
+        circuit.failures++;
+        if (circuit.state == STATE_HALF_OPEN ||
+            (circuit.state == STATE_CLOSED && circuit.failures >= threshold)) {
+            circuit.state = STATE_OPEN;
+            circuit.openedMillis = System.currentTimeMillis();
+            circuit.openCount++;
+        }
+    }
+
+    /**
+     * Gives up the probe of a half open circuit whose launch ended
+     * without an outcome. The circuit opens again with its old open
+     * time, so the next launch is let through as the probe.
+     *
+     * @param browserName String
+     */
+    private synchronized void probeAbandoned(String browserName) {
+        Circuit circuit = circuits.get(browserName);
+        if (circuit != null && circuit.state == STATE_HALF_OPEN) {
+            circuit.state = STATE_OPEN;
+        }
+    }
+
+    /**
+     * Records the outcome of the launch with the browser when it
+     * completes: a success if it completes with true, a failure if it
+     * completes with false, because its commands exited with an error,
+     * or fails because a command could not be spawned. Launches
+     * rejected by the spawn throttle, timed out or cancelled are not
+     * recorded.
+     *
+     * @param launch CompletableFuture of a launch with the browser
+     * @param browserName String
+     * @return CompletableFuture completing like the launch
+     */
+    public CompletableFuture<Boolean> track(CompletableFuture<Boolean> launch,
+                                            final String browserName) {
+        return launch.whenComplete(new BiConsumer<Boolean, Throwable>() {
+            public void accept(Boolean success, Throwable ex) {
+                if (ex == null && success.booleanValue()) {
+                    recordSuccess(browserName);
+                }
+                else if (ex == null || LaunchingUtils.isBrowserFailure(ex)) {
+                    recordFailure(browserName);
+                }
+                else {
+                    probeAbandoned(browserName);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the state of the browser's circuit.
+     *
+     * @param browserName String
+     * @return int one of the STATE constants
+     */
+    public synchronized int getState(String browserName) {
+        Circuit circuit = circuits.get(browserName);
+        return circuit == null ? STATE_CLOSED : circuit.state;
+    }
+
+    /**
+     * Returns the names of the browsers whose circuit is not closed.
+     *
+     * @return List of String objects
+     */
+    public synchronized List<String> getOpenBrowsers() {
+        List<String> open = new ArrayList<String>();
+        Iterator<Map.Entry<String, Circuit>> iter =
+                new TreeMap<String, Circuit>(circuits).entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<String, Circuit> entry = iter.next();
+            if (entry.getValue().state != STATE_CLOSED) {
+                open.add(entry.getKey());
+            }
+        }
+        return open;
+    }
+
+    /**
+     * Returns one line per browser that has failed, describing its
+     * circuit.
+     *
+     * @return String[]
+     */
+    public synchronized String[] getCircuitDescriptions() {
+        List<String> lines = new ArrayList<String>();
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<String, Circuit>> iter =
+                new TreeMap<String, Circuit>(circuits).entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<String, Circuit> entry = iter.next();
+            Circuit circuit = entry.getValue();
+            StringBuffer buf = new StringBuffer();
+            buf.append(entry.getKey());
+            buf.append(' ');
+            buf.append(getStateName(circuit.state));
+            buf.append(" failures=");
+            buf.append(circuit.failures);
+            buf.append(" opened=");
+            buf.append(circuit.openCount);
+            if (circuit.state == STATE_OPEN) {
+                buf.append(" probeIn=");
+                buf.append(Math.max(0L, circuit.openedMillis +
+                                        openTimeMillis - now));
+                buf.append("ms");
+            }
+            lines.add(buf.toString());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Returns the number of launches skipped because of an open
+     * circuit.
+     *
+     * @return long
+     */
+    public synchronized long getSkippedCount() {
+        return skippedCount;
+    }
+
+    /**
+     * Closes all circuits.
+     */
+    public synchronized void reset() {
+        circuits.clear();
+    }
+
+    /**
+     * Returns the name of the state for diagnostics.
+     *
+     * @param state int
+     * @return String
+     */
+    public static String getStateName(int state) {
+        switch (state) {
+        case STATE_CLOSED:
+            return "closed";
+        case STATE_OPEN:
+            return "open";
+        case STATE_HALF_OPEN:
+            return "half-open";
+        default:
+            return "unknown";
+        }
+    }
+
+    /**
+     * The circuit of one browser.
+     */
+    private static final class Circuit {
+        private int state = STATE_CLOSED;
+        private int failures = 0;
+        private long openedMillis = 0L;
+        private int openCount = 0;
+    }
+}
@@ -0,0 +1,449 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Builds the {@link BrowserCatalog browser catalogs} shared by all
+ * launchers. A catalog merges four layers, each overriding the ones
+ * before it:
+ * <ol>
+ * <li>the config file on the classpath (the defaults in the jar)</li>
+ * <li>a system-wide file with the same name in the
+ *     {@link #getSystemConfigDir() system config directory}</li>
+ * <li>a per-user file with the same name in the
+ *     {@link #getUserConfigDir() user config directory}</li>
+ * <li>properties set by the application through
+ *     {@link #setOverrides(String,Properties) setOverrides}</li>
+ * </ol>
+ * A layer may add browsers, replace entries, and remove a browser by
+ * giving its key an empty value. New browsers are tried after the
+ * ones already listed; the {@link #KEY_BROWSER_ORDER KEY_BROWSER_ORDER}
+ * key reorders them.
+ * <p>
+ * A catalog is built on the first request for its config file and
+ * shared by later requests until it is
+ * {@link #invalidate(String) invalidated} or
+ * {@link #reload(String,AbstractLogger) reloaded}. With the
+ * {@link BrowserConfigWatcher#WATCH_PROPERTY watch property} set,
+ * catalogs are reloaded as soon as their files change.
+ */
+public final class BrowserConfigLoader {
+    /**
+     * Key to system property holding the system config directory.
+     */
+    public static final String SYSTEM_CONFIG_DIR_PROPERTY =
+            "edu.stanford.ejalbert.config.systemdir";
+    /**
+     * Key to system property holding the user config directory.
+     */
+    public static final String USER_CONFIG_DIR_PROPERTY =
+            "edu.stanford.ejalbert.config.userdir";
+    /**
+     * Config key listing browser keys, without the
+     * {@link IBrowserLaunching#PROP_KEY_BROWSER_PREFIX browser prefix}
+     * and separated by commas, in the order the browsers are to be
+     * tried. Browsers not listed follow in config order.
+     */
+    public static final String KEY_BROWSER_ORDER = "browsers.order";
+
+    private static final String CONFIG_DIR_NAME = "browserlauncher2";
+
+    /**
+     * config name => BrowserCatalog; guarded by class
+     */
+    private static final Map<String, BrowserCatalog> catalogs =
+            new HashMap<String, BrowserCatalog>();
+    /**
+     * config name => Properties; guarded by class
+     */
+    private static final Map<String, Properties> overrides =
+            new HashMap<String, Properties>();
+    /**
+     * config name => invalidated BrowserCatalog; guarded by class
+     */
+    private static final Map<String, BrowserCatalog> previousCatalogs =
+            new HashMap<String, BrowserCatalog>();
+    // guarded by class
+    private static long lastVersion = 0L;
+    /**
+     * Held while a catalog is built, so only one caller parses the
+     * layers; taken before the class lock, never while holding it.
+     */
+    private static final Object loadLock = new Object();
+
+    private BrowserConfigLoader() {
+        // static methods only
+    }
+
+    /**
+     * Returns the shared catalog for the config file, building it if
+     * there is none. Layers that cannot be read are logged and
+     * skipped.
+     *
+     * @param configName String resource name of the config file
+     * @param logger AbstractLogger
+     * @return BrowserCatalog
+     * @throws IOException if the config file is not on the classpath
+     *         or cannot be read
+     */
+    public static BrowserCatalog getCatalog(String configName,
+                                            AbstractLogger logger)
+            throws IOException {
+        if (BrowserConfigWatcher.isWatchEnabled()) {
+            BrowserConfigWatcher.getDefault(logger);
+        }
+        BrowserCatalog catalog = getLoadedCatalog(configName);
+        if (catalog != null) {
+            return catalog;
+        }
+        synchronized (loadLock) {
+            // another caller may have built it while we waited
+            catalog = getLoadedCatalog(configName);
+            if (catalog != null) {
+                return catalog;
+            }
+            return reload(configName, logger);
+        }
+    }
+
+    /**
+     * Returns the shared catalog for the config file, or null if none
+     * has been built.
+     *
+     * @param configName String
+     * @return BrowserCatalog may be null
+     */
+    public static synchronized BrowserCatalog getLoadedCatalog(
+            String configName) {
+        return catalogs.get(configName);
+    }
+
+    /**
+     * Returns the config files that have a shared catalog.
+     *
+     * @return List of String objects
+     */
+    public static synchronized List<String> getLoadedConfigNames() {
+        return new ArrayList<String>(catalogs.keySet());
+    }
+
+    /**
+     * Builds a new catalog for the config file from its layers and
+     * shares it in place of the old one.
+     *
+     * @param configName String resource name of the config file
+     * @param logger AbstractLogger
+     * @return BrowserCatalog
+     * @throws IOException if the config file is not on the classpath
+     *         or cannot be read
+     */
+    public static BrowserCatalog reload(String configName,
+                                        AbstractLogger logger)
+            throws IOException {
+        synchronized (loadLock) {
+            return load(configName, logger);
+        }
+    }
+
+    /**
+     * Rebuilds the shared catalog for the config file if its files
+     * differ from when it was read. The check and the rebuild are
+     * done under one lock, so concurrent callers build it only once.
+     *
+     * @param configName String resource name of the config file
+     * @param logger AbstractLogger
+     * @return BrowserCatalog the new catalog, or null if there is no
+     *         shared catalog or its files have not changed
+     * @throws IOException if the config file is not on the classpath
+     *         or cannot be read
+     */
+    public static BrowserCatalog reloadIfChanged(String configName,
+                                                 AbstractLogger logger)
+            throws IOException {
+        synchronized (loadLock) {
+            BrowserCatalog catalog = getLoadedCatalog(configName);
+            if (catalog == null || catalog.getSourceStamp().equals(
+                    getSourceStamp(configName))) {
+                return null;
+            }
+            return load(configName, logger);
+        }
+    }
+
+    private static BrowserCatalog load(String configName,
+                                       AbstractLogger logger)
+            throws IOException {
+        URL configUrl = BrowserConfigLoader.class.getResource(configName);
+        if (configUrl == null) {
+            throw new FileNotFoundException(
+                    "unable to find config file: " + configName);
+        }
+        List<String> sources = new ArrayList<String>();
+        // taken before reading so a change while reading is seen later
+        String sourceStamp = getSourceStamp(configName);
+        OrderedProperties merged = OrderedProperties.load(configUrl);
+        sources.add(configUrl.toString());
+        File[] layerFiles = getConfigFiles(configName);
+        for (int idx = 0; idx < layerFiles.length; idx++) {
+            File layerFile = layerFiles[idx];
+            if (!layerFile.isFile()) {
+                continue;
+            }
+            try {
+                merge(merged,
+                      OrderedProperties.load(layerFile.toURI().toURL()));
+                sources.add(layerFile.getPath());
+            }
+            catch (IOException ex) {
+                logger.error("unable to read browser config " +
+                             layerFile.getPath(), ex);
+            }
+        }
+        synchronized (BrowserConfigLoader.class) {
+            Properties override = overrides.get(configName);
+            if (override != null) {
+                merge(merged, override);
+                sources.add("overrides");
+            }
+            BrowserCatalog previous = previousCatalogs.remove(configName);
+            if (previous == null) {
+                previous = catalogs.get(configName);
+            }
+            BrowserCatalog catalog = new BrowserCatalog(
+                    configName,
+                    ++lastVersion,
+                    sources,
+                    sourceStamp,
+                    toOrderedMap(merged),
+                    previous);
+            catalogs.put(configName, catalog);
+            if (logger.isDebugEnabled()) {
+                logger.debug("browser catalog " + catalog);
+            }
+            return catalog;
+        }
+    }
+
+    /**
+     * Sets the properties overriding the config file's other layers,
+     * or removes them if overrides is null. The catalog is rebuilt on
+     * its next request, which launchers make at their next launch.
+     *
+     * @param configName String resource name of the config file
+     * @param overrides Properties may be null
+     */
+    public static synchronized void setOverrides(String configName,
+                                                 Properties overrides) {
+        if (configName == null) {
+            throw new IllegalArgumentException("config name cannot be null.");
+        }
+        if (overrides == null) {
+            BrowserConfigLoader.overrides.remove(configName);
+        }
+        else {
+            Properties copy = new OrderedProperties();
+            Iterator<String> iter = getKeysInOrder(overrides).iterator();
+            while (iter.hasNext()) {
+                String key = iter.next();
+                copy.setProperty(key, overrides.getProperty(key));
+            }
+            BrowserConfigLoader.overrides.put(configName, copy);
+        }
+        invalidate(configName);
+    }
+
+    /**
+     * Drops the shared catalog for the config file so the next
+     * request rebuilds it.
+     *
+     * @param configName String
+     */
+    public static synchronized void invalidate(String configName) {
+        BrowserCatalog catalog = catalogs.remove(configName);
+        if (catalog != null) {
+            // lets the rebuilt catalog reuse unchanged browsers
+            previousCatalogs.put(configName, catalog);
+        }
+    }
+
+    /**
+     * Returns the current state of the config file's system-wide and
+     * per-user files. A catalog whose
+     * {@link BrowserCatalog#getSourceStamp() stamp} differs was built
+     * from files that have changed since.
+     *
+     * @param configName String resource name of the config file
+     * @return String
+     */
+    public static String getSourceStamp(String configName) {
+        StringBuffer buf = new StringBuffer();
+        File[] layerFiles = getConfigFiles(configName);
+        for (int idx = 0; idx < layerFiles.length; idx++) {
+            File layerFile = layerFiles[idx];
+            buf.append(layerFile.getPath());
+            if (layerFile.isFile()) {
+                buf.append('@');
+                buf.append(layerFile.lastModified());
+                buf.append('/');
+                buf.append(layerFile.length());
+            }
+            buf.append(';');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Returns the system-wide and per-user files for the config file,
+     * lowest precedence first. The files may not exist.
+     *
+     * @param configName String resource name of the config file
+     * @return File[]
+     */
+    public static File[] getConfigFiles(String configName) {
+        String fileName = configName.substring(configName.lastIndexOf('/') + 1);
+        return new File[] {
+                new File(getSystemConfigDir(), fileName),
+                new File(getUserConfigDir(), fileName)};
+    }
+
+    /**
+     * Returns the directory holding the system-wide config files:
+     * %ProgramData%\browserlauncher2 on Windows and
+     * /etc/browserlauncher2 elsewhere.
+     *
+     * @return File
+     */
+    public static File getSystemConfigDir() {
+        String dir = System.getProperty(SYSTEM_CONFIG_DIR_PROPERTY, null);
+        if (dir != null) {
+            return new File(dir);
+        }
+        String programData = System.getenv("ProgramData");
+        if (programData != null && programData.length() > 0) {
+            return new File(programData, CONFIG_DIR_NAME);
+        }
+        return new File("/etc", CONFIG_DIR_NAME);
+    }
+
+    /**
+     * Returns the directory holding the per-user config files. Uses
+     * XDG_CONFIG_HOME if set, otherwise ~/.config.
+     *
+     * @return File
+     */
+    public static File getUserConfigDir() {
+        String dir = System.getProperty(USER_CONFIG_DIR_PROPERTY, null);
+        if (dir != null) {
+            return new File(dir);
+        }
+        String configHome = System.getenv("XDG_CONFIG_HOME");
+        if (configHome == null || configHome.length() == 0) {
+            configHome = System.getProperty("user.home") +
+                         File.separator + ".config";
+        }
+        return new File(configHome, CONFIG_DIR_NAME);
+    }
+
+    /**
+     * Applies a layer: its values replace existing ones in place, new
+     * keys are appended, and browser keys with empty values are
+     * removed.
+     */
+    private static void merge(OrderedProperties merged,
+                              Properties layer) {
+        Iterator<String> iter = getKeysInOrder(layer).iterator();
+        while (iter.hasNext()) {
+            String key = iter.next();
+            String value = layer.getProperty(key);
+            if (key.startsWith(IBrowserLaunching.PROP_KEY_BROWSER_PREFIX) &&
+                value.trim().length() == 0) {
+                merged.remove(key);
+            }
+            else {
+                merged.setProperty(key, value);
+            }
+        }
+    }
+
+    private static List<String> getKeysInOrder(Properties props) {
+        if (props instanceof OrderedProperties) {
+            return ((OrderedProperties) props).getKeysInOrder();
+        }
+        // no order to keep; sort for a stable result
+        List<String> keys = new ArrayList<String>(props.stringPropertyNames());
+        Collections.sort(keys);
+        return keys;
+    }
+
+    /**
+     * Returns the merged properties in config order, with the browser
+     * entries moved to the order given by KEY_BROWSER_ORDER.
+     */
+    private static Map<String, String> toOrderedMap(OrderedProperties merged) {
+        List<String> keys = new ArrayList<String>(merged.getKeysInOrder());
+        String order = merged.getProperty(KEY_BROWSER_ORDER, null);
+        if (order != null) {
+            List<String> ordered = new ArrayList<String>();
+            List<String> names = Arrays.asList(order.split(","));
+            for (int idx = 0; idx < names.size(); idx++) {
+                String key = IBrowserLaunching.PROP_KEY_BROWSER_PREFIX +
+                             names.get(idx).trim();
+                if (keys.remove(key)) {
+                    ordered.add(key);
+                }
+            }
+            // listed browsers first, in the listed order
+            int insertAt = keys.size();
+            for (int idx = 0; idx < keys.size(); idx++) {
+                if (keys.get(idx).startsWith(
+                        IBrowserLaunching.PROP_KEY_BROWSER_PREFIX)) {
+                    insertAt = idx;
+                    break;
+                }
+            }
+            keys.addAll(insertAt, ordered);
+        }
+        Map<String, String> map = new LinkedHashMap<String, String>();
+        for (int idx = 0; idx < keys.size(); idx++) {
+            String key = keys.get(idx);
+            map.put(key, merged.getProperty(key));
+        }
+        return map;
+    }
+}
@@ -0,0 +1,273 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Watches the system-wide and per-user config directories and
+ * {@link BrowserConfigLoader#reloadIfChanged(String,AbstractLogger) reloads}
+ * the catalogs whose files changed. Launchers pick up a reloaded
+ * catalog at their next launch; launches already running keep the
+ * browsers they started with.
+ * <p>
+ * A directory that does not exist yet is waited for by watching its
+ * closest existing parent. Changes arriving close together, as when
+ * an editor saves a file, cause one reload.
+ */
+public final class BrowserConfigWatcher
+        implements Runnable {
+    /**
+     * Key to system property turning the shared watcher on when set
+     * to true.
+     */
+    public static final String WATCH_PROPERTY =
+            "edu.stanford.ejalbert.config.watch";
+    /**
+     * time to wait for further changes before reloading
+     */
+    private static final long SETTLE_MILLIS = 250L;
+    private static int threadCount = 0; // guarded by class
+    private static BrowserConfigWatcher defaultWatcher = null;
+
+    private final AbstractLogger logger; // in ctor
+    private final WatchService watchService; // in ctor
+    /**
+     * registered WatchKey => watched directory; used by watch thread
+     */
+    private final Map<WatchKey, Path> watched = new HashMap<WatchKey, Path>();
+    private final Thread thread; // in ctor
+    private volatile boolean running = true;
+    private volatile long reloadCount = 0L;
+
+    /**
+     * Creates and starts a watcher.
+     *
+     * @param logger AbstractLogger
+     * @throws IOException if the file system cannot be watched
+     */
+    public BrowserConfigWatcher(AbstractLogger logger)
+            throws IOException {
+        if (logger == null) {
+            throw new IllegalArgumentException("logger cannot be null.");
+        }
+        this.logger = logger;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        int threadId;
+        synchronized (BrowserConfigWatcher.class) {
+            threadId = ++threadCount;
+        }
+        thread = new Thread(this, "BrowserLauncher-config-watcher-" + threadId);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns true if the shared watcher is turned on by the
+     * {@link #WATCH_PROPERTY WATCH_PROPERTY}.
+     *
+     * @return boolean
+     */
+    public static boolean isWatchEnabled() {
+        return Boolean.getBoolean(WATCH_PROPERTY);
+    }
+
+    /**
+     * Returns the shared watcher, starting it if necessary. Returns
+     * null if the file system cannot be watched; the failure is
+     * logged.
+     *
+     * @param logger AbstractLogger used by the watcher once started
+     * @return BrowserConfigWatcher may be null
+     */
+    public static synchronized BrowserConfigWatcher getDefault(
+            AbstractLogger logger) {
+        if (defaultWatcher == null || !defaultWatcher.isRunning()) {
+            try {
+                defaultWatcher = new BrowserConfigWatcher(logger);
+            }
+            catch (IOException ex) {
+                logger.error("unable to watch browser config files", ex);
+                return null;
+            }
+        }
+        return defaultWatcher;
+    }
+
+    /**
+     * Returns true until the watcher is stopped.
+     *
+     * @return boolean
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of catalogs reloaded because their files
+     * changed.
+     *
+     * @return long
+     */
+    public long getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Stops watching.
+     */
+    public void stop() {
+        running = false;
+        try {
+            watchService.close();
+        }
+        catch (IOException ex) {
+            logger.error("unable to close config watch service", ex);
+        }
+    }
+
+    /**
+     * Waits for changes in the watched directories until stopped.
+     */
+    public void run() {
+        try {
+            registerDirectories();
+            // files may have changed before the directories were watched
+            reloadChanged();
+            while (running) {
+                WatchKey key = watchService.take();
+                // collect the burst of changes before reloading
+                while (key != null) {
+                    key.pollEvents();
+                    if (!key.reset()) {
+                        // the directory is gone; watch a parent instead
+                        watched.remove(key);
+                    }
+                    key = watchService.poll(SETTLE_MILLIS,
+                                            TimeUnit.MILLISECONDS);
+                }
+                registerDirectories();
+                reloadChanged();
+            }
+        }
+        catch (ClosedWatchServiceException ex) {
+            // stopped
+        }
+        catch (InterruptedException ex) {
+            // stopped
+        }
+        finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Watches each config directory, or its closest existing parent
+     * while it does not exist, and stops watching parents no longer
+     * needed.
+     */
+    private void registerDirectories() {
+        File[] dirs = {
+                BrowserConfigLoader.getSystemConfigDir(),
+                BrowserConfigLoader.getUserConfigDir()};
+        Set<Path> needed = new HashSet<Path>();
+        for (int idx = 0; idx < dirs.length; idx++) {
+            File dir = dirs[idx].getAbsoluteFile();
+            while (dir != null && !dir.isDirectory()) {
+                dir = dir.getParentFile();
+            }
+            if (dir != null) {
+                needed.add(dir.toPath());
+            }
+        }
+        Iterator<Map.Entry<WatchKey, Path>> keyIter =
+                watched.entrySet().iterator();
+        while (keyIter.hasNext()) {
+            Map.Entry<WatchKey, Path> entry = keyIter.next();
+            if (!needed.contains(entry.getValue())) {
+                entry.getKey().cancel();
+                keyIter.remove();
+            }
+        }
+        Iterator<Path> neededIter = needed.iterator();
+        while (neededIter.hasNext()) {
+            Path path = neededIter.next();
+            if (watched.containsValue(path)) {
+                continue;
+            }
+            try {
+                WatchKey key = path.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watched.put(key, path);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("watching browser config in " + path);
+                }
+            }
+            catch (IOException ex) {
+                logger.error("unable to watch " + path, ex);
+            }
+        }
+    }
+
+    /**
+     * Reloads the catalogs whose files differ from when they were
+     * read.
+     */
+    private void reloadChanged() {
+        List<String> configNames = BrowserConfigLoader.getLoadedConfigNames();
+        for (int idx = 0; idx < configNames.size(); idx++) {
+            String configName = configNames.get(idx);
+            try {
+                BrowserCatalog catalog = BrowserConfigLoader.reloadIfChanged(
+                        configName,
+                        logger);
+                if (catalog != null) {
+                    reloadCount++;
+                    logger.info("reloaded browser config " + catalog);
+                }
+            }
+            catch (IOException ex) {
+                logger.error("unable to reload browser config " +
+                             configName, ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,631 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.metrics.LaunchMetrics;
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Runs browser commands without holding a thread while they run.
+ * Instead of blocking in Process.waitFor(), each command completes a
+ * future when the process exits, and the next step of a launch is
+ * chained on to that future. A few shared threads start the
+ * processes and run the continuations, however many launches are
+ * outstanding.
+ * <p>
+ * The browser launching classes build their fallback chains (open,
+ * force new window, start; then the next browser; then the default
+ * browser) with {@link #tryInOrder(Iterator) tryInOrder}.
+ * <p>
+ * No command is waited on for longer than the
+ * {@link LaunchTimeouts#getDefault() launch timeouts} allow. A
+ * command still running after the detach time, or at the step
+ * timeout or launch deadline, is left running; its future completes
+ * with {@link LaunchResult#EXIT_DETACHED EXIT_DETACHED} or
+ * {@link LaunchResult#EXIT_TIMED_OUT EXIT_TIMED_OUT} and its spawn
+ * throttle slot is freed. The browser launching classes end the
+ * chain at a command that timed out, see
+ * {@link #checkNotTimedOut(int) checkNotTimedOut}.
+ * <p>
+ * Commands never hold pipes to the launcher. Their stdin is closed
+ * as soon as they start and their output goes to the null device,
+ * except when the launching logger has debug enabled: then the
+ * first bytes of the combined stdout and stderr are captured and
+ * logged when the command closes its output. The counters returned
+ * by {@link #getLiveProcessCount() getLiveProcessCount} and
+ * {@link #getOpenStreamCount() getOpenStreamCount} show processes
+ * and streams that have not been let go of yet.
+ */
+public final class BrowserProcessRunner {
+    /**
+     * threads starting processes and running continuations
+     */
+    private static final int MAX_PROCESS_THREADS = 4;
+    /**
+     * Key to system property holding the number of bytes of a
+     * command's output captured when debug logging is on.
+     */
+    public static final String CAPTURE_BYTES_PROPERTY =
+            "edu.stanford.ejalbert.spawn.capturebytes";
+    public static final int DEFAULT_CAPTURE_BYTES = 4096;
+
+    /**
+     * how long idle process threads are kept alive once no command is
+     * running
+     */
+    private static final long KEEP_ALIVE_MILLIS = 1000L;
+
+    private static final ThreadPoolExecutor processExecutor;
+    static {
+        processExecutor = new ThreadPoolExecutor(
+                MAX_PROCESS_THREADS,
+                MAX_PROCESS_THREADS,
+                KEEP_ALIVE_MILLIS,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ProcessThreadFactory());
+        processExecutor.allowCoreThreadTimeOut(true);
+    }
+    /**
+     * commands between run being called and their exit code being
+     * delivered; guarded by processExecutor
+     */
+    private static int activeCount = 0;
+    /**
+     * reads captured output; only used when debug logging is on
+     */
+    private static ExecutorService captureExecutor = null;
+
+    // leak counters
+    private static final AtomicLong startedCount = new AtomicLong();
+    private static final AtomicLong exitedCount = new AtomicLong();
+    private static final AtomicLong stdinCloseFailures = new AtomicLong();
+    private static final AtomicInteger openStreamCount = new AtomicInteger();
+
+    private BrowserProcessRunner() {
+    }
+
+    /**
+     * Receives each browser process as soon as it has been started.
+     */
+    public interface ProcessListener {
+        public void processStarted(Process process);
+    }
+
+    /**
+     * Starts the command, without a launch deadline.
+     *
+     * @param args String[] command line
+     * @param listener ProcessListener may be null
+     * @return CompletableFuture
+     * @see #run(String[], ProcessListener, long)
+     */
+    public static CompletableFuture<Integer> run(String[] args,
+                                                 ProcessListener listener) {
+        return run(args, listener, 0L);
+    }
+
+    /**
+     * Starts the command without capturing its output.
+     *
+     * @param args String[] command line
+     * @param listener ProcessListener may be null
+     * @param deadline long time in millis by which the launch has to
+     *        complete; zero for none
+     * @return CompletableFuture
+     * @see #run(String[], ProcessListener, long, AbstractLogger)
+     */
+    public static CompletableFuture<Integer> run(String[] args,
+                                                 ProcessListener listener,
+                                                 long deadline) {
+        return run(args, listener, deadline, null);
+    }
+
+    /**
+     * Starts a command that starts the browser itself, so it may
+     * detach.
+     *
+     * @param args String[] command line
+     * @param listener ProcessListener may be null
+     * @param deadline long time in millis by which the launch has to
+     *        complete; zero for none
+     * @param logger AbstractLogger receiving the captured output if it
+     *        has debug enabled; may be null
+     * @return CompletableFuture
+     * @see #run(String[], ProcessListener, long, AbstractLogger, boolean)
+     */
+    public static CompletableFuture<Integer> run(String[] args,
+                                                 ProcessListener listener,
+                                                 long deadline,
+                                                 AbstractLogger logger) {
+        return run(args, listener, deadline, logger, true);
+    }
+
+    /**
+     * Starts the command once the
+     * {@link SpawnThrottle#getDefault() spawn throttle} allows it and
+     * returns a future holding its exit code, or EXIT_DETACHED or
+     * EXIT_TIMED_OUT if it was still running when the wait for it
+     * ended. The future completes exceptionally with a
+     * TimeoutException if the deadline passes before the command is
+     * started, and exceptionally if the throttle rejects the spawn,
+     * the command cannot be started or the listener throws an
+     * exception.
+     * <p>
+     * Only commands that start the browser itself should be
+     * detachable. A command that hands the url to a running browser
+     * is expected to exit, so one still running is waited for until
+     * the step timeout or the deadline.
+     *
+     * @param args String[] command line
+     * @param listener ProcessListener may be null
+     * @param deadline long time in millis by which the launch has to
+     *        complete; zero for none
+     * @param logger AbstractLogger receiving the captured output if it
+     *        has debug enabled; may be null
+     * @param detachable boolean true if the command may detach after
+     *        the detach time
+     * @return CompletableFuture
+     */
+    public static CompletableFuture<Integer> run(final String[] args,
+                                                 final ProcessListener listener,
+                                                 final long deadline,
+                                                 final AbstractLogger logger,
+                                                 final boolean detachable) {
+        final CompletableFuture<Integer> exitCode =
+                new CompletableFuture<Integer>();
+        commandStarted();
+        exitCode.whenComplete(new BiConsumer<Integer, Throwable>() {
+            public void accept(Integer ignored, Throwable ex) {
+                commandEnded();
+            }
+        });
+        if (isPast(deadline)) {
+            exitCode.completeExceptionally(deadlinePassed());
+            return exitCode;
+        }
+        final SpawnThrottle throttle = SpawnThrottle.getDefault();
+        throttle.acquireAsync().whenComplete(new BiConsumer<Void, Throwable>() {
+            public void accept(Void ignored, Throwable ex) {
+                if (ex != null) {
+                    exitCode.completeExceptionally(ex);
+                    return;
+                }
+                processExecutor.execute(new Runnable() {
+                    public void run() {
+                        start(args,
+                              listener,
+                              deadline,
+                              logger,
+                              detachable,
+                              throttle,
+                              exitCode);
+                    }
+                });
+            }
+        });
+        return exitCode;
+    }
+
+    /**
+     * Keeps a process thread alive while commands are running. The
+     * process threads are not daemons, so the JVM does not exit
+     * before the launch has run, as it did when each launch had a
+     * thread of its own.
+     */
+    private static void commandStarted() {
+        synchronized (processExecutor) {
+            if (activeCount++ == 0) {
+                processExecutor.allowCoreThreadTimeOut(false);
+                processExecutor.prestartCoreThread();
+            }
+        }
+    }
+
+    /**
+     * Lets the idle process threads time out once no command is
+     * running. A fallback started within the keep alive time finds
+     * them still there.
+     */
+    private static void commandEnded() {
+        synchronized (processExecutor) {
+            if (--activeCount == 0) {
+                processExecutor.allowCoreThreadTimeOut(true);
+            }
+        }
+    }
+
+    private static boolean isPast(long deadline) {
+        return deadline > 0L && System.currentTimeMillis() >= deadline;
+    }
+
+    private static TimeoutException deadlinePassed() {
+        return new TimeoutException("browser launch deadline passed");
+    }
+
+    /**
+     * Starts the process and arranges for the exit code to be
+     * delivered, and the throttle released, when it exits or when
+     * the wait for it ends, whichever comes first.
+     */
+    private static void start(String[] args,
+                              ProcessListener listener,
+                              long deadline,
+                              AbstractLogger logger,
+                              boolean detachable,
+                              final SpawnThrottle throttle,
+                              final CompletableFuture<Integer> exitCode) {
+        if (isPast(deadline)) {
+            // the wait for the throttle used up the rest of the launch
+            throttle.release();
+            exitCode.completeExceptionally(deadlinePassed());
+            return;
+        }
+        boolean capture = logger != null && logger.isDebugEnabled();
+        ProcessBuilder builder = new ProcessBuilder(args);
+        if (capture) {
+            builder.redirectErrorStream(true);
+        }
+        else {
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.redirectError(ProcessBuilder.Redirect.DISCARD);
+        }
+        Process process;
+        long spawnStart = System.currentTimeMillis();
+        try {
+            process = builder.start();
+        }
+        catch (Throwable ex) {
+            throttle.release();
+            exitCode.completeExceptionally(ex);
+            return;
+        }
+        startedCount.incrementAndGet();
+        LaunchMetrics.getDefault().recordSpawn(
+                System.currentTimeMillis() - spawnStart);
+        try {
+            process.getOutputStream().close();
+        }
+        catch (IOException ex) {
+            stdinCloseFailures.incrementAndGet();
+        }
+        if (capture) {
+            captureOutput(process, args, logger);
+        }
+        final Runnable release = new Runnable() {
+            private final AtomicBoolean released = new AtomicBoolean(false);
+
+            public void run() {
+                if (released.compareAndSet(false, true)) {
+                    throttle.release();
+                }
+            }
+        };
+        if (listener != null) {
+            try {
+                listener.processStarted(process);
+            }
+            catch (Throwable ex) {
+                // the throttle is still released when the wait ends
+                exitCode.completeExceptionally(ex);
+            }
+        }
+        process.onExit().whenCompleteAsync(
+                new BiConsumer<Process, Throwable>() {
+            public void accept(Process exited, Throwable ex) {
+                exitedCount.incrementAndGet();
+                release.run();
+                if (ex != null) {
+                    exitCode.completeExceptionally(ex);
+                }
+                else {
+                    exitCode.complete(Integer.valueOf(exited.exitValue()));
+                }
+            }
+        }, processExecutor);
+        // work out how long to wait for the process
+        LaunchTimeouts timeouts = LaunchTimeouts.getDefault();
+        long detachAfter = detachable ? timeouts.getDetachAfter() : 0L;
+        long stepTimeout = timeouts.getStepTimeout();
+        long waitMillis = 0L;
+        int outcome = LaunchResult.EXIT_TIMED_OUT;
+        if (detachAfter > 0L &&
+            (stepTimeout == 0L || detachAfter < stepTimeout)) {
+            waitMillis = detachAfter;
+            outcome = LaunchResult.EXIT_DETACHED;
+        }
+        else if (stepTimeout > 0L) {
+            waitMillis = stepTimeout;
+        }
+        if (deadline > 0L) {
+            long remaining = Math.max(deadline - System.currentTimeMillis(),
+                                      1L);
+            if (waitMillis == 0L || remaining < waitMillis) {
+                waitMillis = remaining;
+                outcome = LaunchResult.EXIT_TIMED_OUT;
+            }
+        }
+        if (waitMillis > 0L) {
+            final Integer waitOutcome = Integer.valueOf(outcome);
+            CompletableFuture.delayedExecutor(waitMillis,
+                                              TimeUnit.MILLISECONDS,
+                                              processExecutor)
+                    .execute(new Runnable() {
+                public void run() {
+                    // the process is left running; only the wait ends
+                    exitCode.complete(waitOutcome);
+                    release.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the first bytes of the process output and logs them once
+     * the process closes its output, which for a browser left running
+     * may be when it exits. Output beyond the capture size is read
+     * and dropped so the process never blocks on a full pipe.
+     */
+    private static void captureOutput(final Process process,
+                                      final String[] args,
+                                      final AbstractLogger logger) {
+        final InputStream output = process.getInputStream();
+        openStreamCount.incrementAndGet();
+        final int captureBytes = getCaptureBytes();
+        Runnable drain = new Runnable() {
+            public void run() {
+                ByteArrayOutputStream captured = new ByteArrayOutputStream();
+                long dropped = 0L;
+                byte[] buf = new byte[1024];
+                try {
+                    int count;
+                    while ((count = output.read(buf)) != -1) {
+                        int keep = Math.min(count,
+                                            captureBytes - captured.size());
+                        if (keep > 0) {
+                            captured.write(buf, 0, keep);
+                        }
+                        dropped += count - keep;
+                    }
+                }
+                catch (IOException ex) {
+                    logger.debug("error reading browser output: " + ex);
+                }
+                finally {
+                    try {
+                        output.close();
+                    }
+                    catch (IOException ex) {
+                        // nothing left to read
+                    }
+                    openStreamCount.decrementAndGet();
+                }
+                if (captured.size() > 0) {
+                    StringBuffer buffer = new StringBuffer();
+                    buffer.append("output of ");
+                    buffer.append(Arrays.asList(args));
+                    buffer.append(": ");
+                    buffer.append(captured.toString());
+                    if (dropped > 0L) {
+                        buffer.append("... (");
+                        buffer.append(dropped);
+                        buffer.append(" more bytes)");
+                    }
+                    logger.debug(buffer.toString());
+                }
+            }
+        };
+        try {
+            getCaptureExecutor().execute(drain);
+        }
+        catch (RuntimeException ex) {
+            // without a reader the output could fill the pipe
+            openStreamCount.decrementAndGet();
+            try {
+                output.close();
+            }
+            catch (IOException ioex) {
+                // ignore
+            }
+        }
+    }
+
+    private static int getCaptureBytes() {
+        String value = System.getProperty(CAPTURE_BYTES_PROPERTY, null);
+        if (value != null) {
+            try {
+                return Math.max(Integer.parseInt(value.trim()), 0);
+            }
+            catch (NumberFormatException ex) {
+                // fall through to the default
+            }
+        }
+        return DEFAULT_CAPTURE_BYTES;
+    }
+
+    private static synchronized ExecutorService getCaptureExecutor() {
+        if (captureExecutor == null) {
+            captureExecutor = Executors.newCachedThreadPool(
+                    new ThreadFactory() {
+                private final AtomicInteger threadCounter =
+                        new AtomicInteger(1);
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                                               "BrowserLauncher-output-" +
+                                               threadCounter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return captureExecutor;
+    }
+
+    /**
+     * Returns the number of browser commands started.
+     *
+     * @return long
+     */
+    public static long getStartedCount() {
+        return startedCount.get();
+    }
+
+    /**
+     * Returns the number of browser commands that have exited.
+     *
+     * @return long
+     */
+    public static long getExitedCount() {
+        return exitedCount.get();
+    }
+
+    /**
+     * Returns the number of browser commands started that have not
+     * exited yet. Detached browsers are counted until they exit.
+     *
+     * @return long
+     */
+    public static long getLiveProcessCount() {
+        return startedCount.get() - exitedCount.get();
+    }
+
+    /**
+     * Returns the number of captured output streams still open.
+     * Always zero while debug logging is off.
+     *
+     * @return int
+     */
+    public static int getOpenStreamCount() {
+        return openStreamCount.get();
+    }
+
+    /**
+     * Returns the number of commands whose stdin could not be closed.
+     *
+     * @return long
+     */
+    public static long getStdinCloseFailureCount() {
+        return stdinCloseFailures.get();
+    }
+
+    /**
+     * Returns the counters as a string for diagnostics.
+     *
+     * @return String
+     */
+    public static String getStatistics() {
+        long started = startedCount.get();
+        long exited = exitedCount.get();
+        return "BrowserProcessRunner[started=" + started +
+                ", exited=" + exited +
+                ", live=" + (started - exited) +
+                ", openStreams=" + openStreamCount.get() +
+                ", stdinCloseFailures=" + stdinCloseFailures.get() + "]";
+    }
+
+    /**
+     * Throws if the command was still running when the wait for it
+     * timed out. The browser launching classes call it on each exit
+     * code so that a timed out command ends the launch: starting the
+     * next command of the chain while the first is still running
+     * could open a second browser.
+     *
+     * @param exitCode int
+     * @throws CompletionException holding a TimeoutException
+     */
+    public static void checkNotTimedOut(int exitCode) {
+        if (exitCode == LaunchResult.EXIT_TIMED_OUT) {
+            throw new CompletionException(new TimeoutException(
+                    "browser command still running when its wait timed out"));
+        }
+    }
+
+    /**
+     * Starts the attempts one after another, each once the previous
+     * one has completed with false, and stops at the first that
+     * completes with true. The returned future completes with false
+     * if no attempt succeeds, and exceptionally as soon as an
+     * attempt fails.
+     *
+     * @param attempts Iterator of Supplier objects starting each attempt
+     * @return CompletableFuture
+     */
+    public static CompletableFuture<Boolean> tryInOrder(
+            final Iterator<? extends Supplier<CompletableFuture<Boolean>>> attempts) {
+        if (!attempts.hasNext()) {
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        CompletableFuture<Boolean> attempt;
+        try {
+            attempt = attempts.next().get();
+        }
+        catch (RuntimeException ex) {
+            attempt = new CompletableFuture<Boolean>();
+            attempt.completeExceptionally(ex);
+        }
+        return attempt.thenCompose(
+                new Function<Boolean, CompletionStage<Boolean>>() {
+            public CompletionStage<Boolean> apply(Boolean success) {
+                if (success.booleanValue()) {
+                    return CompletableFuture.completedFuture(success);
+                }
+                return tryInOrder(attempts);
+            }
+        });
+    }
+
+    private static final class ProcessThreadFactory
+            implements ThreadFactory {
+        private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+        public Thread newThread(Runnable runnable) {
+            // not daemons; they time out once no command is running
+            return new Thread(runnable,
+                              "BrowserLauncher-process-" +
+                              threadCounter.getAndIncrement());
+        }
+    }
+}
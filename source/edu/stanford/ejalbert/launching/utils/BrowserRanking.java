@@ -0,0 +1,425 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+import edu.stanford.ejalbert.launching.BrowserDescription;
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Learns which browsers work from the outcome of launches and orders
+ * the browsers tried by non-targetted launches accordingly, so the
+ * first command run usually goes to a working browser.
+ * <p>
+ * Browsers whose last launch succeeded come first, fastest first by
+ * a moving average of their launch times. Browsers not tried yet
+ * follow in their configured order, and browsers whose last launch
+ * failed come last, those failing fewest times in a row first.
+ * <p>
+ * The ranking is only used if the system property
+ * {@link #RANKING_PROPERTY RANKING_PROPERTY} is set to true. The
+ * browser from the
+ * {@link edu.stanford.ejalbert.launching.IBrowserLaunching#BROWSER_SYSTEM_PROPERTY
+ * BROWSER_SYSTEM_PROPERTY} and explicit browser lists are always
+ * tried in the order given. The ranking is stored next to the
+ * {@link DiscoveryCache DiscoveryCache} snapshots and reused by later
+ * JVM runs.
+ */
+public final class BrowserRanking {
+    /**
+     * Key to system property that turns the learned browser order on.
+     * The value is true or false.
+     */
+    public static final String RANKING_PROPERTY =
+            "edu.stanford.ejalbert.ranking";
+    /**
+     * weight of the newest launch time in the moving average
+     */
+    private static final double LATENCY_WEIGHT = 0.3;
+    /**
+     * shortest time between writes of the ranking file
+     */
+    private static final long SAVE_INTERVAL_MILLIS = 5000L;
+    private static final String KEY_LATENCY_SUFFIX = ".latency";
+    private static final String KEY_FAILURES_SUFFIX = ".failures";
+    private static final String KEY_SUCCESS_SUFFIX = ".lastsuccess";
+
+    private static BrowserRanking defaultRanking = null;
+
+    private final File file; // in ctor; null if not stored
+    /**
+     * browser display name => Outcomes, guarded by this
+     */
+    private final Map<String, Outcomes> outcomes =
+            new HashMap<String, Outcomes>();
+    // guarded by this
+    private boolean modified = false;
+    private long lastSaveMillis = 0L;
+    private boolean flushOnExit = false;
+    /**
+     * held while the file is written, so writes do not share the
+     * temporary file and land in the order of their snapshots
+     */
+    private final Object saveLock = new Object();
+
+    /**
+     * Creates an empty ranking stored in the passed file.
+     *
+     * @param file File null to keep the ranking in memory only
+     */
+    public BrowserRanking(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns true if non-targetted launches should use the ranking.
+     *
+     * @return boolean
+     */
+    public static boolean isEnabled() {
+        return Boolean.valueOf(
+                System.getProperty(RANKING_PROPERTY, "false")).booleanValue();
+    }
+
+    /**
+     * Returns the ranking shared by the browser launching classes,
+     * loading it from disk on first use.
+     *
+     * @param logger AbstractLogger
+     * @return BrowserRanking
+     */
+    public static synchronized BrowserRanking getDefault(AbstractLogger logger) {
+        if (defaultRanking == null) {
+            BrowserRanking ranking = new BrowserRanking(
+                    new File(DiscoveryCache.getDiskCacheDir(),
+                             "ranking.properties"));
+            ranking.load(logger);
+            defaultRanking = ranking;
+        }
+        return defaultRanking;
+    }
+
+    /**
+     * Replaces the ranking shared by the browser launching classes.
+     *
+     * @param ranking BrowserRanking
+     */
+    public static synchronized void setDefault(BrowserRanking ranking) {
+        if (ranking == null) {
+            throw new IllegalArgumentException("ranking cannot be null.");
+        }
+        defaultRanking = ranking;
+    }
+
+    /**
+     * Records that a launch with the browser succeeded.
+     *
+     * @param browserName String display name
+     * @param latencyMillis long time the launch took
+     * @param logger AbstractLogger
+     */
+    public void recordSuccess(String browserName,
+                              long latencyMillis,
+                              AbstractLogger logger) {
+        synchronized (this) {
+            Outcomes browser = getOutcomes(browserName);
+            browser.latencyMillis = browser.lastSuccessMillis == 0L ?
+                    latencyMillis :
+                    LATENCY_WEIGHT * latencyMillis +
+                    (1.0 - LATENCY_WEIGHT) * browser.latencyMillis;
+            browser.lastSuccessMillis = System.currentTimeMillis();
+            browser.failures = 0;
+            modified = true;
+        }
+        saveIfDue(logger);
+    }
+
+    /**
+     * Records that a launch with the browser failed.
+     *
+     * @param browserName String display name
+     * @param logger AbstractLogger
+     */
+    public void recordFailure(String browserName,
+                              AbstractLogger logger) {
+        synchronized (this) {
+            getOutcomes(browserName).failures++;
+            modified = true;
+        }
+        saveIfDue(logger);
+    }
+
+    /**
+     * Records the outcome of the launch with the browser when it
+     * completes: a success if it completes with true, a failure if it
+     * completes with false or its command could not be spawned.
+     * Launches rejected by the spawn throttle, timed out or cancelled
+     * are not recorded.
+     *
+     * @param launch CompletableFuture of a launch with the browser
+     * @param browserName String display name
+     * @param logger AbstractLogger
+     * @return CompletableFuture completing like the launch
+     */
+    public CompletableFuture<Boolean> track(CompletableFuture<Boolean> launch,
+                                            final String browserName,
+                                            final AbstractLogger logger) {
+        final long start = System.currentTimeMillis();
+        return launch.whenComplete(new BiConsumer<Boolean, Throwable>() {
+            public void accept(Boolean success, Throwable ex) {
+                if (ex == null && success.booleanValue()) {
+                    recordSuccess(browserName,
+                                  System.currentTimeMillis() - start,
+                                  logger);
+                }
+                else if (ex == null || LaunchingUtils.isBrowserFailure(ex)) {
+                    recordFailure(browserName, logger);
+                }
+            }
+        });
+    }
+
+    private Outcomes getOutcomes(String browserName) {
+        Outcomes browser = outcomes.get(browserName);
+        if (browser == null) {
+            browser = new Outcomes();
+            outcomes.put(browserName, browser);
+        }
+        return browser;
+    }
+
+    /**
+     * Returns the browsers in ranked order. Browsers ranking alike
+     * keep their order.
+     *
+     * @param browsers List of BrowserDescription objects
+     * @return List a new list
+     */
+    public <T extends BrowserDescription> List<T> sort(List<T> browsers) {
+        final Map<T, double[]> ranks = new HashMap<T, double[]>();
+        synchronized (this) {
+            Iterator<T> iter = browsers.iterator();
+            while (iter.hasNext()) {
+                T browser = iter.next();
+                Outcomes browserOutcomes = outcomes.get(
+                        browser.getBrowserDisplayName());
+                ranks.put(browser, browserOutcomes == null ?
+                          new double[] {1.0, 0.0} :
+                          browserOutcomes.getRank());
+            }
+        }
+        List<T> sorted = new ArrayList<T>(browsers);
+        Collections.sort(sorted, new Comparator<T>() {
+            public int compare(T browser1, T browser2) {
+                double[] rank1 = ranks.get(browser1);
+                double[] rank2 = ranks.get(browser2);
+                int order = Double.compare(rank1[0], rank2[0]);
+                return order != 0 ? order : Double.compare(rank1[1], rank2[1]);
+            }
+        });
+        return sorted;
+    }
+
+    /**
+     * Forgets everything learned. The stored ranking is overwritten
+     * by the next save.
+     */
+    public synchronized void clear() {
+        outcomes.clear();
+        modified = true;
+    }
+
+    private void load(AbstractLogger logger) {
+        if (file == null || !file.isFile()) {
+            return;
+        }
+        Properties props = new Properties();
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            props.load(in);
+        }
+        catch (IOException ex) {
+            logger.error("unable to read browser ranking " + file.getPath(),
+                         ex);
+            return;
+        }
+        finally {
+            if (in != null) {
+                try {
+                    in.close();
+                }
+                catch (IOException ex) {
+                    // ignore
+                }
+            }
+        }
+        synchronized (this) {
+            Iterator<String> iter = props.stringPropertyNames().iterator();
+            while (iter.hasNext()) {
+                String key = iter.next();
+                if (!key.endsWith(KEY_LATENCY_SUFFIX)) {
+                    continue;
+                }
+                String name = key.substring(
+                        0, key.length() - KEY_LATENCY_SUFFIX.length());
+                try {
+                    Outcomes browser = getOutcomes(name);
+                    browser.latencyMillis = Double.parseDouble(
+                            props.getProperty(key));
+                    browser.failures = Integer.parseInt(props.getProperty(
+                            name + KEY_FAILURES_SUFFIX, "0"));
+                    browser.lastSuccessMillis = Long.parseLong(
+                            props.getProperty(name + KEY_SUCCESS_SUFFIX, "0"));
+                }
+                catch (NumberFormatException ex) {
+                    outcomes.remove(name);
+                }
+            }
+        }
+    }
+
+    private void saveIfDue(final AbstractLogger logger) {
+        synchronized (this) {
+            if (file == null) {
+                return;
+            }
+            if (!flushOnExit) {
+                // outcomes recorded after the last write are not lost
+                flushOnExit = true;
+                Runtime.getRuntime().addShutdownHook(new Thread(
+                        new Runnable() {
+                    public void run() {
+                        save(logger);
+                    }
+                }, "BrowserLauncher-ranking-save"));
+            }
+            if (System.currentTimeMillis() - lastSaveMillis <
+                SAVE_INTERVAL_MILLIS) {
+                return;
+            }
+        }
+        save(logger);
+    }
+
+    /**
+     * Writes the ranking to its file if anything was recorded since
+     * the last write.
+     *
+     * @param logger AbstractLogger
+     */
+    public void save(AbstractLogger logger) {
+        synchronized (saveLock) {
+            write(logger);
+        }
+    }
+
+    private void write(AbstractLogger logger) {
+        Properties props = new Properties();
+        synchronized (this) {
+            if (file == null || !modified) {
+                return;
+            }
+            Iterator<Map.Entry<String, Outcomes>> iter =
+                    outcomes.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<String, Outcomes> entry = iter.next();
+                String name = entry.getKey();
+                Outcomes browser = entry.getValue();
+                props.setProperty(name + KEY_LATENCY_SUFFIX,
+                                  Double.toString(browser.latencyMillis));
+                props.setProperty(name + KEY_FAILURES_SUFFIX,
+                                  Integer.toString(browser.failures));
+                props.setProperty(name + KEY_SUCCESS_SUFFIX,
+                                  Long.toString(browser.lastSuccessMillis));
+            }
+            modified = false;
+            lastSaveMillis = System.currentTimeMillis();
+        }
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        OutputStream out = null;
+        try {
+            file.getParentFile().mkdirs();
+            out = new FileOutputStream(tempFile);
+            props.store(out, "BrowserLauncher2 browser ranking");
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                file.delete();
+                tempFile.renameTo(file);
+            }
+        }
+        catch (IOException ex) {
+            logger.error("unable to write browser ranking " + file.getPath(),
+                         ex);
+        }
+        finally {
+            if (out != null) {
+                try {
+                    out.close();
+                }
+                catch (IOException ex) {
+                    // ignore, already reporting the write failure
+                }
+            }
+        }
+    }
+
+    /**
+     * What has been learned about one browser.
+     */
+    private static final class Outcomes {
+        private double latencyMillis = 0.0;
+        private long lastSuccessMillis = 0L;
+        private int failures = 0;
+
+        /**
+         * Returns the group (0 working, 1 untried, 2 failing) and the
+         * order within the group.
+         */
+        double[] getRank() {
+            if (failures > 0) {
+                return new double[] {2.0, failures};
+            }
+            if (lastSuccessMillis > 0L) {
+                return new double[] {0.0, latencyMillis};
+            }
+            return new double[] {1.0, 0.0};
+        }
+    }
+}
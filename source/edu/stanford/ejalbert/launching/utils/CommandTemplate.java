@@ -0,0 +1,397 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A browser command line from one of the config files, split into
+ * arguments once so that each launch only has to fill in the values.
+ * <p>
+ * The template is split at spaces. Text between double quotes is
+ * kept in one argument, so a value such as a url or a path that
+ * contains spaces is never split. The placeholders
+ * <code>&lt;browser&gt;</code>, <code>&lt;url&gt;</code>,
+ * <code>&lt;path&gt;</code> and <code>&lt;args&gt;</code> may appear
+ * anywhere in an argument. An <code>&lt;args&gt;</code> placeholder
+ * standing alone as an argument expands to zero or more arguments,
+ * split at spaces. An unquoted argument that expands to nothing is
+ * left out.
+ * <p>
+ * Command lines run directly (unix) drop the quote characters.
+ * Command lines passed through the Windows shell keep them, because
+ * cmd.exe needs them around urls containing characters such as
+ * <code>&amp;</code>.
+ */
+public final class CommandTemplate {
+    private static final String[] PLACEHOLDERS = {
+            "<browser>", "<url>", "<path>", "<args>"};
+    private static final int BROWSER = 0;
+    private static final int URL = 1;
+    private static final int PATH = 2;
+    private static final int ARGS = 3;
+
+    private final String template; // in ctor
+    /**
+     * one entry per argument; each entry holds the literal text
+     * (String) and placeholder (Integer) parts of the argument
+     */
+    private final Object[][] tokens; // in ctor
+    /**
+     * true for arguments containing quotes, which are kept even
+     * when they expand to nothing
+     */
+    private final boolean[] quoted; // in ctor
+
+    private CommandTemplate(String template,
+                            Object[][] tokens,
+                            boolean[] quoted) {
+        this.template = template;
+        this.tokens = tokens;
+        this.quoted = quoted;
+    }
+
+    /**
+     * Compiles a template whose command is run directly. Quote
+     * characters group text into one argument and are dropped.
+     *
+     * @param template String
+     * @return CommandTemplate
+     */
+    public static CommandTemplate compile(String template) {
+        return compile(template, false);
+    }
+
+    /**
+     * Compiles a template. If keepQuotes is true, the quote
+     * characters stay in the arguments for the program receiving
+     * them to interpret.
+     *
+     * @param template String
+     * @param keepQuotes boolean
+     * @return CommandTemplate
+     */
+    public static CommandTemplate compile(String template,
+                                          boolean keepQuotes) {
+        if (template == null) {
+            throw new IllegalArgumentException("template cannot be null.");
+        }
+        List<Object[]> tokens = new ArrayList<Object[]>();
+        List<Boolean> quotedTokens = new ArrayList<Boolean>();
+        List<Object> parts = new ArrayList<Object>();
+        StringBuffer literal = new StringBuffer();
+        boolean inQuotes = false;
+        boolean tokenQuoted = false;
+        int length = template.length();
+        int pos = 0;
+        while (pos < length) {
+            char c = template.charAt(pos);
+            if (c == '"') {
+                inQuotes = !inQuotes;
+                tokenQuoted = true;
+                if (keepQuotes) {
+                    literal.append(c);
+                }
+                pos++;
+            }
+            else if (c == ' ' && !inQuotes) {
+                endToken(tokens, quotedTokens, parts, literal, tokenQuoted);
+                tokenQuoted = false;
+                pos++;
+            }
+            else {
+                int placeholder = placeholderAt(template, pos);
+                if (placeholder >= 0) {
+                    if (literal.length() > 0) {
+                        parts.add(literal.toString());
+                        literal.setLength(0);
+                    }
+                    parts.add(Integer.valueOf(placeholder));
+                    pos += PLACEHOLDERS[placeholder].length();
+                }
+                else {
+                    literal.append(c);
+                    pos++;
+                }
+            }
+        }
+        endToken(tokens, quotedTokens, parts, literal, tokenQuoted);
+        boolean[] quoted = new boolean[quotedTokens.size()];
+        for (int i = 0; i < quoted.length; i++) {
+            quoted[i] = quotedTokens.get(i).booleanValue();
+        }
+        return new CommandTemplate(
+                template,
+                tokens.toArray(new Object[tokens.size()][]),
+                quoted);
+    }
+
+    private static int placeholderAt(String template, int pos) {
+        if (template.charAt(pos) == '<') {
+            for (int i = 0; i < PLACEHOLDERS.length; i++) {
+                if (template.startsWith(PLACEHOLDERS[i], pos)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static void endToken(List<Object[]> tokens,
+                                 List<Boolean> quotedTokens,
+                                 List<Object> parts,
+                                 StringBuffer literal,
+                                 boolean tokenQuoted) {
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+            literal.setLength(0);
+        }
+        if (!parts.isEmpty() || tokenQuoted) {
+            tokens.add(parts.toArray());
+            quotedTokens.add(Boolean.valueOf(tokenQuoted));
+            parts.clear();
+        }
+    }
+
+    /**
+     * Returns the command line for a browser and url.
+     *
+     * @param browser String value for &lt;browser&gt;
+     * @param urlString String value for &lt;url&gt;
+     * @return String[]
+     */
+    public String[] fill(String browser,
+                        String urlString) {
+        return fill(browser, urlString, null, null);
+    }
+
+    /**
+     * Returns the command line with the placeholders replaced by the
+     * passed values. Null values are treated as empty strings.
+     *
+     * @param browser String value for &lt;browser&gt;
+     * @param urlString String value for &lt;url&gt;
+     * @param path String value for &lt;path&gt;
+     * @param args String value for &lt;args&gt;
+     * @return String[]
+     */
+    public String[] fill(String browser,
+                         String urlString,
+                         String path,
+                         String args) {
+        String[] values = {
+                browser == null ? "" : browser,
+                urlString == null ? "" : urlString,
+                path == null ? "" : path,
+                args == null ? "" : args};
+        List<String> argv = null;
+        String[] filled = new String[tokens.length];
+        int count = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            Object[] parts = tokens[i];
+            String arg;
+            if (parts.length == 1 && parts[0] instanceof Integer) {
+                int placeholder = ((Integer) parts[0]).intValue();
+                if (placeholder == ARGS && !quoted[i]) {
+                    // splice the args in as separate arguments
+                    String[] split = splitArgs(values[ARGS]);
+                    if (split.length > 1) {
+                        if (argv == null) {
+                            argv = new ArrayList<String>();
+                        }
+                        for (int j = 0; j < count; j++) {
+                            argv.add(filled[j]);
+                        }
+                        count = 0;
+                        for (int j = 0; j < split.length; j++) {
+                            argv.add(split[j]);
+                        }
+                        continue;
+                    }
+                    arg = split.length == 1 ? split[0] : "";
+                }
+                else {
+                    arg = values[placeholder];
+                }
+            }
+            else if (parts.length == 1) {
+                arg = (String) parts[0];
+            }
+            else {
+                StringBuffer buf = new StringBuffer();
+                for (int j = 0; j < parts.length; j++) {
+                    if (parts[j] instanceof Integer) {
+                        buf.append(values[((Integer) parts[j]).intValue()]);
+                    }
+                    else {
+                        buf.append((String) parts[j]);
+                    }
+                }
+                arg = buf.toString();
+            }
+            if (arg.length() > 0 || quoted[i]) {
+                filled[count++] = arg;
+            }
+        }
+        if (argv != null) {
+            for (int j = 0; j < count; j++) {
+                argv.add(filled[j]);
+            }
+            return argv.toArray(new String[argv.size()]);
+        }
+        if (count == filled.length) {
+            return filled;
+        }
+        String[] trimmed = new String[count];
+        System.arraycopy(filled, 0, trimmed, 0, count);
+        return trimmed;
+    }
+
+    /**
+     * Returns true if the template can take several urls: its last
+     * argument is an unquoted &lt;url&gt; placeholder on its own.
+     *
+     * @return boolean
+     */
+    public boolean acceptsManyUrls() {
+        return getUrlGroupStart() >= 0;
+    }
+
+    /**
+     * Returns the command line for a browser and several urls. The
+     * last argument is repeated for each url, together with the
+     * option arguments (those starting with '-') just before it, so
+     * <code>&lt;browser&gt; -new-tab &lt;url&gt;</code> becomes
+     * <code>firefox -new-tab url1 -new-tab url2</code>.
+     *
+     * @param browser String value for &lt;browser&gt;
+     * @param urlStrings List of String objects
+     * @return String[]
+     * @throws IllegalArgumentException if the template does not
+     *         {@link #acceptsManyUrls() accept several urls} or one of
+     *         the urls is empty
+     */
+    public String[] fill(String browser,
+                         List<String> urlStrings) {
+        int groupStart = getUrlGroupStart();
+        if (groupStart < 0) {
+            throw new IllegalArgumentException(
+                    "template takes a single url: " + template);
+        }
+        if (urlStrings.isEmpty()) {
+            throw new IllegalArgumentException("urls cannot be empty.");
+        }
+        List<String> argv = new ArrayList<String>();
+        for (int i = 0; i < urlStrings.size(); i++) {
+            String urlString = urlStrings.get(i);
+            if (urlString == null || urlString.length() == 0) {
+                throw new IllegalArgumentException("url cannot be empty.");
+            }
+            if (i == 0) {
+                String[] filled = fill(browser, urlString);
+                for (int j = 0; j < filled.length; j++) {
+                    argv.add(filled[j]);
+                }
+                continue;
+            }
+            for (int j = groupStart; j < tokens.length - 1; j++) {
+                argv.add((String) tokens[j][0]);
+            }
+            argv.add(urlString);
+        }
+        return argv.toArray(new String[argv.size()]);
+    }
+
+    /**
+     * Returns the number of bytes the arguments repeated with each
+     * url take, not counting the url, or -1 if the template does not
+     * accept several urls.
+     *
+     * @return int
+     */
+    public int getBytesPerUrl() {
+        int groupStart = getUrlGroupStart();
+        if (groupStart < 0) {
+            return -1;
+        }
+        // one for the terminating NUL of each option argument
+        int bytes = 0;
+        for (int j = groupStart; j < tokens.length - 1; j++) {
+            bytes += ((String) tokens[j][0]).length() + 1;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the index of the first argument repeated with each url,
+     * or -1 if the template does not accept several urls.
+     */
+    private int getUrlGroupStart() {
+        int last = tokens.length - 1;
+        if (last < 1 || quoted[last] || tokens[last].length != 1 ||
+            !Integer.valueOf(URL).equals(tokens[last][0])) {
+            return -1;
+        }
+        // the url has to be the only one on the command line
+        for (int i = 0; i < last; i++) {
+            for (int j = 0; j < tokens[i].length; j++) {
+                if (Integer.valueOf(URL).equals(tokens[i][j])) {
+                    return -1;
+                }
+            }
+        }
+        int start = last;
+        // argument 0 is the executable
+        while (start > 1 && !quoted[start - 1] &&
+               tokens[start - 1].length == 1 &&
+               tokens[start - 1][0] instanceof String &&
+               ((String) tokens[start - 1][0]).startsWith("-")) {
+            start--;
+        }
+        return start;
+    }
+
+    private static String[] splitArgs(String args) {
+        List<String> split = new ArrayList<String>();
+        int start = 0;
+        int length = args.length();
+        for (int i = 0; i <= length; i++) {
+            if (i == length || args.charAt(i) == ' ') {
+                if (i > start) {
+                    split.add(args.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return split.toArray(new String[split.size()]);
+    }
+
+    /**
+     * Returns the template as it appears in the config file.
+     *
+     * @return String
+     */
+    public String toString() {
+        return template;
+    }
+}
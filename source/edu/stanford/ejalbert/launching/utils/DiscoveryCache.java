@@ -0,0 +1,532 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Caches the results of browser discovery so that creating a
+ * launcher does not have to probe for every browser again.
+ * <p>
+ * Results are kept per value of the PATH environment variable and
+ * shared by all launcher instances in the JVM. A snapshot is only
+ * used while the modification times of the PATH directories and of
+ * the executables found are unchanged; installing or removing a
+ * browser therefore invalidates it.
+ * <p>
+ * If the system property
+ * {@link #DISK_CACHE_PROPERTY DISK_CACHE_PROPERTY} is set to true,
+ * snapshots are also written to the user's cache directory and
+ * reused by later JVM runs.
+ * <p>
+ * While the {@link DiscoveryWatcher DiscoveryWatcher} watches the PATH
+ * directories, the snapshot is kept up to date by re-resolving only
+ * the executables that appeared or disappeared, and the PATH
+ * directories are not checked on each use.
+ */
+public final class DiscoveryCache {
+    /**
+     * Key to system property that enables the on-disk snapshot of
+     * browser discovery results. The value is true or false.
+     */
+    public static final String DISK_CACHE_PROPERTY =
+            "edu.stanford.ejalbert.discovery.diskcache";
+    /**
+     * Key to system property that overrides the directory the
+     * on-disk snapshot is written to.
+     */
+    public static final String DISK_CACHE_DIR_PROPERTY =
+            "edu.stanford.ejalbert.discovery.cachedir";
+    /**
+     * value stored for executables that were not found
+     */
+    private static final String NOT_FOUND = "";
+    private static final String KEY_PATH = "path";
+    private static final String KEY_DIR_PREFIX = "dir.";
+    private static final String KEY_EXE_PREFIX = "exe.";
+    private static final String KEY_MTIME_PREFIX = "mtime.";
+
+    /**
+     * PATH value => Snapshot
+     */
+    private static final Map<String, Snapshot> snapshots =
+            new HashMap<String, Snapshot>();
+    /**
+     * number of discovery results changed by the watcher
+     */
+    private static volatile long changeCount = 0L;
+
+    private DiscoveryCache() {
+    }
+
+    /**
+     * Returns the snapshot for the current PATH. A new, empty
+     * snapshot is returned if there is none or the existing one is
+     * no longer valid.
+     *
+     * @param logger AbstractLogger
+     * @return Snapshot
+     */
+    public static Snapshot getSnapshot(AbstractLogger logger) {
+        String path = getPath();
+        if (DiscoveryWatcher.isWatchEnabled()) {
+            DiscoveryWatcher.getDefault(logger);
+        }
+        synchronized (snapshots) {
+            Snapshot snapshot = snapshots.get(path);
+            if (snapshot != null &&
+                !snapshot.isValid(DiscoveryWatcher.isWatching(path))) {
+                logger.debug("discovery cache invalidated for PATH " + path);
+                snapshot = null;
+            }
+            if (snapshot == null && isDiskCacheEnabled()) {
+                snapshot = Snapshot.load(path, logger);
+            }
+            if (snapshot == null) {
+                snapshot = new Snapshot(path);
+            }
+            snapshots.put(path, snapshot);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Returns the number of discovery results changed by the
+     * {@link DiscoveryWatcher DiscoveryWatcher}. Launchers compare it
+     * with the count they were built with to find out whether the
+     * available browsers may have changed.
+     *
+     * @return long
+     */
+    public static long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Looks the executables up again after PATH directories changed
+     * and records the results that differ in the snapshot for the
+     * PATH. Only executables the snapshot already holds a result for
+     * are looked up.
+     *
+     * @param path String PATH value
+     * @param dirs Collection of the directories that changed, or null
+     *        if any may have
+     * @param exeNames Collection of the file names that changed, or
+     *        null to look up every executable in the snapshot
+     * @param logger AbstractLogger
+     * @return int number of results that changed
+     */
+    static int refresh(String path,
+                       Collection<String> dirs,
+                       Collection<String> exeNames,
+                       AbstractLogger logger) {
+        synchronized (snapshots) {
+            Snapshot snapshot = snapshots.get(path);
+            if (snapshot == null) {
+                return 0;
+            }
+            // forget the lookups made before the change
+            if (dirs == null) {
+                ExecutableResolver.clear();
+            }
+            else {
+                Iterator<String> dirIter = dirs.iterator();
+                while (dirIter.hasNext()) {
+                    ExecutableResolver.clear(dirIter.next());
+                }
+            }
+            List<String> names = new ArrayList<String>(
+                    exeNames == null ? snapshot.executables.keySet() :
+                    exeNames);
+            int changed = 0;
+            for (int idx = 0; idx < names.size(); idx++) {
+                String exeName = names.get(idx);
+                if (snapshot.contains(exeName) &&
+                    snapshot.update(exeName,
+                                    ExecutableResolver.resolve(exeName,
+                                                               logger))) {
+                    changed++;
+                    logger.info(exeName + " is now " +
+                                (snapshot.getExecutablePath(exeName) == null ?
+                                 "unavailable" :
+                                 snapshot.getExecutablePath(exeName)));
+                }
+            }
+            snapshot.dirTimes = Snapshot.getDirTimes(path);
+            if (changed > 0) {
+                changeCount += changed;
+            }
+            return changed;
+        }
+    }
+
+    /**
+     * Discards all in-process snapshots. On-disk snapshots are
+     * revalidated before they are used so they are left alone.
+     */
+    public static void clear() {
+        synchronized (snapshots) {
+            snapshots.clear();
+        }
+    }
+
+    /**
+     * Returns the value of the PATH environment variable or an
+     * empty String.
+     *
+     * @return String
+     */
+    static String getPath() {
+        String path = System.getenv("PATH");
+        return path == null ? "" : path;
+    }
+
+    private static boolean isDiskCacheEnabled() {
+        return Boolean.valueOf(
+                System.getProperty(DISK_CACHE_PROPERTY, "false")).booleanValue();
+    }
+
+    /**
+     * Returns the directory on-disk snapshots are stored in. Uses
+     * XDG_CACHE_HOME if set, otherwise ~/.cache.
+     *
+     * @return File
+     */
+    static File getDiskCacheDir() {
+        String dir = System.getProperty(DISK_CACHE_DIR_PROPERTY, null);
+        if (dir != null) {
+            return new File(dir);
+        }
+        String cacheHome = System.getenv("XDG_CACHE_HOME");
+        if (cacheHome == null || cacheHome.length() == 0) {
+            cacheHome = System.getProperty("user.home") +
+                        File.separator + ".cache";
+        }
+        return new File(cacheHome, "browserlauncher2");
+    }
+
+    /**
+     * Discovery results for one PATH value.
+     */
+    public static final class Snapshot {
+        private final String path; // in ctor
+        /**
+         * PATH directory => modification time when the snapshot was made
+         */
+        private volatile Map<String, Long> dirTimes; // in ctor
+        /**
+         * executable name => full path or NOT_FOUND
+         */
+        private final Map<String, String> executables =
+                new ConcurrentHashMap<String, String>();
+        /**
+         * full path => modification time of executables found
+         */
+        private final Map<String, Long> exeTimes =
+                new ConcurrentHashMap<String, Long>();
+        private volatile boolean modified = false;
+
+        private Snapshot(String path) {
+            this.path = path;
+            this.dirTimes = getDirTimes(path);
+        }
+
+        private Snapshot(String path,
+                         Map<String, Long> dirTimes) {
+            this.path = path;
+            this.dirTimes = dirTimes;
+        }
+
+        private static Map<String, Long> getDirTimes(String path) {
+            Map<String, Long> times = new HashMap<String, Long>();
+            String[] dirs = path.split(File.pathSeparator);
+            for (int idx = 0; idx < dirs.length; idx++) {
+                if (dirs[idx].length() > 0) {
+                    times.put(dirs[idx],
+                              Long.valueOf(new File(dirs[idx]).lastModified()));
+                }
+            }
+            return times;
+        }
+
+        /**
+         * Returns true if no PATH directory and no executable found
+         * has changed since the results were recorded.
+         *
+         * @return boolean
+         */
+        boolean isValid() {
+            return isValid(false);
+        }
+
+        /**
+         * Returns true if no executable found has changed since the
+         * results were recorded, nor any PATH directory unless they
+         * are watched.
+         *
+         * @param dirsWatched boolean true if changes to the PATH
+         *        directories are applied by the watcher
+         * @return boolean
+         */
+        private boolean isValid(boolean dirsWatched) {
+            if (!dirsWatched && !dirTimes.equals(getDirTimes(path))) {
+                return false;
+            }
+            Iterator<Map.Entry<String, Long>> iter =
+                    exeTimes.entrySet().iterator();
+            while (iter.hasNext()) {
+                Map.Entry<String, Long> entry = iter.next();
+                if (new File(entry.getKey()).lastModified() !=
+                    entry.getValue().longValue()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns true if the snapshot holds a result for the
+         * executable.
+         *
+         * @param exeName String
+         * @return boolean
+         */
+        public boolean contains(String exeName) {
+            return executables.containsKey(exeName);
+        }
+
+        /**
+         * Returns the full path recorded for the executable or null if
+         * it was not found or has not been probed.
+         *
+         * @param exeName String
+         * @return String
+         */
+        public String getExecutablePath(String exeName) {
+            String exePath = executables.get(exeName);
+            return exePath == null || exePath.length() == 0 ? null : exePath;
+        }
+
+        /**
+         * Records the result of probing for an executable.
+         *
+         * @param exeName String
+         * @param exePath String full path or null if not found
+         */
+        public void put(String exeName,
+                        String exePath) {
+            if (exePath == null) {
+                executables.put(exeName, NOT_FOUND);
+            }
+            else {
+                executables.put(exeName, exePath);
+                exeTimes.put(exePath,
+                             Long.valueOf(new File(exePath).lastModified()));
+            }
+            modified = true;
+        }
+
+        /**
+         * Replaces the result recorded for an executable.
+         *
+         * @param exeName String
+         * @param exePath String full path or null if not found
+         * @return boolean true if the result changed
+         */
+        private boolean update(String exeName,
+                               String exePath) {
+            String oldPath = executables.get(exeName);
+            String newPath = exePath == null ? NOT_FOUND : exePath;
+            if (newPath.equals(oldPath)) {
+                return false;
+            }
+            put(exeName, exePath);
+            // keep checking the old executable if another name uses it
+            if (oldPath != null && oldPath.length() > 0 &&
+                !executables.containsValue(oldPath)) {
+                exeTimes.remove(oldPath);
+            }
+            return true;
+        }
+
+        /**
+         * Writes the snapshot to disk if the disk cache is enabled and
+         * new results have been recorded.
+         *
+         * @param logger AbstractLogger
+         */
+        public void save(AbstractLogger logger) {
+            if (!modified || !isDiskCacheEnabled()) {
+                return;
+            }
+            Properties props = new Properties();
+            props.setProperty(KEY_PATH, path);
+            Iterator<Map.Entry<String, Long>> timesIter =
+                    dirTimes.entrySet().iterator();
+            while (timesIter.hasNext()) {
+                Map.Entry<String, Long> entry = timesIter.next();
+                props.setProperty(KEY_DIR_PREFIX + entry.getKey(),
+                                  entry.getValue().toString());
+            }
+            Iterator<Map.Entry<String, String>> exeIter =
+                    executables.entrySet().iterator();
+            while (exeIter.hasNext()) {
+                Map.Entry<String, String> entry = exeIter.next();
+                props.setProperty(KEY_EXE_PREFIX + entry.getKey(),
+                                  entry.getValue());
+            }
+            timesIter = exeTimes.entrySet().iterator();
+            while (timesIter.hasNext()) {
+                Map.Entry<String, Long> entry = timesIter.next();
+                props.setProperty(KEY_MTIME_PREFIX + entry.getKey(),
+                                  entry.getValue().toString());
+            }
+            File cacheDir = getDiskCacheDir();
+            File cacheFile = getCacheFile(path);
+            File tempFile = new File(cacheDir, cacheFile.getName() + ".tmp");
+            OutputStream out = null;
+            try {
+                cacheDir.mkdirs();
+                out = new FileOutputStream(tempFile);
+                props.store(out, "BrowserLauncher2 browser discovery");
+                out.close();
+                out = null;
+                if (!tempFile.renameTo(cacheFile)) {
+                    cacheFile.delete();
+                    tempFile.renameTo(cacheFile);
+                }
+                modified = false;
+            }
+            catch (IOException ex) {
+                logger.error("unable to write discovery cache " +
+                             cacheFile.getPath(), ex);
+            }
+            finally {
+                if (out != null) {
+                    try {
+                        out.close();
+                    }
+                    catch (IOException ex) {
+                        // ignore, already reporting the write failure
+                    }
+                }
+            }
+        }
+
+        private static File getCacheFile(String path) {
+            return new File(getDiskCacheDir(),
+                            "discovery-" + Integer.toHexString(path.hashCode()) +
+                            ".properties");
+        }
+
+        /**
+         * Reads the on-disk snapshot for the PATH. Returns null if
+         * there is none, it belongs to another PATH, or it is no
+         * longer valid.
+         *
+         * @param path String
+         * @param logger AbstractLogger
+         * @return Snapshot
+         */
+        private static Snapshot load(String path,
+                                     AbstractLogger logger) {
+            File cacheFile = getCacheFile(path);
+            if (!cacheFile.isFile()) {
+                return null;
+            }
+            Properties props = new Properties();
+            InputStream in = null;
+            try {
+                in = new FileInputStream(cacheFile);
+                props.load(in);
+            }
+            catch (IOException ex) {
+                logger.error("unable to read discovery cache " +
+                             cacheFile.getPath(), ex);
+                return null;
+            }
+            finally {
+                if (in != null) {
+                    try {
+                        in.close();
+                    }
+                    catch (IOException ex) {
+                        // ignore, nothing left to read
+                    }
+                }
+            }
+            if (!path.equals(props.getProperty(KEY_PATH))) {
+                return null;
+            }
+            try {
+                Map<String, Long> dirTimes = new HashMap<String, Long>();
+                Snapshot snapshot = new Snapshot(path, dirTimes);
+                Iterator<String> keys = props.stringPropertyNames().iterator();
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    String value = props.getProperty(key);
+                    if (key.startsWith(KEY_DIR_PREFIX)) {
+                        dirTimes.put(key.substring(KEY_DIR_PREFIX.length()),
+                                     Long.valueOf(value));
+                    }
+                    else if (key.startsWith(KEY_EXE_PREFIX)) {
+                        snapshot.executables.put(
+                                key.substring(KEY_EXE_PREFIX.length()),
+                                value);
+                    }
+                    else if (key.startsWith(KEY_MTIME_PREFIX)) {
+                        snapshot.exeTimes.put(
+                                key.substring(KEY_MTIME_PREFIX.length()),
+                                Long.valueOf(value));
+                    }
+                }
+                if (!snapshot.isValid()) {
+                    logger.debug("discarding stale discovery cache " +
+                                 cacheFile.getPath());
+                    return null;
+                }
+                logger.debug("using discovery cache " + cacheFile.getPath());
+                return snapshot;
+            }
+            catch (NumberFormatException ex) {
+                logger.error("corrupt discovery cache " + cacheFile.getPath(),
+                             ex);
+                return null;
+            }
+        }
+    }
+}
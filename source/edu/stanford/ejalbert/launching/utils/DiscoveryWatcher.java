@@ -0,0 +1,349 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Watches the PATH directories and keeps the
+ * {@link DiscoveryCache DiscoveryCache} up to date. Only the
+ * executables whose names appear in the changes are looked up again,
+ * so browsers installed or removed while the JVM runs are noticed
+ * without probing for every browser. Launchers pick up the changes
+ * at their next launch.
+ * <p>
+ * A PATH directory that does not exist yet is waited for by watching
+ * its closest existing parent, moving down as the directories on the
+ * way to it are created. Other changes in such a parent are ignored.
+ * When a PATH directory appears or disappears, or changes are lost,
+ * every executable is looked up again. Changes arriving close
+ * together, as when a package is installed, are applied together.
+ */
+public final class DiscoveryWatcher
+        implements Runnable {
+    /**
+     * Key to system property turning the shared watcher on when set
+     * to true.
+     */
+    public static final String WATCH_PROPERTY =
+            "edu.stanford.ejalbert.discovery.watch";
+    /**
+     * time to wait for further changes before applying them
+     */
+    private static final long SETTLE_MILLIS = 250L;
+    private static int threadCount = 0; // guarded by class
+    private static volatile DiscoveryWatcher defaultWatcher = null;
+
+    private final AbstractLogger logger; // in ctor
+    private final WatchService watchService; // in ctor
+    /**
+     * PATH value being watched
+     */
+    private final String path; // in ctor
+    /**
+     * absolute PATH directory => PATH directory as listed
+     */
+    private final Map<Path, String> pathDirs = new HashMap<Path, String>();
+    /**
+     * registered WatchKey => watched directory; used by watch thread
+     */
+    private final Map<WatchKey, Path> watched = new HashMap<WatchKey, Path>();
+    private final Thread thread; // in ctor
+    private volatile boolean running = true;
+    private volatile long updateCount = 0L;
+
+    /**
+     * Creates and starts a watcher for the current PATH.
+     *
+     * @param logger AbstractLogger
+     * @throws IOException if the file system cannot be watched
+     */
+    public DiscoveryWatcher(AbstractLogger logger)
+            throws IOException {
+        if (logger == null) {
+            throw new IllegalArgumentException("logger cannot be null.");
+        }
+        this.logger = logger;
+        this.path = DiscoveryCache.getPath();
+        String[] dirs = path.split(File.pathSeparator);
+        for (int idx = 0; idx < dirs.length; idx++) {
+            if (dirs[idx].length() > 0) {
+                pathDirs.put(new File(dirs[idx]).getAbsoluteFile().toPath(),
+                             dirs[idx]);
+            }
+        }
+        this.watchService = FileSystems.getDefault().newWatchService();
+        // watch before the thread starts so no change is missed
+        registerDirectories();
+        int threadId;
+        synchronized (DiscoveryWatcher.class) {
+            threadId = ++threadCount;
+        }
+        thread = new Thread(this, "BrowserLauncher-path-watcher-" + threadId);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Returns true if the shared watcher is turned on by the
+     * {@link #WATCH_PROPERTY WATCH_PROPERTY}.
+     *
+     * @return boolean
+     */
+    public static boolean isWatchEnabled() {
+        return Boolean.getBoolean(WATCH_PROPERTY);
+    }
+
+    /**
+     * Returns the shared watcher, starting it if necessary. Returns
+     * null if the file system cannot be watched; the failure is
+     * logged.
+     *
+     * @param logger AbstractLogger used by the watcher once started
+     * @return DiscoveryWatcher may be null
+     */
+    public static synchronized DiscoveryWatcher getDefault(
+            AbstractLogger logger) {
+        if (defaultWatcher == null || !defaultWatcher.isRunning()) {
+            try {
+                defaultWatcher = new DiscoveryWatcher(logger);
+            }
+            catch (IOException ex) {
+                logger.error("unable to watch the PATH directories", ex);
+                return null;
+            }
+        }
+        return defaultWatcher;
+    }
+
+    /**
+     * Returns true if the shared watcher is running for the PATH.
+     *
+     * @param path String PATH value
+     * @return boolean
+     */
+    static boolean isWatching(String path) {
+        DiscoveryWatcher watcher = defaultWatcher;
+        return watcher != null && watcher.isRunning() &&
+                watcher.path.equals(path);
+    }
+
+    /**
+     * Returns true until the watcher is stopped.
+     *
+     * @return boolean
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the number of discovery results changed by the watcher.
+     *
+     * @return long
+     */
+    public long getUpdateCount() {
+        return updateCount;
+    }
+
+    /**
+     * Stops watching.
+     */
+    public void stop() {
+        running = false;
+        try {
+            watchService.close();
+        }
+        catch (IOException ex) {
+            logger.error("unable to close PATH watch service", ex);
+        }
+    }
+
+    /**
+     * Waits for changes in the watched directories until stopped.
+     */
+    public void run() {
+        try {
+            while (running) {
+                WatchKey key = watchService.take();
+                Set<String> dirs = new HashSet<String>();
+                Set<String> exeNames = new HashSet<String>();
+                boolean lookUpAll = false;
+                boolean reregister = false;
+                // collect the burst of changes before applying them
+                while (key != null) {
+                    Path dir = watched.get(key);
+                    if (dir == null) {
+                        // no longer watched
+                        key.pollEvents();
+                        key = watchService.poll(SETTLE_MILLIS,
+                                                TimeUnit.MILLISECONDS);
+                        continue;
+                    }
+                    Iterator<WatchEvent<?>> events =
+                            key.pollEvents().iterator();
+                    while (events.hasNext()) {
+                        WatchEvent<?> event = events.next();
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            lookUpAll = true;
+                            continue;
+                        }
+                        Path name = (Path) event.context();
+                        Path child = dir.resolve(name);
+                        if (pathDirs.containsKey(child)) {
+                            // a PATH directory appeared or disappeared
+                            lookUpAll = true;
+                        }
+                        else if (event.kind() ==
+                                 StandardWatchEventKinds.ENTRY_CREATE &&
+                                 leadsToPathDirectory(child)) {
+                            reregister = true;
+                        }
+                        if (pathDirs.containsKey(dir)) {
+                            dirs.add(pathDirs.get(dir));
+                            exeNames.add(name.toString());
+                        }
+                    }
+                    if (!key.reset()) {
+                        // the directory is gone; watch a parent instead
+                        watched.remove(key);
+                        lookUpAll = true;
+                    }
+                    key = watchService.poll(SETTLE_MILLIS,
+                                            TimeUnit.MILLISECONDS);
+                }
+                if ((lookUpAll || reregister) && registerDirectories()) {
+                    // a PATH directory appeared before it was watched
+                    lookUpAll = true;
+                }
+                if (!lookUpAll && dirs.isEmpty()) {
+                    continue;
+                }
+                int changed = DiscoveryCache.refresh(
+                        path,
+                        lookUpAll ? null : dirs,
+                        lookUpAll ? null : exeNames,
+                        logger);
+                updateCount += changed;
+            }
+        }
+        catch (ClosedWatchServiceException ex) {
+            // stopped
+        }
+        catch (InterruptedException ex) {
+            // stopped
+        }
+        finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Returns true if the path is a directory on the way to a PATH
+     * directory that does not exist yet.
+     *
+     * @param child Path
+     * @return boolean
+     */
+    private boolean leadsToPathDirectory(Path child) {
+        Iterator<Path> dirIter = pathDirs.keySet().iterator();
+        while (dirIter.hasNext()) {
+            if (dirIter.next().startsWith(child)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Watches each PATH directory, or its closest existing parent
+     * while it does not exist, and stops watching parents no longer
+     * needed.
+     *
+     * @return boolean true if a PATH directory is watched that was
+     *         not watched before
+     */
+    private boolean registerDirectories() {
+        Set<Path> needed = new HashSet<Path>();
+        Iterator<Path> dirIter = pathDirs.keySet().iterator();
+        while (dirIter.hasNext()) {
+            File dir = dirIter.next().toFile();
+            while (dir != null && !dir.isDirectory()) {
+                dir = dir.getParentFile();
+            }
+            if (dir != null) {
+                needed.add(dir.toPath());
+            }
+        }
+        Iterator<Map.Entry<WatchKey, Path>> keyIter =
+                watched.entrySet().iterator();
+        while (keyIter.hasNext()) {
+            Map.Entry<WatchKey, Path> entry = keyIter.next();
+            if (!needed.contains(entry.getValue())) {
+                entry.getKey().cancel();
+                keyIter.remove();
+            }
+        }
+        boolean newPathDir = false;
+        Iterator<Path> neededIter = needed.iterator();
+        while (neededIter.hasNext()) {
+            Path dirPath = neededIter.next();
+            if (watched.containsValue(dirPath)) {
+                continue;
+            }
+            try {
+                WatchKey key = dirPath.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+                watched.put(key, dirPath);
+                if (pathDirs.containsKey(dirPath)) {
+                    newPathDir = true;
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("watching PATH directory " + dirPath);
+                }
+            }
+            catch (IOException ex) {
+                logger.error("unable to watch " + dirPath, ex);
+            }
+        }
+        return newPathDir;
+    }
+}
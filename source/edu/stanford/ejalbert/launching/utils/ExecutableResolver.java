@@ -0,0 +1,166 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Finds executables on the PATH without running the which command.
+ * <p>
+ * The PATH directories are searched in order for a regular file the
+ * user may execute. Symbolic links are resolved so the path returned
+ * is that of the real executable. Lookups are remembered per
+ * directory until the directory's modification time changes.
+ */
+public final class ExecutableResolver {
+    /**
+     * value stored for names that were not found in a directory
+     */
+    private static final String NOT_FOUND = "";
+    /**
+     * directory path => DirectoryEntries
+     */
+    private static final Map<String, DirectoryEntries> directories =
+            new ConcurrentHashMap<String, DirectoryEntries>();
+
+    private ExecutableResolver() {
+    }
+
+    /**
+     * Returns the real path of the executable or null if it cannot
+     * be found. Names containing a path separator are checked
+     * directly instead of being searched for on the PATH.
+     *
+     * @param exeName String
+     * @param logger AbstractLogger
+     * @return String
+     */
+    public static String resolve(String exeName,
+                                 AbstractLogger logger) {
+        if (exeName == null || exeName.length() == 0) {
+            return null;
+        }
+        String exePath = null;
+        if (exeName.indexOf(File.separatorChar) >= 0) {
+            exePath = toExecutablePath(exeName);
+        }
+        else {
+            String[] dirs = DiscoveryCache.getPath().split(File.pathSeparator);
+            for (int idx = 0; idx < dirs.length && exePath == null; idx++) {
+                if (dirs[idx].length() > 0) {
+                    exePath = getDirectoryEntries(dirs[idx]).resolve(exeName);
+                }
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(exeName + " resolved to " +
+                         (exePath == null ? "nothing" : exePath));
+        }
+        return exePath;
+    }
+
+    /**
+     * Forgets all remembered lookups.
+     */
+    public static void clear() {
+        directories.clear();
+    }
+
+    /**
+     * Forgets the remembered lookups for one directory.
+     *
+     * @param dir String
+     */
+    public static void clear(String dir) {
+        directories.remove(dir);
+    }
+
+    private static DirectoryEntries getDirectoryEntries(String dir) {
+        long modified = new File(dir).lastModified();
+        DirectoryEntries entries = directories.get(dir);
+        if (entries == null || entries.modified != modified) {
+            entries = new DirectoryEntries(dir, modified);
+            directories.put(dir, entries);
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the real path of the file if it is an executable
+     * regular file, null otherwise.
+     *
+     * @param fileName String
+     * @return String
+     */
+    private static String toExecutablePath(String fileName) {
+        try {
+            Path path = Paths.get(fileName);
+            if (Files.isRegularFile(path) && Files.isExecutable(path)) {
+                return path.toRealPath().toString();
+            }
+        }
+        catch (InvalidPathException ex) {
+            // not a usable file name, treat as not found
+        }
+        catch (IOException ex) {
+            // removed or unreadable while resolving, treat as not found
+        }
+        return null;
+    }
+
+    /**
+     * Lookups made in one PATH directory.
+     */
+    private static final class DirectoryEntries {
+        private final String dir; // in ctor
+        private final long modified; // in ctor
+        /**
+         * executable name => real path or NOT_FOUND
+         */
+        private final Map<String, String> names =
+                new ConcurrentHashMap<String, String>();
+
+        DirectoryEntries(String dir,
+                         long modified) {
+            this.dir = dir;
+            this.modified = modified;
+        }
+
+        String resolve(String exeName) {
+            String exePath = names.get(exeName);
+            if (exePath == null) {
+                exePath = toExecutablePath(dir + File.separator + exeName);
+                names.put(exeName, exePath == null ? NOT_FOUND : exePath);
+            }
+            return exePath == null || exePath.length() == 0 ? null : exePath;
+        }
+    }
+}
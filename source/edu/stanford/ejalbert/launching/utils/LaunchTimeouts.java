@@ -0,0 +1,172 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+/**
+ * Time limits for a browser launch, so a launch never waits for as
+ * long as the browser runs.
+ * <ul>
+ * <li>The launch timeout bounds the whole fallback chain. No further
+ * command is started once it has passed, and the launch fails. It is
+ * 30 seconds unless set.</li>
+ * <li>The step timeout bounds each command of the chain. A command
+ * still running when it expires ends the launch as a failure; no
+ * further command is started, since it could open a second browser
+ * once the first command gets going. It is off unless set.</li>
+ * <li>The detach time turns on detached start: a command that starts
+ * the browser itself and is still running after that long is taken
+ * to be the browser, and the launch succeeds without waiting for it
+ * to exit. Commands that hand the url to a running browser never
+ * detach. It is 3 seconds unless set.</li>
+ * </ul>
+ * Processes that time out or detach are left running; only the
+ * launch stops waiting for them. The browser launching classes share
+ * the instance returned by {@link #getDefault() getDefault}. Its
+ * values are read from system properties when it is first used.
+ */
+public final class LaunchTimeouts {
+    /**
+     * Key to system property holding the launch timeout in
+     * milliseconds. Zero or less turns it off.
+     */
+    public static final String LAUNCH_TIMEOUT_PROPERTY =
+            "edu.stanford.ejalbert.launch.timeout";
+    /**
+     * Key to system property holding the step timeout in
+     * milliseconds. Zero or less turns it off.
+     */
+    public static final String STEP_TIMEOUT_PROPERTY =
+            "edu.stanford.ejalbert.launch.steptimeout";
+    /**
+     * Key to system property holding the detach time in
+     * milliseconds. Zero or less turns detached start off.
+     */
+    public static final String DETACH_AFTER_PROPERTY =
+            "edu.stanford.ejalbert.launch.detachafter";
+    public static final long DEFAULT_LAUNCH_TIMEOUT_MILLIS = 30000L;
+    public static final long DEFAULT_STEP_TIMEOUT_MILLIS = 0L;
+    public static final long DEFAULT_DETACH_AFTER_MILLIS = 3000L;
+
+    private static LaunchTimeouts defaultTimeouts = null;
+
+    private final long launchTimeoutMillis; // in ctor
+    private final long stepTimeoutMillis; // in ctor
+    private final long detachAfterMillis; // in ctor
+
+    /**
+     * Creates time limits with the passed values. Zero or less turns
+     * a limit off.
+     *
+     * @param launchTimeoutMillis long limit for the whole launch
+     * @param stepTimeoutMillis long limit for each command
+     * @param detachAfterMillis long time after which a running command
+     *        counts as a started browser
+     */
+    public LaunchTimeouts(long launchTimeoutMillis,
+                          long stepTimeoutMillis,
+                          long detachAfterMillis) {
+        this.launchTimeoutMillis = Math.max(launchTimeoutMillis, 0L);
+        this.stepTimeoutMillis = Math.max(stepTimeoutMillis, 0L);
+        this.detachAfterMillis = Math.max(detachAfterMillis, 0L);
+    }
+
+    /**
+     * Returns the time limits shared by the browser launching
+     * classes, creating them from the system properties on first use.
+     *
+     * @return LaunchTimeouts
+     */
+    public static synchronized LaunchTimeouts getDefault() {
+        if (defaultTimeouts == null) {
+            defaultTimeouts = new LaunchTimeouts(
+                    getLongProperty(LAUNCH_TIMEOUT_PROPERTY,
+                                    DEFAULT_LAUNCH_TIMEOUT_MILLIS),
+                    getLongProperty(STEP_TIMEOUT_PROPERTY,
+                                    DEFAULT_STEP_TIMEOUT_MILLIS),
+                    getLongProperty(DETACH_AFTER_PROPERTY,
+                                    DEFAULT_DETACH_AFTER_MILLIS));
+        }
+        return defaultTimeouts;
+    }
+
+    /**
+     * Replaces the time limits shared by the browser launching
+     * classes. Launches already started keep their deadline.
+     *
+     * @param timeouts LaunchTimeouts
+     */
+    public static synchronized void setDefault(LaunchTimeouts timeouts) {
+        if (timeouts == null) {
+            throw new IllegalArgumentException("timeouts cannot be null.");
+        }
+        defaultTimeouts = timeouts;
+    }
+
+    private static long getLongProperty(String key, long defValue) {
+        String value = System.getProperty(key, null);
+        if (value != null) {
+            try {
+                return Long.parseLong(value.trim());
+            }
+            catch (NumberFormatException ex) {
+                // fall through to the default
+            }
+        }
+        return defValue;
+    }
+
+    /**
+     * Returns the limit for the whole launch in millis, or zero if
+     * there is none.
+     *
+     * @return long
+     */
+    public long getLaunchTimeout() {
+        return launchTimeoutMillis;
+    }
+
+    /**
+     * Returns the limit for each command in millis, or zero if there
+     * is none.
+     *
+     * @return long
+     */
+    public long getStepTimeout() {
+        return stepTimeoutMillis;
+    }
+
+    /**
+     * Returns the time in millis after which a running command counts
+     * as a started browser, or zero if detached start is off.
+     *
+     * @return long
+     */
+    public long getDetachAfter() {
+        return detachAfterMillis;
+    }
+
+    public String toString() {
+        return "LaunchTimeouts[launch=" + launchTimeoutMillis +
+                "ms, step=" + stepTimeoutMillis +
+                "ms, detachAfter=" + detachAfterMillis + "ms]";
+    }
+}
@@ -21,6 +21,20 @@
 // $Id: LaunchingUtils.java,v 1.1 2007/08/31 16:05:56 jchapman0 Exp $
 package edu.stanford.ejalbert.launching.utils;
 
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
+
 /**
  *
  * @author not attributable
@@ -52,4 +66,157 @@ public class LaunchingUtils {
         }
         return commands;
     }
+
+    /**
+     * Runs the launch on the executor and returns a future holding
+     * its outcome. If the executor rejects or drops the launch,
+     * the future completes exceptionally rather than never completing.
+     *
+     * @param launch Callable
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public static <T> CompletableFuture<T> supplyAsync(Callable<T> launch,
+                                                      Executor executor) {
+        CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(new CompletingLaunchTask<T>(launch, future));
+        }
+        catch (RejectedExecutionException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Runs the start of a launch on the executor. The launch returns
+     * a future of its own, which the returned future follows, so the
+     * executor thread is free as soon as the launch has been started.
+     *
+     * @param launch Callable returning the launch's future
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public static <T> CompletableFuture<T> composeAsync(
+            Callable<CompletableFuture<T>> launch,
+            Executor executor) {
+        return supplyAsync(launch, executor).thenCompose(
+                new Function<CompletableFuture<T>, CompletionStage<T>>() {
+            public CompletionStage<T> apply(CompletableFuture<T> started) {
+                return started;
+            }
+        });
+    }
+
+    /**
+     * Returns a future that completes like the passed one except that
+     * failures are reported as BrowserLaunchingExecutionExceptions.
+     *
+     * @param future CompletableFuture
+     * @return CompletableFuture
+     */
+    public static <T> CompletableFuture<T> wrapFailures(
+            CompletableFuture<T> future) {
+        final CompletableFuture<T> wrapped = new CompletableFuture<T>();
+        future.whenComplete(new BiConsumer<T, Throwable>() {
+            public void accept(T value, Throwable ex) {
+                if (ex == null) {
+                    wrapped.complete(value);
+                }
+                else {
+                    wrapped.completeExceptionally(toExecutionException(ex));
+                }
+            }
+        });
+        return wrapped;
+    }
+
+    /**
+     * Waits for a launch started by one of the async methods. Used by
+     * the blocking openUrl methods.
+     *
+     * @param future CompletableFuture
+     * @return the launch's result
+     * @throws BrowserLaunchingExecutionException
+     */
+    public static <T> T join(CompletableFuture<T> future)
+            throws BrowserLaunchingExecutionException {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException ex) {
+            throw toExecutionException(ex.getCause());
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new BrowserLaunchingExecutionException(ex);
+        }
+    }
+
+    /**
+     * Returns true if the exception a launch failed with shows that
+     * the browser does not work, which is when its command could not
+     * be spawned. Rejections by the spawn throttle, timeouts and
+     * cancellations say nothing about the browser.
+     *
+     * @param ex Throwable
+     * @return boolean
+     */
+    public static boolean isBrowserFailure(Throwable ex) {
+        while (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        return ex instanceof IOException;
+    }
+
+    /**
+     * Unwraps CompletionExceptions and wraps anything that is not
+     * already a BrowserLaunchingExecutionException.
+     *
+     * @param ex Throwable
+     * @return BrowserLaunchingExecutionException
+     */
+    private static BrowserLaunchingExecutionException toExecutionException(
+            Throwable ex) {
+        while (ex instanceof CompletionException && ex.getCause() != null) {
+            ex = ex.getCause();
+        }
+        if (ex instanceof BrowserLaunchingExecutionException) {
+            return (BrowserLaunchingExecutionException) ex;
+        }
+        return new BrowserLaunchingExecutionException(ex);
+    }
+
+    /**
+     * Completes the future once the launch has run. Implements
+     * Future through FutureTask so executors that drop pending
+     * tasks can cancel it.
+     */
+    private static final class CompletingLaunchTask<T>
+            extends FutureTask<T> {
+        private final CompletableFuture<T> future; // in ctor
+
+        CompletingLaunchTask(Callable<T> launch,
+                             CompletableFuture<T> future) {
+            super(launch);
+            this.future = future;
+        }
+
+        protected void done() {
+            if (isCancelled()) {
+                future.cancel(false);
+                return;
+            }
+            try {
+                future.complete(get());
+            }
+            catch (ExecutionException ex) {
+                future.completeExceptionally(ex.getCause());
+            }
+            catch (InterruptedException ex) {
+                // cannot happen, the task is done
+                future.completeExceptionally(ex);
+            }
+        }
+    }
 }
@@ -0,0 +1,88 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Properties that remember the order in which keys were first added.
+ * Used for the browser config files so browsers are handled in the
+ * order they are listed rather than in hash order.
+ */
+public class OrderedProperties
+        extends Properties {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> keyOrder = new ArrayList<String>();
+
+    /**
+     * Loads the properties from the url, closing the stream when done.
+     *
+     * @param configUrl URL
+     * @return OrderedProperties
+     * @throws IOException
+     */
+    public static OrderedProperties load(URL configUrl)
+            throws IOException {
+        OrderedProperties props = new OrderedProperties();
+        InputStream in = configUrl.openStream();
+        try {
+            props.load(in);
+        }
+        finally {
+            in.close();
+        }
+        return props;
+    }
+
+    public synchronized Object put(Object key,
+                                   Object value) {
+        Object previous = super.put(key, value);
+        if (previous == null) {
+            keyOrder.add((String) key);
+        }
+        return previous;
+    }
+
+    public synchronized Object remove(Object key) {
+        Object previous = super.remove(key);
+        if (previous != null) {
+            keyOrder.remove(key);
+        }
+        return previous;
+    }
+
+    /**
+     * Returns the keys in the order they were added.
+     *
+     * @return List of String objects
+     */
+    public synchronized List<String> getKeysInOrder() {
+        return Collections.unmodifiableList(new ArrayList<String>(keyOrder));
+    }
+}
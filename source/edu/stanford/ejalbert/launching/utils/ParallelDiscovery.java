@@ -0,0 +1,266 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.ejalbert.metrics.LaunchMetrics;
+import net.sf.wraplog.AbstractLogger;
+
+/**
+ * Runs browser availability probes concurrently with an overall
+ * deadline. Discovery then takes as long as the slowest probe rather
+ * than the sum of all probes.
+ * <p>
+ * Results are returned in the order the probes were passed in so
+ * callers keep the ordering of their config file.
+ */
+public final class ParallelDiscovery {
+    /**
+     * Key to system property holding the deadline in milliseconds
+     * for probing all browsers.
+     */
+    public static final String PROBE_TIMEOUT_PROPERTY =
+            "edu.stanford.ejalbert.discovery.timeout";
+    /**
+     * default deadline for probing all browsers
+     */
+    public static final long DEFAULT_PROBE_TIMEOUT_MILLIS = 5000L;
+    /**
+     * most probes run at the same time
+     */
+    private static final int MAX_PROBE_THREADS = 8;
+
+    private static final ExecutorService probeExecutor;
+    static {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                MAX_PROBE_THREADS,
+                MAX_PROBE_THREADS,
+                10L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ProbeThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        probeExecutor = pool;
+    }
+
+    private ParallelDiscovery() {
+    }
+
+    /**
+     * Returns the probe deadline from the system property or the
+     * default.
+     *
+     * @return long
+     */
+    public static long getProbeTimeout() {
+        String timeout = System.getProperty(PROBE_TIMEOUT_PROPERTY, null);
+        if (timeout != null) {
+            try {
+                return Long.parseLong(timeout);
+            }
+            catch (NumberFormatException ex) {
+                // fall through to the default
+            }
+        }
+        return DEFAULT_PROBE_TIMEOUT_MILLIS;
+    }
+
+    /**
+     * Runs the probes concurrently and waits up to timeoutMillis for
+     * all of them. Each probe returns the path of the browser it
+     * found or null. Probes still running at the deadline are
+     * cancelled and reported as timed out.
+     *
+     * @param names List of String objects naming each probe
+     * @param probes List of Callable objects
+     * @param timeoutMillis long
+     * @param logger AbstractLogger
+     * @return List of ProbeResult objects in the order of the probes
+     */
+    public static List<ProbeResult> probeAll(List<String> names,
+                                             List<Callable<String>> probes,
+                                             long timeoutMillis,
+                                             AbstractLogger logger) {
+        List<ProbeResult> results = new ArrayList<ProbeResult>(probes.size());
+        if (probes.isEmpty()) {
+            return results;
+        }
+        LaunchMetrics metrics = LaunchMetrics.getDefault();
+        List<TimedProbe> timedProbes = new ArrayList<TimedProbe>(probes.size());
+        for (int idx = 0; idx < probes.size(); idx++) {
+            timedProbes.add(new TimedProbe(probes.get(idx)));
+        }
+        List<Future<String>> futures;
+        try {
+            futures = probeExecutor.invokeAll(timedProbes,
+                                              timeoutMillis,
+                                              TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            futures = new ArrayList<Future<String>>();
+        }
+        for (int idx = 0; idx < probes.size(); idx++) {
+            String name = names.get(idx);
+            TimedProbe probe = timedProbes.get(idx);
+            ProbeResult result;
+            try {
+                String value = futures.get(idx).get();
+                result = new ProbeResult(name, value, probe.latency, false);
+            }
+            catch (CancellationException ex) {
+                result = new ProbeResult(name, null, timeoutMillis, true);
+            }
+            catch (ExecutionException ex) {
+                logger.error("error probing for " + name, ex.getCause());
+                result = new ProbeResult(name, null, probe.latency, false);
+            }
+            catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                result = new ProbeResult(name, null, timeoutMillis, true);
+            }
+            catch (IndexOutOfBoundsException ex) {
+                // interrupted before the probes were submitted
+                result = new ProbeResult(name, null, 0L, true);
+            }
+            if (logger.isInfoEnabled()) {
+                logger.info(result.toString());
+            }
+            metrics.recordDiscovery(result.getLatencyMillis());
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Outcome of a single probe.
+     */
+    public static final class ProbeResult {
+        private final String name; // in ctor
+        private final String value; // in ctor
+        private final long latencyMillis; // in ctor
+        private final boolean timedOut; // in ctor
+
+        ProbeResult(String name,
+                    String value,
+                    long latencyMillis,
+                    boolean timedOut) {
+            this.name = name;
+            this.value = value;
+            this.latencyMillis = latencyMillis;
+            this.timedOut = timedOut;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the value found by the probe or null.
+         *
+         * @return String
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public long getLatencyMillis() {
+            return latencyMillis;
+        }
+
+        /**
+         * Returns true if the probe did not complete before the
+         * deadline.
+         *
+         * @return boolean
+         */
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        public String toString() {
+            StringBuffer buf = new StringBuffer();
+            buf.append("probe ");
+            buf.append(name);
+            buf.append(": ");
+            if (timedOut) {
+                buf.append("timed out");
+            }
+            else {
+                buf.append(value == null ? "not found" : value);
+            }
+            buf.append(" (");
+            buf.append(latencyMillis);
+            buf.append("ms)");
+            return buf.toString();
+        }
+    }
+
+    /**
+     * Records how long the wrapped probe took.
+     */
+    private static final class TimedProbe
+            implements Callable<String> {
+        private final Callable<String> probe; // in ctor
+        private volatile long latency = 0L;
+
+        TimedProbe(Callable<String> probe) {
+            this.probe = probe;
+        }
+
+        public String call()
+                throws Exception {
+            long start = System.currentTimeMillis();
+            try {
+                return probe.call();
+            }
+            finally {
+                latency = System.currentTimeMillis() - start;
+            }
+        }
+    }
+
+    private static final class ProbeThreadFactory
+            implements ThreadFactory {
+        private final AtomicInteger threadCounter = new AtomicInteger(1);
+
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                                       "BrowserLauncher-probe-" +
+                                       threadCounter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
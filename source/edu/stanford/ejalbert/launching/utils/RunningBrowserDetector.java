@@ -0,0 +1,255 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Tells which browsers are running by scanning /proc for the
+ * process names of the running processes, so a launch can start a
+ * browser that is not running at once instead of finding out by
+ * running a command that fails.
+ * <p>
+ * A process is taken to have a name if the base name of its first
+ * command line argument, or its /proc comm name, equals the name.
+ * The kernel cuts comm names to {@link #MAX_COMM_LENGTH MAX_COMM_LENGTH}
+ * characters, so a longer name also matches its first
+ * MAX_COMM_LENGTH characters. Callers must pass the name the
+ * browser's process runs under, which often differs from the
+ * executable launched (kfmclient starts konqueror). The names are cached for a short time
+ * ({@link #TTL_PROPERTY TTL_PROPERTY}) so a burst of launches scans
+ * /proc once. On systems without a Linux style /proc, or with the
+ * {@link #DETECT_PROPERTY DETECT_PROPERTY} set to false, nothing is
+ * known and launches try the commands as before.
+ */
+public final class RunningBrowserDetector {
+    /**
+     * Key to system property turning detection off when set to false.
+     */
+    public static final String DETECT_PROPERTY =
+            "edu.stanford.ejalbert.running.detect";
+    /**
+     * Key to system property holding how long in milliseconds a scan
+     * of /proc is reused.
+     */
+    public static final String TTL_PROPERTY =
+            "edu.stanford.ejalbert.running.ttl";
+    public static final long DEFAULT_TTL_MILLIS = 2000L;
+    /**
+     * most characters of a /proc comm name
+     */
+    public static final int MAX_COMM_LENGTH = 15;
+
+    private static final File PROC_DIR = new File("/proc");
+    /**
+     * longest part of a command line read
+     */
+    private static final int MAX_CMDLINE_BYTES = 4096;
+
+    private static RunningBrowserDetector defaultDetector = null;
+
+    private final boolean supported; // in ctor
+    private final long ttlMillis; // in ctor
+    // guarded by this
+    private Set<String> runningNames = Collections.emptySet();
+    private long scanMillis = 0L;
+    private long scanCount = 0L;
+
+    /**
+     * Creates a detector reusing each scan for ttlMillis.
+     *
+     * @param ttlMillis long
+     */
+    public RunningBrowserDetector(long ttlMillis) {
+        if (ttlMillis < 0L) {
+            throw new IllegalArgumentException(
+                    "ttlMillis cannot be negative.");
+        }
+        this.ttlMillis = ttlMillis;
+        this.supported = new File(PROC_DIR, "self/cmdline").canRead();
+    }
+
+    /**
+     * Returns the detector shared by the browser launching classes,
+     * or null if detection is turned off.
+     *
+     * @return RunningBrowserDetector may be null
+     */
+    public static synchronized RunningBrowserDetector getDefault() {
+        if ("false".equalsIgnoreCase(
+                System.getProperty(DETECT_PROPERTY, null))) {
+            return null;
+        }
+        if (defaultDetector == null) {
+            long ttl = DEFAULT_TTL_MILLIS;
+            String value = System.getProperty(TTL_PROPERTY, null);
+            if (value != null) {
+                try {
+                    ttl = Math.max(Long.parseLong(value.trim()), 0L);
+                }
+                catch (NumberFormatException ex) {
+                    // use the default
+                }
+            }
+            defaultDetector = new RunningBrowserDetector(ttl);
+        }
+        return defaultDetector;
+    }
+
+    /**
+     * Returns true if running processes can be seen on this system.
+     *
+     * @return boolean
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * Returns whether a process with the name was seen.
+     *
+     * @param processName String process name without a directory
+     * @return Boolean null if this cannot be told on this system
+     */
+    public Boolean isRunning(String processName) {
+        if (!supported) {
+            return null;
+        }
+        Set<String> names = getRunningNames();
+        return Boolean.valueOf(
+                names.contains(processName) ||
+                (processName.length() > MAX_COMM_LENGTH &&
+                 names.contains(processName.substring(0, MAX_COMM_LENGTH))));
+    }
+
+    /**
+     * Records that a process with the name has just been started, so
+     * launches within the cache time address the running browser.
+     *
+     * @param processName String
+     */
+    public synchronized void markRunning(String processName) {
+        if (supported && !runningNames.contains(processName)) {
+            Set<String> names = new HashSet<String>(runningNames);
+            names.add(processName);
+            runningNames = names;
+        }
+    }
+
+    /**
+     * Returns the names of the running processes, scanning /proc
+     * again if the last scan is older than the cache time.
+     *
+     * @return Set of String objects
+     */
+    public Set<String> getRunningNames() {
+        synchronized (this) {
+            if (System.currentTimeMillis() - scanMillis < ttlMillis) {
+                return runningNames;
+            }
+        }
+        Set<String> names = scan();
+        synchronized (this) {
+            runningNames = Collections.unmodifiableSet(names);
+            scanMillis = System.currentTimeMillis();
+            scanCount++;
+            return runningNames;
+        }
+    }
+
+    /**
+     * Returns the number of times /proc was scanned.
+     *
+     * @return long
+     */
+    public synchronized long getScanCount() {
+        return scanCount;
+    }
+
+    private static Set<String> scan() {
+        Set<String> names = new HashSet<String>();
+        String[] entries = PROC_DIR.list();
+        if (entries == null) {
+            return names;
+        }
+        byte[] buf = new byte[MAX_CMDLINE_BYTES];
+        for (int idx = 0; idx < entries.length; idx++) {
+            String pid = entries[idx];
+            if (pid.length() == 0 || !Character.isDigit(pid.charAt(0))) {
+                continue;
+            }
+            // processes may exit while being read; skip them
+            String argv0 = readFirstToken(new File(PROC_DIR, pid + "/cmdline"),
+                                          buf);
+            if (argv0 != null && argv0.length() > 0) {
+                names.add(new File(argv0).getName());
+            }
+            String comm = readFirstToken(new File(PROC_DIR, pid + "/comm"),
+                                         buf);
+            if (comm != null && comm.length() > 0) {
+                names.add(comm);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Returns the file's content up to the first NUL or newline, or
+     * null if it cannot be read.
+     */
+    private static String readFirstToken(File file, byte[] buf) {
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int len = 0;
+            int count;
+            while (len < buf.length &&
+                   (count = in.read(buf, len, buf.length - len)) > 0) {
+                len += count;
+            }
+            int end = 0;
+            while (end < len && buf[end] != 0 && buf[end] != '\n') {
+                end++;
+            }
+            return new String(buf, 0, end);
+        }
+        catch (IOException ex) {
+            return null;
+        }
+        finally {
+            if (in != null) {
+                try {
+                    in.close();
+                }
+                catch (IOException ex) {
+                    // ignore
+                }
+            }
+        }
+    }
+}
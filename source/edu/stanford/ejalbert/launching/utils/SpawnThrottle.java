@@ -0,0 +1,441 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.LinkedList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how fast and how many browser processes are spawned. A
+ * token bucket caps the spawn rate, allowing short bursts, and a
+ * counter caps the number of browser commands running at the same
+ * time. A spawn that cannot get both within the maximum wait is
+ * rejected with a RejectedExecutionException instead of queueing
+ * forever, so a flood of urls degrades into failed launches rather
+ * than a saturated process table.
+ * <p>
+ * Callers start the process once the future returned by
+ * {@link #acquireAsync() acquireAsync} completes and call
+ * {@link #release() release} when the process exits or the wait for
+ * it ends. Spawns waiting for a running command to finish are queued
+ * in order; each release hands its slot to the spawn that has waited
+ * longest.
+ * <p>
+ * The browser launching classes share the instance returned by
+ * {@link #getDefault() getDefault}. Its limits are read from system
+ * properties when it is first used.
+ */
+public final class SpawnThrottle {
+    /**
+     * Key to system property holding the spawn rate in processes
+     * per second. Zero or less turns the rate limit off.
+     */
+    public static final String RATE_PROPERTY =
+            "edu.stanford.ejalbert.spawn.rate";
+    /**
+     * Key to system property holding the number of spawns allowed
+     * in a burst above the rate.
+     */
+    public static final String BURST_PROPERTY =
+            "edu.stanford.ejalbert.spawn.burst";
+    /**
+     * Key to system property holding the maximum number of browser
+     * commands running at the same time. Zero or less turns the
+     * limit off.
+     */
+    public static final String MAX_IN_FLIGHT_PROPERTY =
+            "edu.stanford.ejalbert.spawn.maxinflight";
+    /**
+     * Key to system property holding the longest time in milliseconds
+     * a spawn waits before it is rejected.
+     */
+    public static final String MAX_WAIT_PROPERTY =
+            "edu.stanford.ejalbert.spawn.maxwait";
+    public static final double DEFAULT_RATE = 10.0;
+    public static final int DEFAULT_BURST = 20;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30000L;
+
+    private static SpawnThrottle defaultThrottle = null;
+    /**
+     * retries spawns waiting for a token and rejects spawns still
+     * waiting for a slot at their deadline; created on first use
+     */
+    private static ScheduledThreadPoolExecutor scheduler = null;
+
+    private final double permitsPerNano; // in ctor
+    private final int burst; // in ctor
+    private final int maxInFlight; // in ctor
+    private final long maxWaitMillis; // in ctor
+    // token bucket state, guarded by this
+    private double tokens;
+    private long lastRefillNanos;
+    // in-flight state, guarded by this
+    private int freeSlots;
+    /**
+     * spawns waiting for a slot, longest waiting first
+     */
+    private final LinkedList<AsyncAcquire> slotWaiters =
+            new LinkedList<AsyncAcquire>();
+    // stats, guarded by this
+    private long spawnCount = 0L;
+    private long queuedCount = 0L;
+    private long rejectedCount = 0L;
+    private int waitingCount = 0;
+
+    /**
+     * Creates a throttle with the passed limits.
+     *
+     * @param permitsPerSecond double spawn rate; zero or less for no limit
+     * @param burst int spawns allowed in a burst; at least 1
+     * @param maxInFlight int running commands; zero or less for no limit
+     * @param maxWaitMillis long longest wait before rejecting a spawn
+     */
+    public SpawnThrottle(double permitsPerSecond,
+                         int burst,
+                         int maxInFlight,
+                         long maxWaitMillis) {
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1.");
+        }
+        if (maxWaitMillis < 0L) {
+            throw new IllegalArgumentException(
+                    "maxWaitMillis cannot be negative.");
+        }
+        this.permitsPerNano = permitsPerSecond > 0.0 ?
+                              permitsPerSecond / 1.0e9 : 0.0;
+        this.burst = burst;
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : 0;
+        this.maxWaitMillis = maxWaitMillis;
+        this.freeSlots = this.maxInFlight;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Returns the throttle shared by the browser launching classes,
+     * creating it from the system properties on first use.
+     *
+     * @return SpawnThrottle
+     */
+    public static synchronized SpawnThrottle getDefault() {
+        if (defaultThrottle == null) {
+            defaultThrottle = new SpawnThrottle(
+                    getDoubleProperty(RATE_PROPERTY, DEFAULT_RATE),
+                    (int) getDoubleProperty(BURST_PROPERTY, DEFAULT_BURST),
+                    (int) getDoubleProperty(MAX_IN_FLIGHT_PROPERTY,
+                                            DEFAULT_MAX_IN_FLIGHT),
+                    (long) getDoubleProperty(MAX_WAIT_PROPERTY,
+                                             DEFAULT_MAX_WAIT_MILLIS));
+        }
+        return defaultThrottle;
+    }
+
+    /**
+     * Replaces the throttle shared by the browser launching classes.
+     * Spawns already holding a permit from the old throttle release
+     * it to the old throttle.
+     *
+     * @param throttle SpawnThrottle
+     */
+    public static synchronized void setDefault(SpawnThrottle throttle) {
+        if (throttle == null) {
+            throw new IllegalArgumentException("throttle cannot be null.");
+        }
+        defaultThrottle = throttle;
+    }
+
+    private static double getDoubleProperty(String key, double defValue) {
+        String value = System.getProperty(key, null);
+        if (value != null) {
+            try {
+                return Double.parseDouble(value);
+            }
+            catch (NumberFormatException ex) {
+                // fall through to the default
+            }
+        }
+        return defValue;
+    }
+
+    /**
+     * Gets a spawn token and a free in-flight slot without blocking
+     * the calling thread. The returned future completes when both
+     * have been taken, or completes exceptionally with a
+     * RejectedExecutionException after the maximum wait. Every
+     * future that completes normally must be matched by a call to
+     * {@link #release() release}.
+     *
+     * @return CompletableFuture
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        AsyncAcquire acquire = new AsyncAcquire(
+                System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(maxWaitMillis));
+        acquire.run();
+        return acquire.future;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getScheduler() {
+        if (scheduler == null) {
+            scheduler = new ScheduledThreadPoolExecutor(
+                    1,
+                    new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                                               "BrowserLauncher-spawn-retry");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // deadlines of spawns given a slot are cancelled
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        return scheduler;
+    }
+
+    /**
+     * Frees the in-flight slot taken by
+     * {@link #acquireAsync() acquireAsync}, handing it to the spawn
+     * that has waited longest for one.
+     */
+    public void release() {
+        if (maxInFlight == 0) {
+            return;
+        }
+        AsyncAcquire next;
+        synchronized (this) {
+            next = slotWaiters.poll();
+            if (next == null) {
+                freeSlots++;
+                return;
+            }
+        }
+        next.granted();
+    }
+
+    /**
+     * Takes a token if one is available. Called with the lock held.
+     *
+     * @param now long current System.nanoTime()
+     * @return long 0 if a token was taken, else nanos until one is due
+     */
+    private long takeToken(long now) {
+        if (permitsPerNano == 0.0) {
+            return 0L;
+        }
+        tokens = Math.min(burst,
+                          tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+        if (tokens >= 1.0) {
+            tokens -= 1.0;
+            return 0L;
+        }
+        return Math.max(1L, (long) Math.ceil((1.0 - tokens) / permitsPerNano));
+    }
+
+    private synchronized RejectedExecutionException reject(String reason) {
+        rejectedCount++;
+        return new RejectedExecutionException(
+                reason + "; browser launch rejected after waiting " +
+                maxWaitMillis + "ms");
+    }
+
+    /**
+     * Returns the number of spawns allowed through.
+     *
+     * @return long
+     */
+    public synchronized long getSpawnCount() {
+        return spawnCount;
+    }
+
+    /**
+     * Returns the number of spawns that had to wait for a token or
+     * an in-flight slot, whether or not they were later allowed.
+     *
+     * @return long
+     */
+    public synchronized long getQueuedCount() {
+        return queuedCount;
+    }
+
+    /**
+     * Returns the number of spawns rejected after the maximum wait.
+     *
+     * @return long
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Returns the number of spawns waiting right now.
+     *
+     * @return int
+     */
+    public synchronized int getWaitingCount() {
+        return waitingCount;
+    }
+
+    /**
+     * Returns the number of browser commands running right now, or
+     * zero if the number is not limited.
+     *
+     * @return int
+     */
+    public synchronized int getInFlightCount() {
+        return maxInFlight - freeSlots;
+    }
+
+    /**
+     * One async acquire. Each run tries to take a token and, if it
+     * has to wait for one, schedules itself again for when it is due.
+     * With the token taken it takes a free slot, or joins the queue
+     * of spawns waiting for one until a release hands it a slot or
+     * its deadline passes.
+     */
+    private final class AsyncAcquire
+            implements Runnable {
+        private final CompletableFuture<Void> future =
+                new CompletableFuture<Void>();
+        private final long deadline; // in ctor
+        // guarded by the throttle
+        private boolean waited = false;
+        private ScheduledFuture<?> expiry = null;
+
+        AsyncAcquire(long deadline) {
+            this.deadline = deadline;
+        }
+
+        public void run() {
+            long waitNanos;
+            synchronized (SpawnThrottle.this) {
+                waitNanos = takeToken(System.nanoTime());
+                if (waitNanos == 0L && maxInFlight > 0) {
+                    if (slotWaiters.isEmpty() && freeSlots > 0) {
+                        freeSlots--;
+                    }
+                    else if (waitForSlot()) {
+                        return;
+                    }
+                    else {
+                        waitNanos = -1L;
+                    }
+                }
+                if (waitNanos > 0L) {
+                    startWaiting();
+                }
+            }
+            if (waitNanos == 0L) {
+                granted();
+                return;
+            }
+            if (waitNanos < 0L) {
+                rejected("too many browser processes in flight");
+                return;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                rejected("spawn rate limit exceeded");
+                return;
+            }
+            getScheduler().schedule(this,
+                                    Math.min(waitNanos, remaining),
+                                    TimeUnit.NANOSECONDS);
+        }
+
+        /**
+         * Queues for a slot. Called with the throttle's lock held.
+         *
+         * @return boolean false if the deadline has passed
+         */
+        private boolean waitForSlot() {
+            startWaiting();
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0L) {
+                return false;
+            }
+            slotWaiters.add(this);
+            expiry = getScheduler().schedule(new Runnable() {
+                public void run() {
+                    synchronized (SpawnThrottle.this) {
+                        if (!slotWaiters.remove(AsyncAcquire.this)) {
+                            // given a slot already
+                            return;
+                        }
+                    }
+                    rejected("too many browser processes in flight");
+                }
+            }, remaining, TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        /**
+         * Counts the spawn as queued. Called with the throttle's lock
+         * held.
+         */
+        private void startWaiting() {
+            if (!waited) {
+                waited = true;
+                queuedCount++;
+                waitingCount++;
+            }
+        }
+
+        /**
+         * Completes the future once the token and a slot are taken.
+         */
+        void granted() {
+            synchronized (SpawnThrottle.this) {
+                spawnCount++;
+                if (waited) {
+                    waitingCount--;
+                }
+                if (expiry != null) {
+                    expiry.cancel(false);
+                }
+            }
+            future.complete(null);
+        }
+
+        private void rejected(String reason) {
+            synchronized (SpawnThrottle.this) {
+                waitingCount--;
+            }
+            future.completeExceptionally(reject(reason));
+        }
+    }
+
+    public String toString() {
+        return "spawned=" + getSpawnCount() +
+                " queued=" + getQueuedCount() +
+                " rejected=" + getRejectedCount() +
+                " waiting=" + getWaitingCount() +
+                " inFlight=" + getInFlightCount();
+    }
+}
@@ -0,0 +1,199 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
+
+/**
+ * Helpers for launching several urls at once: splitting the urls
+ * into batches whose command lines stay within the operating system's
+ * argument length limit, and collecting one result per url.
+ */
+public final class UrlBatches {
+    /**
+     * Key to system property holding the most bytes the arguments of
+     * one batched command may take.
+     */
+    public static final String MAX_COMMAND_BYTES_PROPERTY =
+            "edu.stanford.ejalbert.batch.maxcommandbytes";
+    /**
+     * Well below the smallest ARG_MAX in use (POSIX requires 4096 plus
+     * the environment; Linux and the BSDs allow far more) so that the
+     * environment always fits too.
+     */
+    public static final int DEFAULT_MAX_COMMAND_BYTES = 32768;
+
+    private UrlBatches() {
+        // static methods only
+    }
+
+    /**
+     * Returns the most bytes the arguments of one batched command may
+     * take, from the system property or the default.
+     *
+     * @return int
+     */
+    public static int getMaxCommandBytes() {
+        String value = System.getProperty(MAX_COMMAND_BYTES_PROPERTY, null);
+        if (value != null) {
+            try {
+                return Math.max(Integer.parseInt(value.trim()), 1);
+            }
+            catch (NumberFormatException ex) {
+                // use the default
+            }
+        }
+        return DEFAULT_MAX_COMMAND_BYTES;
+    }
+
+    /**
+     * Splits the urls into batches of at most maxUrls urls. A batch
+     * is also ended before its command line would exceed maxBytes:
+     * fixedBytes for the arguments every command has, plus each url's
+     * length and perUrlBytes for the arguments repeated with it. A
+     * url too long to share a command gets a batch of its own.
+     *
+     * @param urls List of String objects
+     * @param maxUrls int
+     * @param fixedBytes int
+     * @param perUrlBytes int
+     * @param maxBytes int
+     * @return List of Lists of String objects
+     */
+    public static List<List<String>> split(List<String> urls,
+                                           int maxUrls,
+                                           int fixedBytes,
+                                           int perUrlBytes,
+                                           int maxBytes) {
+        if (maxUrls < 1) {
+            throw new IllegalArgumentException("maxUrls must be positive.");
+        }
+        List<List<String>> batches = new ArrayList<List<String>>();
+        List<String> batch = new ArrayList<String>();
+        int bytes = fixedBytes;
+        Iterator<String> iter = urls.iterator();
+        while (iter.hasNext()) {
+            String url = iter.next();
+            // one more for the terminating NUL of each argument
+            int urlBytes = url.length() + 1 + perUrlBytes;
+            if (!batch.isEmpty() &&
+                (batch.size() >= maxUrls || bytes + urlBytes > maxBytes)) {
+                batches.add(batch);
+                batch = new ArrayList<String>();
+                bytes = fixedBytes;
+            }
+            batch.add(url);
+            bytes += urlBytes;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Returns a future completing with the results of the passed
+     * launches, in order, once all of them have completed. A launch
+     * that failed is reported by its result's
+     * {@link LaunchResult#getFailure() failure} rather than failing
+     * the returned future, so one bad url does not hide the others'
+     * results.
+     *
+     * @param launches List of CompletableFutures of LaunchResults
+     * @param results List of LaunchResults used for launches that fail
+     * @return CompletableFuture
+     */
+    public static CompletableFuture<List<LaunchResult>> collect(
+            List<CompletableFuture<LaunchResult>> launches,
+            List<LaunchResult> results) {
+        final List<CompletableFuture<LaunchResult>> settled =
+                new ArrayList<CompletableFuture<LaunchResult>>(launches.size());
+        for (int idx = 0; idx < launches.size(); idx++) {
+            final LaunchResult fallback = results.get(idx);
+            settled.add(launches.get(idx).handle(
+                    new BiFunction<LaunchResult, Throwable, LaunchResult>() {
+                public LaunchResult apply(LaunchResult result, Throwable ex) {
+                    if (ex == null) {
+                        return result;
+                    }
+                    while (ex instanceof CompletionException &&
+                           ex.getCause() != null) {
+                        ex = ex.getCause();
+                    }
+                    fallback.setFailure(ex);
+                    fallback.finish();
+                    return fallback;
+                }
+            }));
+        }
+        return CompletableFuture.allOf(settled.toArray(
+                new CompletableFuture[settled.size()])).thenApply(
+                new Function<Void, List<LaunchResult>>() {
+            public List<LaunchResult> apply(Void ignored) {
+                List<LaunchResult> collected =
+                        new ArrayList<LaunchResult>(settled.size());
+                for (int idx = 0; idx < settled.size(); idx++) {
+                    collected.add(settled.get(idx).join());
+                }
+                return collected;
+            }
+        });
+    }
+
+    /**
+     * Opens each url with its own launch, for launchers that cannot
+     * pass several urls to one command.
+     *
+     * @param launching IBrowserLaunching
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @param executor Executor
+     * @return CompletableFuture completing with one result per url
+     */
+    public static CompletableFuture<List<LaunchResult>> openEachAsync(
+            IBrowserLaunching launching,
+            List browsers,
+            Collection<String> urlStrings,
+            Executor executor) {
+        List<CompletableFuture<LaunchResult>> launches =
+                new ArrayList<CompletableFuture<LaunchResult>>();
+        List<LaunchResult> results = new ArrayList<LaunchResult>();
+        Iterator<String> iter = urlStrings.iterator();
+        while (iter.hasNext()) {
+            String urlString = iter.next();
+            launches.add(launching.openUrlAsync(browsers, urlString, executor));
+            results.add(new LaunchResult(urlString));
+        }
+        return collect(launches, results);
+    }
+}
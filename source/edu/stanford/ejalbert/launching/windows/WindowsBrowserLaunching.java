@@ -30,14 +30,20 @@ import java.net.URL;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Properties;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import at.jta.RegistryErrorException;
 import at.jta.Regor;
@@ -45,9 +51,18 @@ import edu.stanford.ejalbert.exception.BrowserLaunchingExecutionException;
 import edu.stanford.ejalbert.exception.BrowserLaunchingInitializingException;
 import edu.stanford.ejalbert.exception.UnsupportedOperatingSystemException;
 import edu.stanford.ejalbert.launching.IBrowserLaunching;
+import edu.stanford.ejalbert.launching.LaunchResult;
 import net.sf.wraplog.AbstractLogger;
+import edu.stanford.ejalbert.launching.utils.BrowserCatalog;
+import edu.stanford.ejalbert.launching.utils.BrowserCircuitBreaker;
+import edu.stanford.ejalbert.launching.utils.BrowserConfigLoader;
+import edu.stanford.ejalbert.launching.utils.BrowserProcessRunner;
+import edu.stanford.ejalbert.launching.utils.CommandTemplate;
+import edu.stanford.ejalbert.launching.utils.LaunchTimeouts;
 import edu.stanford.ejalbert.launching.utils.LaunchingUtils;
+import edu.stanford.ejalbert.launching.utils.UrlBatches;
 import edu.stanford.ejalbert.launching.IBrowserEventCallBack;
+import edu.stanford.ejalbert.metrics.LaunchMetrics;
 
 /**
  * Handles initialization, configuration, and calls to open a url.
@@ -95,7 +110,7 @@ public class WindowsBrowserLaunching
      * Maps display name and exe name to {@link WindowsBrowser WindowsBrowser}
      * objects. Using name and exe as keys for backward compatiblity.
      */
-    private Map browserNameAndExeMap = null;
+    private volatile Map browserNameAndExeMap = null;
 
     /**
      * List of {@link WindowsBrowser WindowsBrowser} objects that
@@ -103,16 +118,29 @@ public class WindowsBrowserLaunching
      * on the machine. The list is created from the windows
      * config file.
      */
-    private List browsersToCheck = new ArrayList();
+    private volatile List browsersToCheck = new ArrayList();
+
+    /**
+     * catalog the browsers to check come from; null before initialize
+     */
+    private volatile BrowserCatalog catalog = null;
+
+    /**
+     * Maps config entries to the {@link WindowsBrowser WindowsBrowser}
+     * objects created from them so unchanged browsers are kept when
+     * the config changes.
+     */
+    private Map<String, WindowsBrowser> browsersByEntry =
+            new HashMap<String, WindowsBrowser>();
 
     /**
      * Arguments for starting the default browser.
      */
-    private String commandsDefaultBrowser; // in initialize
+    private CommandTemplate commandsDefaultBrowser; // in initialize
     /**
      * Arguments for starting a specific browser.
      */
-    private String commandsTargettedBrowser; // in initialize
+    private CommandTemplate commandsTargettedBrowser; // in initialize
     /**
      * The key for accessing information from the windows config
      * file for a particular version of windows.
@@ -189,9 +217,10 @@ public class WindowsBrowserLaunching
      */
     private Map getBrowserMap() {
         // Handles lazy instantiation of available browser map.
-        synchronized (WindowsBrowserLaunching.class) {
+        synchronized (this) {
             if (browserNameAndExeMap == null) {
-                browserNameAndExeMap = new HashMap();
+                long start = System.currentTimeMillis();
+                Map browserMap = new HashMap();
                 // pull additional browsers from system property??
                 // ---------
                 // create temporary list of browsers to check to track which
@@ -200,19 +229,103 @@ public class WindowsBrowserLaunching
                 List tempBrowsersToCheck = new ArrayList(browsersToCheck);
                 // first try the registry
                 if (useRegistry) {
-                    browserNameAndExeMap.putAll(
+                    browserMap.putAll(
                             getAvailableBrowsers(tempBrowsersToCheck));
                 }
                 // if there are still browsers to find, try file path
                 if (!tempBrowsersToCheck.isEmpty()) {
-                    browserNameAndExeMap.putAll(
+                    browserMap.putAll(
                             processFilePathsForBrowsers(tempBrowsersToCheck));
                 }
+                browserNameAndExeMap = browserMap;
+                // discovery runs on first use, after initialize()
+                long elapsed = System.currentTimeMillis() - start;
+                LaunchMetrics.getDefault().recordDiscovery(elapsed);
+                LaunchMetrics.getDefault().recordInitPhase(
+                        "windows.discovery",
+                        elapsed);
             }
         }
         return browserNameAndExeMap;
     }
 
+    /**
+     * Switches to the shared catalog if the config has changed since
+     * initialize. Browsers whose config entries did not change are
+     * kept along with their paths; if discovery has already run, only
+     * the new and changed browsers are searched for. The windows
+     * command settings are kept as read by initialize.
+     */
+    private void refreshBrowsers() {
+        BrowserCatalog current = catalog;
+        if (current == null) {
+            // not initialized
+            return;
+        }
+        BrowserCatalog latest;
+        try {
+            latest = BrowserConfigLoader.getCatalog(CONFIGFILE_WINDOWS,
+                                                    logger);
+        }
+        catch (IOException ex) {
+            logger.error("unable to load browser config", ex);
+            return;
+        }
+        if (latest == current) {
+            return;
+        }
+        synchronized (this) {
+            if (catalog.getVersion() >= latest.getVersion()) {
+                return;
+            }
+            String sepChar = latest.getDelimiter();
+            boolean sameDelimiter = sepChar.equals(catalog.getDelimiter());
+            List<WindowsBrowser> browsers = new ArrayList<WindowsBrowser>();
+            List<WindowsBrowser> changed = new ArrayList<WindowsBrowser>();
+            Map<String, WindowsBrowser> entries =
+                    new HashMap<String, WindowsBrowser>();
+            Iterator<String> keysIter = latest.getBrowserKeys().iterator();
+            while (keysIter.hasNext()) {
+                String entry = latest.getProperty(keysIter.next());
+                WindowsBrowser winBrowser = sameDelimiter ?
+                                            browsersByEntry.get(entry) : null;
+                if (winBrowser == null) {
+                    winBrowser = new WindowsBrowser(sepChar, entry);
+                    changed.add(winBrowser);
+                }
+                browsers.add(winBrowser);
+                entries.put(entry, winBrowser);
+            }
+            Map oldBrowserMap = browserNameAndExeMap;
+            if (oldBrowserMap != null) {
+                // keep the browsers already found
+                Map browserMap = new HashMap();
+                Iterator iter = oldBrowserMap.entrySet().iterator();
+                while (iter.hasNext()) {
+                    Map.Entry mapEntry = (Map.Entry) iter.next();
+                    if (entries.containsValue(mapEntry.getValue())) {
+                        browserMap.put(mapEntry.getKey(), mapEntry.getValue());
+                    }
+                }
+                List<WindowsBrowser> tempBrowsersToCheck =
+                        new ArrayList<WindowsBrowser>(changed);
+                if (useRegistry && !tempBrowsersToCheck.isEmpty()) {
+                    browserMap.putAll(
+                            getAvailableBrowsers(tempBrowsersToCheck));
+                }
+                if (!tempBrowsersToCheck.isEmpty()) {
+                    browserMap.putAll(
+                            processFilePathsForBrowsers(tempBrowsersToCheck));
+                }
+                browserNameAndExeMap = browserMap;
+            }
+            browsersToCheck = Collections.unmodifiableList(browsers);
+            browsersByEntry = entries;
+            catalog = latest;
+            logger.info("browser config changed: " + latest);
+        }
+    }
+
     /**
      * Use program files folder template from properties file and
      * the list of drive letters from that properties file
@@ -472,11 +585,7 @@ public class WindowsBrowserLaunching
      */
     private String[] getCommandArgs(String protocol,
                                     String urlString) {
-        String commandArgs = LaunchingUtils.replaceArgs(
-                commandsDefaultBrowser,
-                null,
-                urlString);
-        return commandArgs.split("[ ]");
+        return commandsDefaultBrowser.fill(null, urlString);
     }
 
     /**
@@ -491,28 +600,19 @@ public class WindowsBrowserLaunching
      * @param forceNewWindow boolean
      * @return String[]
      */
-    private String getCommandArgs(String protocol,
-                                  WindowsBrowser winbrowser,
-                                  String urlString,
-                                  boolean forceNewWindow) {
-        String commandArgs = LaunchingUtils.replaceArgs(
-                commandsTargettedBrowser,
-                winbrowser.getBrowserApplicationName(),
-                urlString);
+    private String[] getCommandArgs(String protocol,
+                                    WindowsBrowser winbrowser,
+                                    String urlString,
+                                    boolean forceNewWindow) {
         String args = "";
         if (forceNewWindow) {
             args = winbrowser.getForceNewWindowArgs();
         }
-        commandArgs = commandArgs.replaceAll("<args>", args);
-        int pathLoc = commandArgs.indexOf("<path>");
-        if (pathLoc > 0) {
-            StringBuffer buf = new StringBuffer();
-            buf.append(commandArgs.substring(0, pathLoc));
-            buf.append(winbrowser.getPathToExe());
-            buf.append(commandArgs.substring(pathLoc + 6));
-            commandArgs = buf.toString();
-        }
-        return commandArgs; //.split("[ ]");
+        return commandsTargettedBrowser.fill(
+                winbrowser.getBrowserApplicationName(),
+                urlString,
+                winbrowser.getPathToExe(),
+                args);
     }
 
     /**
@@ -522,49 +622,216 @@ public class WindowsBrowserLaunching
      * @param winBrowser WindowsBrowser
      * @param protocol String
      * @param urlString String
-     * @return boolean
-     * @throws BrowserLaunchingExecutionException
+     * @param result LaunchResult
+     * @return CompletableFuture completing with true if the browser opened the url
+     */
+    private CompletableFuture<Boolean> openUrlWithBrowserAsync(
+            final WindowsBrowser winBrowser,
+            String protocol,
+            String urlString,
+            final LaunchResult result) {
+        logger.info(winBrowser.getBrowserDisplayName());
+        logger.info(urlString);
+        logger.info(protocol);
+        BrowserCircuitBreaker breaker = BrowserCircuitBreaker.getDefault();
+        if (!breaker.allowLaunch(winBrowser.getBrowserDisplayName())) {
+            logger.info("circuit open, skipping " +
+                        winBrowser.getBrowserDisplayName());
+            return CompletableFuture.completedFuture(Boolean.FALSE);
+        }
+        String[] args = getCommandArgs(
+                protocol,
+                winBrowser,
+                urlString,
+                forceNewWindow);
+        if (logger.isDebugEnabled()) {
+            logger.debug(getArrayAsString(args));
+        }
+        final int stage = forceNewWindow ?
+                          LaunchResult.STAGE_FORCE_NEW_WINDOW :
+                          LaunchResult.STAGE_START;
+        final long start = System.currentTimeMillis();
+        return LaunchingUtils.wrapFailures(breaker.track(BrowserProcessRunner.run(
+                args,
+                null,
+                result.getDeadline(),
+                logger)
+                .thenApply(new Function<Integer, Boolean>() {
+            public Boolean apply(Integer exitCode) {
+                // some browsers (mozilla, firefox) return 1 if you attempt to
+                // open a url and an instance of that browser is already running
+                // not clear why because the call is succeeding, ie the browser
+                // opens the url.
+                // If we don't say 1 is also a success, we get two browser
+                // windows or tabs opened to the url.
+                //
+                // We could make this check smarter in the future if we run
+                // into problems. the winBrowser object could handle the
+                // check to make it browser specific.
+                int exitValue = exitCode.intValue();
+                result.addAttempt(-1,
+                                  winBrowser.getBrowserDisplayName(),
+                                  stage,
+                                  exitValue,
+                                  start);
+                BrowserProcessRunner.checkNotTimedOut(exitValue);
+                boolean success = exitValue == 0 || exitValue == 1 ||
+                                  exitValue == LaunchResult.EXIT_DETACHED;
+                if (success) {
+                    result.setSucceeded(winBrowser.getBrowserDisplayName());
+                }
+                return Boolean.valueOf(success);
+            }
+        }), winBrowser.getBrowserDisplayName()));
+    }
+
+    /**
+     * Opens a url using the browser from the system property or,
+     * if that fails, the default browser. This is the non-targetted
+     * launch all other launches fall back on.
+     *
+     * @param urlString String
+     * @param result LaunchResult
+     * @return CompletableFuture completing once the url has been opened
      */
-    private boolean openUrlWithBrowser(WindowsBrowser winBrowser,
-                                       String protocol,
-                                       String urlString)
-            throws BrowserLaunchingExecutionException {
-        boolean success = false;
+    private CompletableFuture<Boolean> openUrlInDefaultBrowserAsync(
+            final String urlString,
+            final LaunchResult result) {
+        logger.info(urlString);
+        final String protocol;
         try {
-            logger.info(winBrowser.getBrowserDisplayName());
-            logger.info(urlString);
-            logger.info(protocol);
-            String args = getCommandArgs(
-                    protocol,
-                    winBrowser,
-                    urlString,
-                    forceNewWindow);
-            if (logger.isDebugEnabled()) {
-                logger.debug(args);
+            protocol = getProtocol(urlString);
+        }
+        catch (MalformedURLException ex) {
+            logger.error("fatal exception", ex);
+            return CompletableFuture.failedFuture(
+                    new BrowserLaunchingExecutionException(ex));
+        }
+        logger.info(protocol);
+        // try the system prop first
+        CompletableFuture<Boolean> systemPropLaunch =
+                CompletableFuture.completedFuture(Boolean.FALSE);
+        String browserName = System.getProperty(
+                IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
+                null);
+        if (browserName != null) {
+            Map browserMap = getBrowserMap();
+            WindowsBrowser winBrowser = (WindowsBrowser) browserMap.get(
+                    browserName);
+            if (winBrowser != null) {
+                logger.debug("using browser from system property");
+                systemPropLaunch = openUrlWithBrowserAsync(
+                        winBrowser,
+                        protocol,
+                        urlString,
+                        result);
             }
-            Process process = Runtime.getRuntime().exec(args);
-            // This avoids a memory leak on some versions of Java on Windows.
-            // That's hinted at in <http://developer.java.sun.com/developer/qow/archive/68/>.
-            process.waitFor();
-            // some browsers (mozilla, firefox) return 1 if you attempt to
-            // open a url and an instance of that browser is already running
-            // not clear why because the call is succeeding, ie the browser
-            // opens the url.
-            // If we don't say 1 is also a success, we get two browser
-            // windows or tabs opened to the url.
-            //
-            // We could make this check smarter in the future if we run
-            // into problems. the winBrowser object could handle the
-            // check to make it browser specific.
-            int exitValue = process.exitValue();
-            success = exitValue == 0 || exitValue == 1;
         }
-        // Runtimes may throw InterruptedException
-        // want to catch every possible exception and wrap it
-        catch (Exception e) {
-            throw new BrowserLaunchingExecutionException(e);
+        return LaunchingUtils.wrapFailures(systemPropLaunch.thenCompose(
+                new Function<Boolean, CompletionStage<Boolean>>() {
+            public CompletionStage<Boolean> apply(Boolean success) {
+                if (success.booleanValue()) {
+                    return CompletableFuture.completedFuture(success);
+                }
+                String[] args = getCommandArgs(protocol,
+                                               urlString);
+                if (logger.isDebugEnabled()) {
+                    logger.debug(getArrayAsString(args));
+                }
+                final long start = System.currentTimeMillis();
+                return BrowserProcessRunner.run(args,
+                                                null,
+                                                result.getDeadline(),
+                                                logger).thenApply(
+                        new Function<Integer, Boolean>() {
+                    public Boolean apply(Integer exitCode) {
+                        result.addAttempt(-1,
+                                          IBrowserLaunching.BROWSER_DEFAULT,
+                                          LaunchResult.STAGE_DEFAULT,
+                                          exitCode.intValue(),
+                                          start);
+                        // the start command does not report browser failures
+                        result.setSucceeded(IBrowserLaunching.BROWSER_DEFAULT);
+                        return Boolean.TRUE;
+                    }
+                });
+            }
+        }));
+    }
+
+    /**
+     * Tries the listed browsers in order until one of them succeeds.
+     * If the list is null or empty, or none of the browsers succeed,
+     * the url is opened in the default browser.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @return CompletableFuture
+     */
+    private CompletableFuture<LaunchResult> launchUrlAsync(
+            List browsers,
+            final String urlString) {
+        final LaunchResult result = new LaunchResult(
+                urlString,
+                LaunchTimeouts.getDefault().getLaunchTimeout());
+        // the default launch uses the browser map for the system property
+        refreshBrowsers();
+        List<Supplier<CompletableFuture<Boolean>>> attempts =
+                new ArrayList<Supplier<CompletableFuture<Boolean>>>();
+        if (browsers != null && !browsers.isEmpty()) {
+            final String protocol;
+            try {
+                protocol = getProtocol(urlString);
+            }
+            catch (MalformedURLException malrulex) {
+                return CompletableFuture.failedFuture(
+                        new BrowserLaunchingExecutionException(malrulex));
+            }
+            Map browserMap = getBrowserMap();
+            Iterator iter = browsers.iterator();
+            while (iter.hasNext()) {
+                Object browserName = iter.next();
+                if (browserName == null ||
+                    IBrowserLaunching.BROWSER_DEFAULT.equals(browserName)) {
+                    continue;
+                }
+                final WindowsBrowser winBrowser =
+                        (WindowsBrowser) browserMap.get(browserName);
+                if (winBrowser == null) {
+                    logger.info(
+                            "the available browsers list does not contain: " +
+                            browserName);
+                }
+                else {
+                    attempts.add(new Supplier<CompletableFuture<Boolean>>() {
+                        public CompletableFuture<Boolean> get() {
+                            return openUrlWithBrowserAsync(winBrowser,
+                                                           protocol,
+                                                           urlString,
+                                                           result);
+                        }
+                    });
+                }
+            }
         }
-        return success;
+        CompletableFuture<Boolean> launched = BrowserProcessRunner.tryInOrder(
+                attempts.iterator())
+                .thenCompose(new Function<Boolean, CompletionStage<Boolean>>() {
+            public CompletionStage<Boolean> apply(Boolean success) {
+                if (success.booleanValue()) {
+                    return CompletableFuture.completedFuture(success);
+                }
+                logger.debug("falling through to non-targetted openUrl");
+                return openUrlInDefaultBrowserAsync(urlString, result);
+            }
+        });
+        return LaunchingUtils.wrapFailures(launched.thenApply(
+                new Function<Boolean, LaunchResult>() {
+            public LaunchResult apply(Boolean success) {
+                result.finish();
+                return result;
+            }
+        }));
     }
 
     /* ----------------- from IBrowserLaunching -------------------- */
@@ -582,33 +849,35 @@ public class WindowsBrowserLaunching
      * Initializes the browser launcher from the windows config
      * file. It initializes the browsers to check list and
      * the command line args to use for version of windows
-     * referenced by the windowsKey.
+     * referenced by the windowsKey. The config comes from the
+     * shared {@link BrowserConfigLoader browser catalog}, which
+     * merges the config file with the system, user and programmatic
+     * overrides.
      *
      * @see windowsKey
      * @throws BrowserLaunchingInitializingException
      */
     public void initialize()
             throws BrowserLaunchingInitializingException {
+        long start = System.currentTimeMillis();
         try {
-            URL configUrl = getClass().getResource(CONFIGFILE_WINDOWS);
-            if (configUrl == null) {
-                throw new BrowserLaunchingInitializingException(
-                        "unable to find config file: " + CONFIGFILE_WINDOWS);
-            }
-            Properties configProps = new Properties();
-            configProps.load(configUrl.openStream());
+            // merged config shared with other launchers
+            BrowserCatalog configProps = BrowserConfigLoader.getCatalog(
+                    CONFIGFILE_WINDOWS,
+                    logger);
             // get sep char
-            String sepChar = configProps.getProperty(PROP_KEY_DELIMITER);
-            // load different types of browsers
-            Iterator keysIter = configProps.keySet().iterator();
+            String sepChar = configProps.getDelimiter();
+            // load different types of browsers; each launcher sets the
+            // paths on its own WindowsBrowser objects
+            Iterator<String> keysIter = configProps.getBrowserKeys().iterator();
             while (keysIter.hasNext()) {
-                String key = (String) keysIter.next();
-                if (key.startsWith(PROP_KEY_BROWSER_PREFIX)) {
-                    WindowsBrowser winBrowser = new WindowsBrowser(
-                            sepChar,
-                            configProps.getProperty(key));
-                    browsersToCheck.add(winBrowser);
-                }
+                String key = keysIter.next();
+                String entry = configProps.getProperty(key);
+                WindowsBrowser winBrowser = new WindowsBrowser(
+                        sepChar,
+                        entry);
+                browsersToCheck.add(winBrowser);
+                browsersByEntry.put(entry, winBrowser);
             }
             // load the type of windows based on the windows key
             String windowsConfigStr = configProps.getProperty(
@@ -619,8 +888,13 @@ public class WindowsBrowserLaunching
                         windowsKey + " is not a valid property");
             }
             String[] winConfigItems = windowsConfigStr.split(sepChar);
-            commandsDefaultBrowser = winConfigItems[0];
-            commandsTargettedBrowser = winConfigItems[1];
+            // the commands run through the shell, which needs the quotes
+            commandsDefaultBrowser = CommandTemplate.compile(
+                    winConfigItems[0],
+                    true);
+            commandsTargettedBrowser = CommandTemplate.compile(
+                    winConfigItems[1],
+                    true);
             Boolean boolVal = new Boolean(winConfigItems[2]);
             useRegistry = boolVal.booleanValue();
             // check for override of useRegistry from system prop
@@ -651,6 +925,10 @@ public class WindowsBrowserLaunching
                     null);
             // set brwosersToCheck to a non-modifiable list
             browsersToCheck = Collections.unmodifiableList(browsersToCheck);
+            catalog = configProps;
+            LaunchMetrics.getDefault().recordInitPhase(
+                    "windows.config",
+                    System.currentTimeMillis() - start);
         }
         catch (IOException ioex) {
             throw new BrowserLaunchingInitializingException(ioex);
@@ -669,44 +947,7 @@ public class WindowsBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        try {
-            logger.info(urlString);
-            String protocol = getProtocol(urlString);
-            logger.info(protocol);
-            // try the system prop first
-            boolean successfullSystemPropLaunch = false;
-            String browserName = System.getProperty(
-                    IBrowserLaunching.BROWSER_SYSTEM_PROPERTY,
-                    null);
-            if (browserName != null) {
-                Map browserMap = getBrowserMap();
-                WindowsBrowser winBrowser = (WindowsBrowser) browserMap.get(
-                        browserName);
-                if (winBrowser != null) {
-                    logger.debug("using browser from system property");
-                    successfullSystemPropLaunch = openUrlWithBrowser(
-                            winBrowser,
-                            protocol,
-                            urlString);
-                }
-            }
-            if (!successfullSystemPropLaunch) {
-                String[] args = getCommandArgs(protocol,
-                                               urlString);
-                if (logger.isDebugEnabled()) {
-                    logger.debug(getArrayAsString(args));
-                }
-                Process process = Runtime.getRuntime().exec(args);
-                // This avoids a memory leak on some versions of Java on Windows.
-                // That's hinted at in <http://developer.java.sun.com/developer/qow/archive/68/>.
-                process.waitFor();
-                process.exitValue();
-            }
-        }
-        catch (Exception e) {
-            logger.error("fatal exception", e);
-            throw new BrowserLaunchingExecutionException(e);
-        }
+        LaunchingUtils.join(launchUrlAsync(null, urlString));
     }
 
     /**
@@ -726,39 +967,9 @@ public class WindowsBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        if (IBrowserLaunching.BROWSER_DEFAULT.equals(browser) ||
-            browser == null) {
-            logger.info(
-                    "default or null browser target; falling through to non-targetted openUrl");
-            openUrl(urlString);
-        }
-        else {
-            Map browserMap = getBrowserMap();
-            WindowsBrowser winBrowser = (WindowsBrowser) browserMap.get(browser);
-            if (winBrowser == null) {
-                logger.info("the available browsers list does not contain: " +
-                            browser);
-                logger.info("falling through to non-targetted openUrl");
-                openUrl(urlString);
-            }
-            else {
-                String protocol = null;
-                try {
-                    protocol = getProtocol(urlString);
-                }
-                catch (MalformedURLException malrulex) {
-                    throw new BrowserLaunchingExecutionException(malrulex);
-                }
-                boolean successfullLaunch = openUrlWithBrowser(
-                        winBrowser,
-                        protocol,
-                        urlString);
-                if (!successfullLaunch) {
-                    logger.debug("falling through to non-targetted openUrl");
-                    openUrl(urlString);
-                }
-            }
-        }
+        LaunchingUtils.join(launchUrlAsync(
+                browser == null ? null : Collections.singletonList(browser),
+                urlString));
     }
 
     /**
@@ -782,38 +993,46 @@ public class WindowsBrowserLaunching
             throws UnsupportedOperatingSystemException,
             BrowserLaunchingExecutionException,
             BrowserLaunchingInitializingException {
-        if (browsers == null || browsers.isEmpty()) {
-            logger.debug("falling through to non-targetted openUrl");
-            openUrl(urlString);
-        }
-        else {
-            String protocol = null;
-            try {
-                protocol = getProtocol(urlString);
-            }
-            catch (MalformedURLException malrulex) {
-                throw new BrowserLaunchingExecutionException(malrulex);
-            }
-            Map browserMap = getBrowserMap();
-            boolean success = false;
-            Iterator iter = browsers.iterator();
-            while (iter.hasNext() && !success) {
-                WindowsBrowser winBrowser = (WindowsBrowser) browserMap.get(
-                        iter.next());
-                if (winBrowser != null) {
-                    success = openUrlWithBrowser(winBrowser,
-                                                 protocol,
-                                                 urlString);
-                }
-            }
-            if (!success) {
-                logger.debug(
-                        "none of listed browsers succeeded; falling through to non-targetted openUrl");
-                openUrl(urlString);
+        LaunchingUtils.join(launchUrlAsync(browsers, urlString));
+    }
+
+    /**
+     * Starts the launch on the executor. The browsers from the list
+     * are tried in order before failing over to the default browser.
+     * The executor thread is only used to start the first command;
+     * the rest of the launch is driven by the commands exiting.
+     *
+     * @param browsers List may be null
+     * @param urlString String
+     * @param executor Executor
+     * @return CompletableFuture
+     */
+    public CompletableFuture<LaunchResult> openUrlAsync(final List browsers,
+                                                        final String urlString,
+                                                        Executor executor) {
+        return LaunchingUtils.composeAsync(
+                new Callable<CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> call() {
+                return launchUrlAsync(browsers, urlString);
             }
-        }
+        }, executor);
     }
 
+    /**
+     * Opens each url with its own launch. The browser commands
+     * run through the Windows shell take one url each.
+     *
+     * @param browsers List may be null
+     * @param urlStrings Collection of String objects
+     * @param executor Executor
+     * @return CompletableFuture completing with one result per url
+     */
+    public CompletableFuture<List<LaunchResult>> openUrlsAsync(
+            List browsers,
+            Collection<String> urlStrings,
+            Executor executor) {
+        return UrlBatches.openEachAsync(this, browsers, urlStrings, executor);
+    }
 
     /**
      * Returns a list of browsers to be used for browser targetting.
@@ -822,6 +1041,7 @@ public class WindowsBrowserLaunching
      * @return List
      */
     public List getBrowserList() {
+        refreshBrowsers();
         Map browserMap = getBrowserMap();
         List browsers = new ArrayList();
         browsers.add(IBrowserLaunching.BROWSER_DEFAULT);
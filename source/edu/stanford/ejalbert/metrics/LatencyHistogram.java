@@ -0,0 +1,156 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies in milliseconds. Values are
+ * counted in buckets whose upper bounds double from 1ms to about
+ * 18 hours, so percentiles are reported as the upper bound of the
+ * bucket they fall in: at most twice the real value.
+ */
+public final class LatencyHistogram {
+    /**
+     * number of buckets; the last one holds everything above the
+     * largest bound
+     */
+    private static final int BUCKET_COUNT = 27;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMillis = new AtomicLong();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    /**
+     * Records one latency. Negative values are counted as zero.
+     *
+     * @param millis long
+     */
+    public void record(long millis) {
+        if (millis < 0L) {
+            millis = 0L;
+        }
+        buckets.incrementAndGet(getBucket(millis));
+        count.incrementAndGet();
+        totalMillis.addAndGet(millis);
+        long max;
+        while (millis > (max = maxMillis.get()) &&
+               !maxMillis.compareAndSet(max, millis)) {
+            // retry
+        }
+    }
+
+    /**
+     * Returns the index of the bucket holding the value: 0 for 0-1ms,
+     * 1 for 2ms, 2 for 3-4ms, 3 for 5-8ms and so on.
+     */
+    private static int getBucket(long millis) {
+        if (millis <= 1L) {
+            return 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros(millis - 1L);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return long
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the mean latency in millis, or zero if none was recorded.
+     *
+     * @return double
+     */
+    public double getMean() {
+        long cnt = count.get();
+        return cnt == 0L ? 0.0 : (double) totalMillis.get() / cnt;
+    }
+
+    /**
+     * Returns the largest recorded latency in millis.
+     *
+     * @return long
+     */
+    public long getMax() {
+        return maxMillis.get();
+    }
+
+    /**
+     * Returns the latency in millis below which the passed fraction
+     * of the recorded latencies fall, rounded up to a bucket bound
+     * and capped at the largest recorded latency.
+     *
+     * @param fraction double between 0 and 1, e.g. 0.99
+     * @return long zero if none was recorded
+     */
+    public long getPercentile(double fraction) {
+        if (fraction < 0.0 || fraction > 1.0) {
+            throw new IllegalArgumentException(
+                    "fraction must be between 0 and 1: " + fraction);
+        }
+        long total = 0L;
+        long[] counts = new long[BUCKET_COUNT];
+        for (int idx = 0; idx < BUCKET_COUNT; idx++) {
+            counts[idx] = buckets.get(idx);
+            total += counts[idx];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(fraction * total));
+        long seen = 0L;
+        for (int idx = 0; idx < BUCKET_COUNT; idx++) {
+            seen += counts[idx];
+            if (seen >= rank) {
+                return Math.min(1L << idx, maxMillis.get());
+            }
+        }
+        return maxMillis.get();
+    }
+
+    /**
+     * Forgets all recorded latencies.
+     */
+    public void reset() {
+        for (int idx = 0; idx < BUCKET_COUNT; idx++) {
+            buckets.set(idx, 0L);
+        }
+        count.set(0L);
+        totalMillis.set(0L);
+        maxMillis.set(0L);
+    }
+
+    public String toString() {
+        return "count=" + getCount() +
+                " mean=" + Math.round(getMean()) +
+                "ms p50=" + getPercentile(0.5) +
+                "ms p99=" + getPercentile(0.99) +
+                "ms max=" + getMax() + "ms";
+    }
+}
@@ -0,0 +1,496 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import edu.stanford.ejalbert.launching.LaunchResult;
+import edu.stanford.ejalbert.launching.utils.BrowserCircuitBreaker;
+import edu.stanford.ejalbert.launching.utils.BrowserProcessRunner;
+import edu.stanford.ejalbert.launching.utils.SpawnThrottle;
+
+/**
+ * Counts and times browser launches. The launching classes record
+ * into the instance returned by {@link #getDefault() getDefault},
+ * which is registered as an MBean named
+ * {@link #OBJECT_NAME OBJECT_NAME} when it is created, unless the
+ * {@link #JMX_PROPERTY JMX_PROPERTY} system property is false.
+ * <p>
+ * Recorded are:
+ * <ul>
+ * <li>launches requested, succeeded, failed, needing a fallback and
+ * merged by coalescing;</li>
+ * <li>commands run, succeeded and failed per browser and per
+ * fallback stage;</li>
+ * <li>latency histograms of whole launches, of each command until it
+ * exited (or detached), of starting processes and of browser
+ * discovery probes;</li>
+ * <li>the time taken by each phase of the last initialize() of each
+ * launching class.</li>
+ * </ul>
+ * Pending launches, processes in flight, spawns waiting in the
+ * {@link SpawnThrottle spawn throttle} and the circuits of the
+ * {@link BrowserCircuitBreaker circuit breaker} are read when asked
+ * for.
+ */
+public final class LaunchMetrics
+        implements LaunchMetricsMBean {
+    /**
+     * Key to system property turning the MBean registration off
+     * when set to false.
+     */
+    public static final String JMX_PROPERTY =
+            "edu.stanford.ejalbert.metrics.jmx";
+    /**
+     * object name of the registered MBean
+     */
+    public static final String OBJECT_NAME =
+            "edu.stanford.ejalbert:type=LaunchMetrics";
+
+    private static LaunchMetrics defaultMetrics = null;
+
+    private final AtomicLong launchCount = new AtomicLong();
+    private final AtomicLong succeededCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong fallbackCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final LatencyHistogram launchLatency = new LatencyHistogram();
+    private final LatencyHistogram exitLatency = new LatencyHistogram();
+    private final LatencyHistogram spawnLatency = new LatencyHistogram();
+    private final LatencyHistogram discoveryLatency = new LatencyHistogram();
+    /**
+     * maps browser names to their CommandCounts
+     */
+    private final ConcurrentHashMap<String, CommandCounts> browserCounts =
+            new ConcurrentHashMap<String, CommandCounts>();
+    /**
+     * maps stage names to their CommandCounts
+     */
+    private final ConcurrentHashMap<String, CommandCounts> stageCounts =
+            new ConcurrentHashMap<String, CommandCounts>();
+    /**
+     * maps phase names to the millis of their last run
+     */
+    private final Map<String, Long> initPhases =
+            new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Returns the metrics recorded by the browser launching classes,
+     * creating and registering them on first use.
+     *
+     * @return LaunchMetrics
+     */
+    public static synchronized LaunchMetrics getDefault() {
+        if (defaultMetrics == null) {
+            defaultMetrics = new LaunchMetrics();
+            if (!"false".equalsIgnoreCase(
+                    System.getProperty(JMX_PROPERTY, null))) {
+                defaultMetrics.register();
+            }
+        }
+        return defaultMetrics;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server. Failures
+     * are ignored; the metrics still work without JMX.
+     */
+    private void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        }
+        catch (JMException ex) {
+            // metrics stay available through getDefault()
+        }
+        catch (SecurityException ex) {
+            // metrics stay available through getDefault()
+        }
+    }
+
+    /* ------------------------ recording ------------------------ */
+
+    /**
+     * Records a launch being requested.
+     */
+    public void launchStarted() {
+        launchCount.incrementAndGet();
+        pendingCount.incrementAndGet();
+    }
+
+    /**
+     * Records the outcome of a launch. The result may be null if the
+     * launch failed with an exception. Each command of the launch is
+     * counted for its browser and stage; all but the last command of
+     * a successful launch failed.
+     *
+     * @param result LaunchResult may be null
+     * @param failed boolean true if the launch failed
+     * @param elapsedMillis long time the launch took
+     */
+    public void launchCompleted(LaunchResult result,
+                                boolean failed,
+                                long elapsedMillis) {
+        pendingCount.decrementAndGet();
+        launchLatency.record(elapsedMillis);
+        boolean success = !failed && result != null && result.isSuccess();
+        if (success) {
+            succeededCount.incrementAndGet();
+        }
+        else {
+            failedCount.incrementAndGet();
+        }
+        if (result == null) {
+            return;
+        }
+        List<LaunchResult.Attempt> attempts = result.getAttempts();
+        if (success && attempts.size() > 1) {
+            fallbackCount.incrementAndGet();
+        }
+        for (int idx = 0; idx < attempts.size(); idx++) {
+            LaunchResult.Attempt attempt = attempts.get(idx);
+            boolean attemptSucceeded = success && idx == attempts.size() - 1;
+            getCounts(browserCounts, attempt.getBrowserName())
+                    .record(attemptSucceeded);
+            getCounts(stageCounts,
+                      LaunchResult.getStageName(attempt.getStage()))
+                    .record(attemptSucceeded);
+            exitLatency.record(attempt.getElapsedMillis());
+        }
+    }
+
+    private static CommandCounts getCounts(
+            ConcurrentHashMap<String, CommandCounts> countsMap,
+            String key) {
+        if (key == null) {
+            key = "unknown";
+        }
+        CommandCounts counts = countsMap.get(key);
+        if (counts == null) {
+            CommandCounts created = new CommandCounts();
+            counts = countsMap.putIfAbsent(key, created);
+            if (counts == null) {
+                counts = created;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Records a launch request merged into an earlier identical one.
+     */
+    public void launchCoalesced() {
+        coalescedCount.incrementAndGet();
+    }
+
+    /**
+     * Records the time taken to start a browser process.
+     *
+     * @param millis long
+     */
+    public void recordSpawn(long millis) {
+        spawnLatency.record(millis);
+    }
+
+    /**
+     * Records the time taken by a browser discovery probe.
+     *
+     * @param millis long
+     */
+    public void recordDiscovery(long millis) {
+        discoveryLatency.record(millis);
+    }
+
+    /**
+     * Records the time taken by a phase of initializing a launching
+     * class, replacing the time recorded for the phase before.
+     *
+     * @param phase String e.g. "unix.discovery"
+     * @param millis long
+     */
+    public void recordInitPhase(String phase,
+                                long millis) {
+        initPhases.put(phase, Long.valueOf(millis));
+    }
+
+    /* ------------------------- reading ------------------------- */
+
+    public long getLaunchCount() {
+        return launchCount.get();
+    }
+
+    public long getSucceededLaunchCount() {
+        return succeededCount.get();
+    }
+
+    public long getFailedLaunchCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Returns the number of successful launches that needed more
+     * than one command.
+     *
+     * @return long
+     */
+    public long getFallbackLaunchCount() {
+        return fallbackCount.get();
+    }
+
+    public long getCoalescedLaunchCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * Returns the fraction of completed launches that failed.
+     *
+     * @return double
+     */
+    public double getFailureRate() {
+        long failed = failedCount.get();
+        long completed = succeededCount.get() + failed;
+        return completed == 0L ? 0.0 : (double) failed / completed;
+    }
+
+    /**
+     * Returns the number of launches requested and not yet completed.
+     *
+     * @return long
+     */
+    public long getPendingLaunchCount() {
+        return pendingCount.get();
+    }
+
+    public long getLaunchLatencyP50() {
+        return launchLatency.getPercentile(0.5);
+    }
+
+    public long getLaunchLatencyP99() {
+        return launchLatency.getPercentile(0.99);
+    }
+
+    public long getLaunchLatencyMax() {
+        return launchLatency.getMax();
+    }
+
+    public long getExitLatencyP50() {
+        return exitLatency.getPercentile(0.5);
+    }
+
+    public long getExitLatencyP99() {
+        return exitLatency.getPercentile(0.99);
+    }
+
+    public long getSpawnLatencyP50() {
+        return spawnLatency.getPercentile(0.5);
+    }
+
+    public long getSpawnLatencyP99() {
+        return spawnLatency.getPercentile(0.99);
+    }
+
+    public long getDiscoveryLatencyP50() {
+        return discoveryLatency.getPercentile(0.5);
+    }
+
+    public long getDiscoveryLatencyP99() {
+        return discoveryLatency.getPercentile(0.99);
+    }
+
+    /**
+     * Returns the number of browser processes started and not yet
+     * exited.
+     *
+     * @return long
+     */
+    public long getInFlightProcessCount() {
+        return BrowserProcessRunner.getLiveProcessCount();
+    }
+
+    /**
+     * Returns the number of spawns waiting in the spawn throttle.
+     *
+     * @return int
+     */
+    public int getQueuedSpawnCount() {
+        return SpawnThrottle.getDefault().getWaitingCount();
+    }
+
+    public long getRejectedSpawnCount() {
+        return SpawnThrottle.getDefault().getRejectedCount();
+    }
+
+    public LatencyHistogram getLaunchLatency() {
+        return launchLatency;
+    }
+
+    public LatencyHistogram getExitLatency() {
+        return exitLatency;
+    }
+
+    public LatencyHistogram getSpawnLatency() {
+        return spawnLatency;
+    }
+
+    public LatencyHistogram getDiscoveryLatency() {
+        return discoveryLatency;
+    }
+
+    /**
+     * Returns one line per browser with its command counts.
+     *
+     * @return String[]
+     */
+    public String[] getBrowserCounts() {
+        return describeCounts(browserCounts);
+    }
+
+    /**
+     * Returns one line per fallback stage with its command counts.
+     *
+     * @return String[]
+     */
+    public String[] getStageCounts() {
+        return describeCounts(stageCounts);
+    }
+
+    private static String[] describeCounts(
+            Map<String, CommandCounts> countsMap) {
+        List<String> lines = new ArrayList<String>();
+        Iterator<Map.Entry<String, CommandCounts>> iter =
+                new TreeMap<String, CommandCounts>(countsMap)
+                .entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<String, CommandCounts> entry = iter.next();
+            lines.add(entry.getKey() + " " + entry.getValue());
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Returns one line per initialization phase with the time its
+     * last run took.
+     *
+     * @return String[]
+     */
+    public String[] getInitPhaseTimings() {
+        List<String> lines = new ArrayList<String>();
+        Iterator<Map.Entry<String, Long>> iter =
+                new TreeMap<String, Long>(initPhases).entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<String, Long> entry = iter.next();
+            lines.add(entry.getKey() + "=" + entry.getValue() + "ms");
+        }
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Returns one line per browser whose launches have failed,
+     * describing its circuit in the circuit breaker.
+     *
+     * @return String[]
+     */
+    public String[] getCircuits() {
+        return BrowserCircuitBreaker.getDefault().getCircuitDescriptions();
+    }
+
+    /**
+     * Returns the number of browser launches skipped because the
+     * browser's circuit was open.
+     *
+     * @return long
+     */
+    public long getSkippedLaunchCount() {
+        return BrowserCircuitBreaker.getDefault().getSkippedCount();
+    }
+
+    /**
+     * Forgets all counts and latencies. Pending launches and the
+     * initialization timings are kept.
+     */
+    public void reset() {
+        launchCount.set(0L);
+        succeededCount.set(0L);
+        failedCount.set(0L);
+        fallbackCount.set(0L);
+        coalescedCount.set(0L);
+        launchLatency.reset();
+        exitLatency.reset();
+        spawnLatency.reset();
+        discoveryLatency.reset();
+        browserCounts.clear();
+        stageCounts.clear();
+    }
+
+    public String toString() {
+        StringBuffer buf = new StringBuffer();
+        buf.append("launches=").append(getLaunchCount());
+        buf.append(" succeeded=").append(getSucceededLaunchCount());
+        buf.append(" failed=").append(getFailedLaunchCount());
+        buf.append(" fallbacks=").append(getFallbackLaunchCount());
+        buf.append(" coalesced=").append(getCoalescedLaunchCount());
+        buf.append(" pending=").append(getPendingLaunchCount());
+        buf.append(" inFlight=").append(getInFlightProcessCount());
+        buf.append("\nlaunch ").append(launchLatency);
+        buf.append("\nexit ").append(exitLatency);
+        buf.append("\nspawn ").append(spawnLatency);
+        buf.append("\ndiscovery ").append(discoveryLatency);
+        return buf.toString();
+    }
+
+    /**
+     * Commands run for one browser or stage.
+     */
+    private static final class CommandCounts {
+        private final AtomicLong run = new AtomicLong();
+        private final AtomicLong succeeded = new AtomicLong();
+
+        void record(boolean success) {
+            run.incrementAndGet();
+            if (success) {
+                succeeded.incrementAndGet();
+            }
+        }
+
+        public String toString() {
+            long total = run.get();
+            long ok = succeeded.get();
+            return "run=" + total + " succeeded=" + ok +
+                    " failed=" + (total - ok);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.metrics;
+
+/**
+ * Management interface of {@link LaunchMetrics LaunchMetrics}.
+ * Latencies are in milliseconds.
+ */
+public interface LaunchMetricsMBean {
+    public long getLaunchCount();
+
+    public long getSucceededLaunchCount();
+
+    public long getFailedLaunchCount();
+
+    public long getFallbackLaunchCount();
+
+    public long getCoalescedLaunchCount();
+
+    public double getFailureRate();
+
+    public long getPendingLaunchCount();
+
+    public long getLaunchLatencyP50();
+
+    public long getLaunchLatencyP99();
+
+    public long getLaunchLatencyMax();
+
+    public long getExitLatencyP50();
+
+    public long getExitLatencyP99();
+
+    public long getSpawnLatencyP50();
+
+    public long getSpawnLatencyP99();
+
+    public long getDiscoveryLatencyP50();
+
+    public long getDiscoveryLatencyP99();
+
+    public long getInFlightProcessCount();
+
+    public int getQueuedSpawnCount();
+
+    public long getRejectedSpawnCount();
+
+    public String[] getBrowserCounts();
+
+    public String[] getStageCounts();
+
+    public String[] getInitPhaseTimings();
+
+    public String[] getCircuits();
+
+    public long getSkippedLaunchCount();
+
+    public void reset();
+}
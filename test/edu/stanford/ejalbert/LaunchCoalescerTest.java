@@ -0,0 +1,129 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import edu.stanford.ejalbert.launching.LaunchResult;
+
+/**
+ * Tests which requests the {@link LaunchCoalescer LaunchCoalescer}
+ * merges.
+ */
+public class LaunchCoalescerTest {
+    private LaunchCoalescer coalescer;
+    private int started;
+
+    @Before
+    public void setUp() {
+        coalescer = new LaunchCoalescer();
+        started = 0;
+    }
+
+    private Supplier<CompletableFuture<LaunchResult>> newLaunch(
+            final CompletableFuture<LaunchResult> future) {
+        return new Supplier<CompletableFuture<LaunchResult>>() {
+            public CompletableFuture<LaunchResult> get() {
+                started++;
+                return future;
+            }
+        };
+    }
+
+    @Test
+    public void identicalRequestsInWindowShareLaunch() {
+        coalescer.setWindowMillis(60000L);
+        CompletableFuture<LaunchResult> launch =
+                new CompletableFuture<LaunchResult>();
+        CompletableFuture<LaunchResult> first = coalescer.launch(
+                null, "http://a.org", newLaunch(launch));
+        CompletableFuture<LaunchResult> second = coalescer.launch(
+                null, "http://a.org", newLaunch(launch));
+        assertEquals(1, started);
+        assertEquals(1L, coalescer.getLaunchCount());
+        assertEquals(1L, coalescer.getCoalescedCount());
+        assertNotSame(first, second);
+        LaunchResult result = new LaunchResult("http://a.org");
+        launch.complete(result);
+        assertSame(result, first.join());
+        assertSame(result, second.join());
+    }
+
+    @Test
+    public void differentUrlsOrBrowsersAreNotMerged() {
+        coalescer.setWindowMillis(60000L);
+        coalescer.launch(null, "http://a.org",
+                         newLaunch(new CompletableFuture<LaunchResult>()));
+        coalescer.launch(null, "http://b.org",
+                         newLaunch(new CompletableFuture<LaunchResult>()));
+        coalescer.launch(Arrays.asList(new String[] {"FireFox"}),
+                         "http://a.org",
+                         newLaunch(new CompletableFuture<LaunchResult>()));
+        assertEquals(3, started);
+        assertEquals(0L, coalescer.getCoalescedCount());
+    }
+
+    @Test
+    public void cancellingOneCallerKeepsTheLaunch() {
+        coalescer.setWindowMillis(60000L);
+        CompletableFuture<LaunchResult> launch =
+                new CompletableFuture<LaunchResult>();
+        CompletableFuture<LaunchResult> first = coalescer.launch(
+                null, "http://a.org", newLaunch(launch));
+        CompletableFuture<LaunchResult> second = coalescer.launch(
+                null, "http://a.org", newLaunch(launch));
+        first.cancel(false);
+        assertFalse(launch.isDone());
+        launch.complete(new LaunchResult("http://a.org"));
+        assertTrue(second.isDone());
+        assertFalse(second.isCancelled());
+    }
+
+    @Test
+    public void requestAfterWindowStartsNewLaunch()
+            throws InterruptedException {
+        coalescer.setWindowMillis(20L);
+        coalescer.launch(null, "http://a.org",
+                         newLaunch(new CompletableFuture<LaunchResult>()));
+        Thread.sleep(40L);
+        coalescer.launch(null, "http://a.org",
+                         newLaunch(new CompletableFuture<LaunchResult>()));
+        assertEquals(2, started);
+        assertEquals(0L, coalescer.getCoalescedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeWindowIsRejected() {
+        coalescer.setWindowMillis(-1L);
+    }
+}
@@ -0,0 +1,145 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.browserclosers;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import edu.stanford.ejalbert.browserevents.BrowserEvent;
+
+/**
+ * Tests which events the {@link DefaultBrowserCloser DefaultBrowserCloser}
+ * keeps, forgets and closes.
+ */
+public class DefaultBrowserCloserTest {
+    private List<BrowserEvent> killed;
+    private List<BrowserEvent> forgotten;
+    private Map<BrowserEvent, CompletableFuture<Void>> exits;
+
+    @Before
+    public void setUp() {
+        killed = new ArrayList<BrowserEvent>();
+        forgotten = new ArrayList<BrowserEvent>();
+        exits = new HashMap<BrowserEvent, CompletableFuture<Void>>();
+    }
+
+    private DefaultBrowserCloser newCloser(int maxEvents,
+                                           long maxAgeMillis) {
+        return new DefaultBrowserCloser(maxEvents, maxAgeMillis) {
+            protected void killBrowser(BrowserEvent event) {
+                killed.add(event);
+            }
+
+            protected void browserForgotten(BrowserEvent event) {
+                forgotten.add(event);
+            }
+
+            protected CompletableFuture<?> getBrowserExit(
+                    BrowserEvent event) {
+                CompletableFuture<Void> exit = new CompletableFuture<Void>();
+                exits.put(event, exit);
+                return exit;
+            }
+        };
+    }
+
+    private static BrowserEvent launched(int attemptId,
+                                         String browserName) {
+        return new BrowserEvent(BrowserEvent.ID_BROWSER_LAUNCHED,
+                                attemptId,
+                                null,
+                                "user",
+                                browserName,
+                                "http://a.org/" + attemptId);
+    }
+
+    @Test
+    public void exitedBrowserIsForgotten() {
+        DefaultBrowserCloser closer = newCloser(0, 0L);
+        BrowserEvent event = launched(1, "firefox");
+        closer.handleBrowserEvent(event);
+        assertEquals(1, closer.getBrowserEventCount());
+        exits.get(event).complete(null);
+        assertEquals(0, closer.getBrowserEventCount());
+        assertEquals(1, forgotten.size());
+        assertTrue(killed.isEmpty());
+    }
+
+    @Test
+    public void oldestEventsAreEvictedWithoutClosing() {
+        DefaultBrowserCloser closer = newCloser(2, 0L);
+        BrowserEvent first = launched(1, "firefox");
+        closer.handleBrowserEvent(first);
+        closer.handleBrowserEvent(launched(2, "firefox"));
+        closer.handleBrowserEvent(launched(3, "firefox"));
+        assertEquals(2, closer.getBrowserEventCount());
+        assertEquals(1, forgotten.size());
+        assertEquals(first, forgotten.get(0));
+        assertTrue(killed.isEmpty());
+    }
+
+    @Test
+    public void closesBrowsersByNameOnce() {
+        DefaultBrowserCloser closer = newCloser(0, 0L);
+        closer.handleBrowserEvent(launched(1, "firefox"));
+        closer.handleBrowserEvent(launched(2, "opera"));
+        closer.handleBrowserEvent(launched(3, "firefox"));
+        assertEquals(2, closer.closeBrowsers("firefox"));
+        assertEquals(0, closer.closeBrowsers("firefox"));
+        assertEquals(2, killed.size());
+        assertEquals(2, forgotten.size());
+        assertEquals(1, closer.getBrowserEventCount());
+        assertEquals(1, closer.closeAllBrowsers());
+        assertEquals(3, killed.size());
+    }
+
+    @Test
+    public void closedBrowserIsNotForgottenAgainOnExit() {
+        DefaultBrowserCloser closer = newCloser(0, 0L);
+        BrowserEvent event = launched(1, "firefox");
+        closer.handleBrowserEvent(event);
+        closer.closeBrowser(event);
+        closer.closeBrowser(event);
+        exits.get(event).complete(null);
+        assertEquals(1, killed.size());
+        assertEquals(1, forgotten.size());
+        assertEquals(0, closer.getBrowserEventCount());
+    }
+
+    @Test
+    public void otherEventsAreIgnored() {
+        DefaultBrowserCloser closer = newCloser(0, 0L);
+        closer.handleBrowserEvent(new BrowserEvent(
+                BrowserEvent.ID_BROWSER_LAUNCHED + 1,
+                1, null, "user", "firefox", "http://a.org"));
+        assertEquals(0, closer.getBrowserEventCount());
+    }
+}
@@ -0,0 +1,141 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.browserclosers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import edu.stanford.ejalbert.browserevents.BrowserEvent;
+
+/**
+ * Tests that the {@link ProcessTreeBrowserCloser ProcessTreeBrowserCloser}
+ * closes the processes a launched wrapper started. Runs where
+ * /bin/sh is available.
+ */
+public class ProcessTreeBrowserCloserTest {
+    private Process wrapper;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(new File("/bin/sh").canExecute());
+    }
+
+    @After
+    public void tearDown() {
+        if (wrapper != null) {
+            wrapper.descendants().forEach(new Consumer<ProcessHandle>() {
+                public void accept(ProcessHandle handle) {
+                    handle.destroyForcibly();
+                }
+            });
+            wrapper.destroyForcibly();
+        }
+    }
+
+    private BrowserEvent launch(String command)
+            throws IOException {
+        wrapper = new ProcessBuilder("/bin/sh", "-c", command).start();
+        return new BrowserEvent(BrowserEvent.ID_BROWSER_LAUNCHED,
+                                1,
+                                wrapper,
+                                "user",
+                                "firefox",
+                                "http://a.org");
+    }
+
+    private static Optional<ProcessHandle> waitForChild(Process process)
+            throws InterruptedException {
+        for (int tries = 0; tries < 100; tries++) {
+            List<ProcessHandle> children =
+                    process.children().collect(Collectors.toList());
+            if (!children.isEmpty()) {
+                return Optional.of(children.get(0));
+            }
+            Thread.sleep(20L);
+        }
+        return Optional.empty();
+    }
+
+    @Test
+    public void closingKillsTheProcessesBelowTheWrapper()
+            throws Exception {
+        ProcessTreeBrowserCloser closer =
+                new ProcessTreeBrowserCloser(0, 0L, 2000L);
+        BrowserEvent event = launch("sleep 30 & wait");
+        Optional<ProcessHandle> child = waitForChild(wrapper);
+        Assume.assumeTrue(child.isPresent());
+        closer.processLaunched(event);
+        closer.handleBrowserEvent(event);
+        assertEquals(1, closer.closeAllBrowsers());
+        assertTrue(closer.awaitClosed(5000L));
+        assertFalse(child.get().isAlive());
+        assertFalse(wrapper.isAlive());
+        assertEquals(0, closer.getBrowserEventCount());
+    }
+
+    @Test
+    public void browserIsKeptWhileItOutlivesTheWrapper()
+            throws Exception {
+        ProcessTreeBrowserCloser closer =
+                new ProcessTreeBrowserCloser(0, 0L, 2000L);
+        BrowserEvent event = launch("sleep 30 & sleep 0.5");
+        Optional<ProcessHandle> child = waitForChild(wrapper);
+        Assume.assumeTrue(child.isPresent());
+        closer.processLaunched(event);
+        closer.handleBrowserEvent(event);
+        wrapper.waitFor();
+        Thread.sleep(2 * ProcessTreeBrowserCloser.SAMPLE_MILLIS);
+        assertEquals(1, closer.getBrowserEventCount());
+        closer.closeBrowser(event);
+        assertTrue(closer.awaitClosed(5000L));
+        assertFalse(child.get().isAlive());
+    }
+
+    @Test
+    public void eventIsForgottenWhenTheTreeExits()
+            throws Exception {
+        ProcessTreeBrowserCloser closer =
+                new ProcessTreeBrowserCloser(0, 0L, 2000L);
+        BrowserEvent event = launch("exit 0");
+        closer.processLaunched(event);
+        closer.handleBrowserEvent(event);
+        wrapper.waitFor();
+        for (int tries = 0; tries < 50 &&
+             closer.getBrowserEventCount() > 0; tries++) {
+            Thread.sleep(ProcessTreeBrowserCloser.SAMPLE_MILLIS);
+        }
+        assertEquals(0, closer.getBrowserEventCount());
+    }
+}
@@ -0,0 +1,151 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the circuit states of the
+ * {@link BrowserCircuitBreaker BrowserCircuitBreaker} and which launch
+ * outcomes move them.
+ */
+public class BrowserCircuitBreakerTest {
+
+    @Test
+    public void opensAfterThresholdFailuresInARow() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(3, 60000L);
+        breaker.recordFailure("firefox");
+        breaker.recordFailure("firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_CLOSED,
+                     breaker.getState("firefox"));
+        assertTrue(breaker.allowLaunch("firefox"));
+        breaker.recordFailure("firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_OPEN,
+                     breaker.getState("firefox"));
+        assertFalse(breaker.allowLaunch("firefox"));
+        assertTrue(breaker.allowLaunch("opera"));
+        assertEquals(1L, breaker.getSkippedCount());
+        assertEquals(Arrays.asList(new String[] {"firefox"}),
+                     breaker.getOpenBrowsers());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(2, 60000L);
+        breaker.recordFailure("firefox");
+        breaker.recordSuccess("firefox");
+        breaker.recordFailure("firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_CLOSED,
+                     breaker.getState("firefox"));
+    }
+
+    @Test
+    public void probeSuccessCloses() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(1, 0L);
+        breaker.recordFailure("firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_OPEN,
+                     breaker.getState("firefox"));
+        assertTrue(breaker.allowLaunch("firefox"));
+        assertEquals(BrowserCircuitBreaker.STATE_HALF_OPEN,
+                     breaker.getState("firefox"));
+        breaker.recordSuccess("firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_CLOSED,
+                     breaker.getState("firefox"));
+        assertTrue(breaker.getOpenBrowsers().isEmpty());
+    }
+
+    @Test
+    public void probeFailureReopens() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(3, 0L);
+        for (int idx = 0; idx < 3; idx++) {
+            breaker.recordFailure("firefox");
+        }
+        assertTrue(breaker.allowLaunch("firefox"));
+        breaker.recordFailure("firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_OPEN,
+                     breaker.getState("firefox"));
+    }
+
+    @Test
+    public void zeroThresholdNeverOpens() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(0, 60000L);
+        for (int idx = 0; idx < 10; idx++) {
+            breaker.recordFailure("firefox");
+        }
+        assertEquals(BrowserCircuitBreaker.STATE_CLOSED,
+                     breaker.getState("firefox"));
+        assertTrue(breaker.allowLaunch("firefox"));
+    }
+
+    @Test
+    public void trackCountsFalseAndSpawnFailures() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(2, 60000L);
+        breaker.track(CompletableFuture.completedFuture(Boolean.FALSE),
+                      "firefox");
+        breaker.track(failed(new IOException("no such file")), "firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_OPEN,
+                     breaker.getState("firefox"));
+    }
+
+    @Test
+    public void trackIgnoresRejectedTimedOutAndCancelledLaunches() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(1, 60000L);
+        breaker.track(failed(new RejectedExecutionException()), "firefox");
+        breaker.track(failed(new TimeoutException()), "firefox");
+        CompletableFuture<Boolean> cancelled = new CompletableFuture<Boolean>();
+        breaker.track(cancelled, "firefox");
+        cancelled.cancel(false);
+        assertEquals(BrowserCircuitBreaker.STATE_CLOSED,
+                     breaker.getState("firefox"));
+    }
+
+    @Test
+    public void abandonedProbeReopensForTheNextLaunch() {
+        BrowserCircuitBreaker breaker = new BrowserCircuitBreaker(1, 0L);
+        breaker.recordFailure("firefox");
+        assertTrue(breaker.allowLaunch("firefox"));
+        breaker.track(failed(new TimeoutException()), "firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_OPEN,
+                     breaker.getState("firefox"));
+        assertTrue(breaker.allowLaunch("firefox"));
+        breaker.track(CompletableFuture.completedFuture(Boolean.TRUE),
+                      "firefox");
+        assertEquals(BrowserCircuitBreaker.STATE_CLOSED,
+                     breaker.getState("firefox"));
+    }
+
+    private static CompletableFuture<Boolean> failed(Throwable ex) {
+        CompletableFuture<Boolean> launch = new CompletableFuture<Boolean>();
+        launch.completeExceptionally(ex);
+        return launch;
+    }
+}
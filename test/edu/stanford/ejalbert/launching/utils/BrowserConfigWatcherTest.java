@@ -0,0 +1,161 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.sf.wraplog.AbstractLogger;
+import net.sf.wraplog.NoneLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the {@link BrowserConfigWatcher BrowserConfigWatcher}
+ * reloads a loaded catalog when its per-user file is written, also
+ * when the user config directory is only created later. The config
+ * directories are pointed at temporary directories.
+ */
+public class BrowserConfigWatcherTest {
+    private static final String CONFIG =
+            "/edu/stanford/ejalbert/launching/misc/linuxUnixConfig.properties";
+    private static final String KEY = "test.watched";
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    private final AbstractLogger logger = new NoneLogger();
+    private File root;
+    private BrowserConfigWatcher watcher;
+
+    @Before
+    public void setUp() throws IOException {
+        root = File.createTempFile("configwatch", "");
+        root.delete();
+        root.mkdirs();
+        File systemDir = new File(root, "system");
+        systemDir.mkdirs();
+        System.setProperty(BrowserConfigLoader.SYSTEM_CONFIG_DIR_PROPERTY,
+                           systemDir.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+        System.clearProperty(BrowserConfigLoader.SYSTEM_CONFIG_DIR_PROPERTY);
+        System.clearProperty(BrowserConfigLoader.USER_CONFIG_DIR_PROPERTY);
+        BrowserConfigLoader.invalidate(CONFIG);
+        delete(root);
+    }
+
+    @Test
+    public void reloadsWhenUserFileIsWritten()
+            throws IOException, InterruptedException {
+        File userDir = new File(root, "user");
+        userDir.mkdirs();
+        System.setProperty(BrowserConfigLoader.USER_CONFIG_DIR_PROPERTY,
+                           userDir.getPath());
+        BrowserCatalog loaded = reloadCatalog();
+        assertNull(loaded.getProperty(KEY));
+        watcher = new BrowserConfigWatcher(logger);
+        writeUserFile(userDir, "first");
+        BrowserCatalog reloaded = awaitValue("first");
+        assertTrue(reloaded.getVersion() > loaded.getVersion());
+        writeUserFile(userDir, "second");
+        awaitValue("second");
+        assertTrue(watcher.getReloadCount() >= 2L);
+    }
+
+    @Test
+    public void waitsForMissingUserDirectory()
+            throws IOException, InterruptedException {
+        File userDir = new File(new File(root, "home"), "user");
+        System.setProperty(BrowserConfigLoader.USER_CONFIG_DIR_PROPERTY,
+                           userDir.getPath());
+        reloadCatalog();
+        watcher = new BrowserConfigWatcher(logger);
+        assertTrue(userDir.mkdirs());
+        writeUserFile(userDir, "created");
+        awaitValue("created");
+    }
+
+    @Test
+    public void stopEndsWatching() throws IOException, InterruptedException {
+        watcher = new BrowserConfigWatcher(logger);
+        assertTrue(watcher.isRunning());
+        watcher.stop();
+        assertFalse(watcher.isRunning());
+        assertEquals(0L, watcher.getReloadCount());
+    }
+
+    private BrowserCatalog reloadCatalog() throws IOException {
+        return BrowserConfigLoader.reload(CONFIG, logger);
+    }
+
+    private static void writeUserFile(File userDir,
+                                      String value)
+            throws IOException {
+        File file = BrowserConfigLoader.getConfigFiles(CONFIG)[1];
+        assertEquals(userDir, file.getParentFile());
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write((KEY + "=" + value + "\n").getBytes("ISO-8859-1"));
+        }
+        finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Waits until the shared catalog has the value for the test key.
+     */
+    private static BrowserCatalog awaitValue(String value)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            BrowserCatalog catalog =
+                    BrowserConfigLoader.getLoadedCatalog(CONFIG);
+            if (catalog != null && value.equals(catalog.getProperty(KEY))) {
+                return catalog;
+            }
+            assertTrue("catalog not reloaded with " + KEY + "=" + value,
+                       System.currentTimeMillis() < deadline);
+            Thread.sleep(50L);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        for (int idx = 0; children != null && idx < children.length; idx++) {
+            delete(children[idx]);
+        }
+        file.delete();
+    }
+}
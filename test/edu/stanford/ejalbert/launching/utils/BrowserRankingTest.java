@@ -0,0 +1,225 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import edu.stanford.ejalbert.launching.BrowserDescription;
+import net.sf.wraplog.AbstractLogger;
+import net.sf.wraplog.NoneLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the order the {@link BrowserRanking BrowserRanking} gives
+ * browsers, which launch outcomes it learns from and how it is stored.
+ */
+public class BrowserRankingTest {
+    private final AbstractLogger logger = new NoneLogger();
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("ranking", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        for (int idx = 0; files != null && idx < files.length; idx++) {
+            files[idx].delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void unknownBrowsersKeepTheirOrder() {
+        BrowserRanking ranking = new BrowserRanking(null);
+        List<BrowserDescription> browsers = browsers(new String[] {"a", "b", "c"});
+        assertEquals(browsers, ranking.sort(browsers));
+    }
+
+    @Test
+    public void workingBeforeUntriedBeforeFailing() {
+        BrowserRanking ranking = new BrowserRanking(null);
+        ranking.recordFailure("a", logger);
+        ranking.recordSuccess("c", 100L, logger);
+        assertEquals("[c, b, a]",
+                     ranking.sort(browsers(new String[] {"a", "b", "c"}))
+                     .toString());
+    }
+
+    @Test
+    public void workingOrderedByLatencyAndFailingByFailures() {
+        BrowserRanking ranking = new BrowserRanking(null);
+        ranking.recordSuccess("slow", 900L, logger);
+        ranking.recordSuccess("fast", 100L, logger);
+        ranking.recordFailure("worse", logger);
+        ranking.recordFailure("worse", logger);
+        ranking.recordFailure("bad", logger);
+        assertEquals("[fast, slow, bad, worse]",
+                     ranking.sort(browsers(new String[] {
+                             "worse", "bad", "slow", "fast"})).toString());
+    }
+
+    @Test
+    public void successClearsFailures() {
+        BrowserRanking ranking = new BrowserRanking(null);
+        ranking.recordFailure("a", logger);
+        ranking.recordFailure("a", logger);
+        ranking.recordSuccess("a", 100L, logger);
+        assertEquals("[a, b]",
+                     ranking.sort(browsers(new String[] {"b", "a"}))
+                     .toString());
+    }
+
+    @Test
+    public void trackRecordsSuccessAndBrowserFailures() {
+        BrowserRanking ranking = new BrowserRanking(null);
+        ranking.track(CompletableFuture.completedFuture(Boolean.TRUE),
+                      "ok", logger);
+        ranking.track(CompletableFuture.completedFuture(Boolean.FALSE),
+                      "false", logger);
+        ranking.track(failed(new IOException("no such file")),
+                      "missing", logger);
+        assertEquals("[ok, untried, false, missing]",
+                     ranking.sort(browsers(new String[] {
+                             "false", "missing", "untried", "ok"}))
+                     .toString());
+    }
+
+    @Test
+    public void trackIgnoresRejectedTimedOutAndCancelledLaunches() {
+        BrowserRanking ranking = new BrowserRanking(null);
+        ranking.track(failed(new RejectedExecutionException()),
+                      "rejected", logger);
+        ranking.track(failed(new TimeoutException()), "timedout", logger);
+        CompletableFuture<Boolean> cancelled = new CompletableFuture<Boolean>();
+        ranking.track(cancelled, "cancelled", logger);
+        cancelled.cancel(false);
+        ranking.recordSuccess("ok", 100L, logger);
+        assertEquals("[ok, rejected, timedout, cancelled]",
+                     ranking.sort(browsers(new String[] {
+                             "rejected", "timedout", "cancelled", "ok"}))
+                     .toString());
+    }
+
+    @Test
+    public void saveWritesOutcomes() throws IOException {
+        File file = new File(dir, "ranking.properties");
+        BrowserRanking ranking = new BrowserRanking(file);
+        ranking.recordSuccess("ok", 120L, logger);
+        ranking.recordFailure("bad", logger);
+        ranking.recordFailure("bad", logger);
+        ranking.save(logger);
+        assertTrue(file.isFile());
+        assertFalse(new File(dir, "ranking.properties.tmp").exists());
+        Properties props = new Properties();
+        InputStream in = new FileInputStream(file);
+        try {
+            props.load(in);
+        }
+        finally {
+            in.close();
+        }
+        assertEquals("120.0", props.getProperty("ok.latency"));
+        assertEquals("0", props.getProperty("ok.failures"));
+        assertEquals("2", props.getProperty("bad.failures"));
+    }
+
+    @Test
+    public void concurrentSavesLeaveOneFile() throws InterruptedException {
+        final File file = new File(dir, "ranking.properties");
+        final BrowserRanking ranking = new BrowserRanking(file);
+        Thread[] threads = new Thread[8];
+        for (int idx = 0; idx < threads.length; idx++) {
+            final String name = "browser" + idx;
+            threads[idx] = new Thread(new Runnable() {
+                public void run() {
+                    for (int count = 0; count < 20; count++) {
+                        ranking.recordFailure(name, logger);
+                        ranking.save(logger);
+                    }
+                }
+            });
+            threads[idx].start();
+        }
+        for (int idx = 0; idx < threads.length; idx++) {
+            threads[idx].join();
+        }
+        ranking.save(logger);
+        assertTrue(file.isFile());
+        assertFalse(new File(dir, "ranking.properties.tmp").exists());
+    }
+
+    private static CompletableFuture<Boolean> failed(Throwable ex) {
+        CompletableFuture<Boolean> launch = new CompletableFuture<Boolean>();
+        launch.completeExceptionally(ex);
+        return launch;
+    }
+
+    private static List<BrowserDescription> browsers(String[] names) {
+        List<BrowserDescription> browsers = new ArrayList<BrowserDescription>();
+        for (int idx = 0; idx < names.length; idx++) {
+            browsers.add(new NamedBrowser(names[idx]));
+        }
+        return browsers;
+    }
+
+    private static final class NamedBrowser
+            implements BrowserDescription {
+        private final String name; // in ctor
+
+        NamedBrowser(String name) {
+            this.name = name;
+        }
+
+        public String getBrowserDisplayName() {
+            return name;
+        }
+
+        public String getBrowserApplicationName() {
+            return name;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+}
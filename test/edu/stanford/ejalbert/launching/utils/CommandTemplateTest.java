@@ -0,0 +1,123 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests how {@link CommandTemplate CommandTemplate} splits config
+ * command lines and fills in their placeholders.
+ */
+public class CommandTemplateTest {
+
+    @Test
+    public void splitsAtSpacesAndFillsPlaceholders() {
+        CommandTemplate template = CommandTemplate.compile(
+                "<browser> -remote openURL(<url>)");
+        assertArrayEquals(new String[] {
+                "mozilla", "-remote", "openURL(http://a.org/x y)"},
+                template.fill("mozilla", "http://a.org/x y"));
+    }
+
+    @Test
+    public void urlWithSpacesStaysOneArgument() {
+        CommandTemplate template = CommandTemplate.compile(
+                "<browser> <url>");
+        assertArrayEquals(new String[] {"firefox", "http://a.org/a b"},
+                          template.fill("firefox", "http://a.org/a b"));
+    }
+
+    @Test
+    public void quotesGroupTextAndAreDropped() {
+        CommandTemplate template = CommandTemplate.compile(
+                "\"<path>\" --title \"my browser\" <url>");
+        assertArrayEquals(new String[] {
+                "/opt/Web Browser/bin", "--title", "my browser", "u"},
+                template.fill(null, "u", "/opt/Web Browser/bin", null));
+    }
+
+    @Test
+    public void quotesAreKeptForTheShell() {
+        CommandTemplate template = CommandTemplate.compile(
+                "cmd.exe /c start \"\" \"<url>\"", true);
+        assertArrayEquals(new String[] {
+                "cmd.exe", "/c", "start", "\"\"", "\"http://a.org/?a=1&b=2\""},
+                template.fill(null, "http://a.org/?a=1&b=2"));
+    }
+
+    @Test
+    public void argsExpandToSeveralArgumentsOrNone() {
+        CommandTemplate template = CommandTemplate.compile(
+                "<browser> <args> <url>");
+        assertArrayEquals(new String[] {"opera", "-a", "-b", "u"},
+                          template.fill("opera", "u", null, "-a -b"));
+        assertArrayEquals(new String[] {"opera", "u"},
+                          template.fill("opera", "u", null, null));
+    }
+
+    @Test
+    public void quotedEmptyArgumentIsKept() {
+        CommandTemplate template = CommandTemplate.compile(
+                "<browser> \"<args>\" <url>");
+        assertArrayEquals(new String[] {"opera", "", "u"},
+                          template.fill("opera", "u", null, null));
+    }
+
+    @Test
+    public void repeatsOptionsBeforeUrlForEachUrl() {
+        CommandTemplate template = CommandTemplate.compile(
+                "<browser> -new-tab <url>");
+        assertTrue(template.acceptsManyUrls());
+        assertEquals("-new-tab".length() + 1, template.getBytesPerUrl());
+        assertArrayEquals(new String[] {
+                "firefox", "-new-tab", "u1", "-new-tab", "u2"},
+                template.fill("firefox", Arrays.asList(
+                        new String[] {"u1", "u2"})));
+    }
+
+    @Test
+    public void embeddedUrlTakesOneUrl() {
+        CommandTemplate template = CommandTemplate.compile(
+                "<browser> -remote openURL(<url>)");
+        assertFalse(template.acceptsManyUrls());
+        assertEquals(-1, template.getBytesPerUrl());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void manyUrlsRejectedForSingleUrlTemplate() {
+        CommandTemplate.compile("<browser> openURL(<url>)").fill(
+                "mozilla", Arrays.asList(new String[] {"u1", "u2"}));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyUrlInListIsRejected() {
+        CommandTemplate.compile("<browser> <url>").fill(
+                "firefox", Arrays.asList(new String[] {"u1", ""}));
+    }
+}
@@ -0,0 +1,125 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the in-flight limit and wait deadline of the
+ * {@link SpawnThrottle SpawnThrottle}. The rate limit is turned off so
+ * the outcomes do not depend on timing.
+ */
+public class SpawnThrottleTest {
+
+    @Test
+    public void grantsUpToMaxInFlightAtOnce() {
+        SpawnThrottle throttle = new SpawnThrottle(0.0, 1, 2, 10000L);
+        assertTrue(throttle.acquireAsync().isDone());
+        assertTrue(throttle.acquireAsync().isDone());
+        CompletableFuture<Void> third = throttle.acquireAsync();
+        assertFalse(third.isDone());
+        assertEquals(2, throttle.getInFlightCount());
+        assertEquals(1, throttle.getWaitingCount());
+        throttle.release();
+        third.join();
+        assertEquals(2, throttle.getInFlightCount());
+        assertEquals(0, throttle.getWaitingCount());
+    }
+
+    @Test
+    public void releaseHandsSlotsOutInOrder() {
+        SpawnThrottle throttle = new SpawnThrottle(0.0, 1, 1, 10000L);
+        throttle.acquireAsync().join();
+        final List<Integer> granted = new ArrayList<Integer>();
+        for (int idx = 0; idx < 5; idx++) {
+            final Integer waiter = Integer.valueOf(idx);
+            throttle.acquireAsync().thenAccept(new Consumer<Void>() {
+                public void accept(Void ignored) {
+                    synchronized (granted) {
+                        granted.add(waiter);
+                    }
+                }
+            });
+        }
+        for (int idx = 0; idx < 5; idx++) {
+            throttle.release();
+        }
+        synchronized (granted) {
+            assertEquals(5, granted.size());
+            for (int idx = 0; idx < 5; idx++) {
+                assertEquals(idx, granted.get(idx).intValue());
+            }
+        }
+        assertEquals(1, throttle.getInFlightCount());
+    }
+
+    @Test
+    public void waitingSpawnIsRejectedAtDeadline()
+            throws InterruptedException {
+        SpawnThrottle throttle = new SpawnThrottle(0.0, 1, 1, 50L);
+        throttle.acquireAsync().join();
+        CompletableFuture<Void> waiting = throttle.acquireAsync();
+        try {
+            waiting.get(5L, TimeUnit.SECONDS);
+            fail("spawn was not rejected");
+        }
+        catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+        catch (TimeoutException ex) {
+            fail("spawn was not rejected in time");
+        }
+        assertEquals(1L, throttle.getRejectedCount());
+        assertEquals(0, throttle.getWaitingCount());
+        // the rejected spawn does not take the released slot
+        throttle.release();
+        assertEquals(0, throttle.getInFlightCount());
+    }
+
+    @Test
+    public void noLimitsGrantsAtOnce() {
+        SpawnThrottle throttle = new SpawnThrottle(0.0, 1, 0, 0L);
+        for (int idx = 0; idx < 100; idx++) {
+            assertTrue(throttle.acquireAsync().isDone());
+        }
+        assertEquals(100L, throttle.getSpawnCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void burstMustBePositive() {
+        new SpawnThrottle(1.0, 0, 1, 0L);
+    }
+}
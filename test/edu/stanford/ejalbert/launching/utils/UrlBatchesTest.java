@@ -0,0 +1,112 @@
+/************************************************
+    Copyright 2026 agent
+
+    This file is part of BrowserLauncher2.
+
+    BrowserLauncher2 is free software; you can redistribute it and/or modify
+    it under the terms of the GNU Lesser General Public License as published by
+    the Free Software Foundation; either version 2 of the License, or
+    (at your option) any later version.
+
+    BrowserLauncher2 is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Lesser General Public License for more details.
+
+    You should have received a copy of the GNU Lesser General Public License
+    along with BrowserLauncher2; if not, write to the Free Software
+    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+
+ ************************************************/
+// $Id$
+package edu.stanford.ejalbert.launching.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import edu.stanford.ejalbert.launching.LaunchResult;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests how {@link UrlBatches UrlBatches} splits urls into command
+ * lines and collects the results of their launches.
+ */
+public class UrlBatchesTest {
+
+    @Test
+    public void splitsByUrlCount() {
+        List<List<String>> batches = UrlBatches.split(
+                urls(new String[] {"a", "b", "c", "d", "e"}),
+                2, 0, 0, Integer.MAX_VALUE);
+        assertEquals("[[a, b], [c, d], [e]]", batches.toString());
+    }
+
+    @Test
+    public void splitsByCommandBytes() {
+        // each url costs its length, one NUL and 5 option bytes: 7
+        List<List<String>> batches = UrlBatches.split(
+                urls(new String[] {"a", "b", "c", "d"}),
+                10, 10, 5, 24);
+        assertEquals("[[a, b], [c, d]]", batches.toString());
+    }
+
+    @Test
+    public void longUrlGetsItsOwnBatch() {
+        List<List<String>> batches = UrlBatches.split(
+                urls(new String[] {"a", "0123456789", "b"}),
+                10, 0, 0, 5);
+        assertEquals("[[a], [0123456789], [b]]", batches.toString());
+    }
+
+    @Test
+    public void noUrlsGiveNoBatches() {
+        assertTrue(UrlBatches.split(new ArrayList<String>(),
+                                    1, 0, 0, 100).isEmpty());
+    }
+
+    @Test
+    public void rejectsMaxUrlsBelowOne() {
+        try {
+            UrlBatches.split(urls(new String[] {"a"}), 0, 0, 0, 100);
+            fail("maxUrls of zero accepted");
+        }
+        catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void collectReportsFailuresInTheirResults() {
+        LaunchResult first = new LaunchResult("a");
+        LaunchResult second = new LaunchResult("b");
+        CompletableFuture<LaunchResult> failed =
+                new CompletableFuture<LaunchResult>();
+        IOException failure = new IOException("no such file");
+        failed.completeExceptionally(failure);
+        List<CompletableFuture<LaunchResult>> launches =
+                new ArrayList<CompletableFuture<LaunchResult>>();
+        launches.add(CompletableFuture.completedFuture(first));
+        launches.add(failed);
+        List<LaunchResult> results = UrlBatches.collect(
+                launches, Arrays.asList(new LaunchResult[] {
+                        new LaunchResult("a"), second})).join();
+        assertEquals(2, results.size());
+        assertSame(first, results.get(0));
+        assertNull(first.getFailure());
+        assertSame(second, results.get(1));
+        assertSame(failure, second.getFailure());
+    }
+
+    private static List<String> urls(String[] urls) {
+        return new ArrayList<String>(Arrays.asList(urls));
+    }
+}